@@ -0,0 +1,81 @@
+package com.telco.alerttriggerservice.model;
+
+public class UsageAlert {
+    private Long alertId;
+    private String userId;
+    private String alertType;
+    private double usagePercentage;
+    private long dataUsed;
+    private long dataLimit;
+    private String phoneNumber;
+
+    public UsageAlert() {
+    }
+
+    public UsageAlert(String userId, String alertType, double usagePercentage, long dataUsed, long dataLimit,
+            String phoneNumber) {
+        this.userId = userId;
+        this.alertType = alertType;
+        this.usagePercentage = usagePercentage;
+        this.dataUsed = dataUsed;
+        this.dataLimit = dataLimit;
+        this.phoneNumber = phoneNumber;
+    }
+
+    // Getters and Setters
+    public Long getAlertId() {
+        return alertId;
+    }
+
+    public void setAlertId(Long alertId) {
+        this.alertId = alertId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getAlertType() {
+        return alertType;
+    }
+
+    public void setAlertType(String alertType) {
+        this.alertType = alertType;
+    }
+
+    public double getUsagePercentage() {
+        return usagePercentage;
+    }
+
+    public void setUsagePercentage(double usagePercentage) {
+        this.usagePercentage = usagePercentage;
+    }
+
+    public long getDataUsed() {
+        return dataUsed;
+    }
+
+    public void setDataUsed(long dataUsed) {
+        this.dataUsed = dataUsed;
+    }
+
+    public long getDataLimit() {
+        return dataLimit;
+    }
+
+    public void setDataLimit(long dataLimit) {
+        this.dataLimit = dataLimit;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+}
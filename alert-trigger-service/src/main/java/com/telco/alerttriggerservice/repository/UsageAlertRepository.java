@@ -0,0 +1,61 @@
+package com.telco.alerttriggerservice.repository;
+
+import com.telco.alerttriggerservice.model.UsageAlert;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class UsageAlertRepository {
+    // 6 bind parameters per row keeps a full chunk well under the 65535 parameter limit
+    private static final int INSERT_CHUNK_SIZE = 1000;
+    private static final String INSERT_PREFIX = "INSERT INTO usage_alerts "
+            + "(user_id, alert_type, usage_percentage, data_used, data_limit, phone_number) VALUES ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = " RETURNING alert_id, user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsageAlertRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Inserts alerts as PENDING with one multi-row statement per chunk and assigns the
+    // generated alert ids back onto the given objects
+    public void insertAll(List<UsageAlert> alerts) {
+        for (int from = 0; from < alerts.size(); from += INSERT_CHUNK_SIZE) {
+            insertChunk(alerts.subList(from, Math.min(from + INSERT_CHUNK_SIZE, alerts.size())));
+        }
+    }
+
+    private void insertChunk(List<UsageAlert> chunk) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(chunk.size() * 6);
+        for (int i = 0; i < chunk.size(); i++) {
+            UsageAlert alert = chunk.get(i);
+            if (i > 0)
+                sql.append(',');
+            sql.append(INSERT_ROW);
+            args.add(alert.getUserId());
+            args.add(alert.getAlertType());
+            args.add(alert.getUsagePercentage());
+            args.add(alert.getDataUsed());
+            args.add(alert.getDataLimit());
+            args.add(alert.getPhoneNumber());
+        }
+        sql.append(INSERT_SUFFIX);
+
+        // RETURNING order is not guaranteed, so ids are matched back by user (one alert per user per run)
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            ids.put(rs.getString("user_id"), rs.getLong("alert_id"));
+        }, args.toArray());
+        for (UsageAlert alert : chunk) {
+            alert.setAlertId(ids.get(alert.getUserId()));
+        }
+    }
+}
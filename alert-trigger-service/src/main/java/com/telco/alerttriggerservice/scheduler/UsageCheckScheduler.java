@@ -1,5 +1,9 @@
 package com.telco.alerttriggerservice.scheduler;
 
+import com.telco.alerttriggerservice.model.UsageAlert;
+import com.telco.alerttriggerservice.repository.UsageAlertRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
@@ -7,13 +11,19 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 @Component
 public class UsageCheckScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(UsageCheckScheduler.class);
+    // usage_alerts.usage_percentage is DECIMAL(5,2)
+    private static final double MAX_STORED_PERCENTAGE = 999.99;
+
     private final RestTemplate restTemplate = new RestTemplate();
     private final KafkaTemplate<String, String> kafkaTemplate;
+    private final UsageAlertRepository usageAlertRepository;
 
     @Value("${user.service.base-url}")
     private String userServiceBaseUrl;
@@ -21,8 +31,10 @@ public class UsageCheckScheduler {
     @Value("${alert.threshold.percent}")
     private int thresholdPercent;
 
-    public UsageCheckScheduler(KafkaTemplate<String, String> kafkaTemplate) {
+    public UsageCheckScheduler(KafkaTemplate<String, String> kafkaTemplate,
+            UsageAlertRepository usageAlertRepository) {
         this.kafkaTemplate = kafkaTemplate;
+        this.usageAlertRepository = usageAlertRepository;
     }
 
     // Every 15 seconds
@@ -33,6 +45,7 @@ public class UsageCheckScheduler {
             List<Map<String, Object>> users = response.getBody();
             if (users == null)
                 return;
+            List<UsageAlert> alerts = new ArrayList<>();
             for (Map<String, Object> user : users) {
                 String userId = (String) user.get("userId");
                 String phone = (String) user.get("phoneNumber");
@@ -42,11 +55,26 @@ public class UsageCheckScheduler {
                     continue;
                 double percent = (usage.doubleValue() / Math.max(limit.doubleValue(), 1.0)) * 100.0;
                 if (percent >= thresholdPercent) {
-                    String msg = String.format("{\"userId\":\"%s\",\"phoneNumber\":\"%s\",\"percent\":%.0f}", userId,
-                            phone, percent);
-                    kafkaTemplate.send("sms-alerts", userId, msg);
+                    String alertType = usage.longValue() > limit.longValue() ? "OVER_LIMIT" : "THRESHOLD";
+                    alerts.add(new UsageAlert(userId, alertType, Math.min(percent, MAX_STORED_PERCENTAGE),
+                            usage.longValue(), limit.longValue(), phone));
                 }
             }
+            if (alerts.isEmpty())
+                return;
+
+            // Record history in one round trip before emitting; SMS delivery still goes out if it fails
+            try {
+                usageAlertRepository.insertAll(alerts);
+            } catch (Exception e) {
+                logger.warn("Failed to persist {} usage alerts", alerts.size(), e);
+            }
+
+            for (UsageAlert alert : alerts) {
+                String msg = String.format("{\"alertId\":%s,\"userId\":\"%s\",\"phoneNumber\":\"%s\",\"percent\":%.0f}",
+                        alert.getAlertId(), alert.getUserId(), alert.getPhoneNumber(), alert.getUsagePercentage());
+                kafkaTemplate.send("sms-alerts", alert.getUserId(), msg);
+            }
         } catch (Exception ignored) {
         }
     }
@@ -1,15 +1,67 @@
 package com.telco.notificationservice.consumer;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.notificationservice.repository.UsageAlertStatusRepository;
+import com.telco.notificationservice.sms.SmsSender;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class AlertConsumer {
-    @KafkaListener(topics = "sms-alerts")
-    public void consume(ConsumerRecord<String, String> record) {
-        String key = record.key();
-        String value = record.value();
-        System.out.println("INFO: SMS sent to user " + key + ": " + value);
+    private static final Logger logger = LoggerFactory.getLogger(AlertConsumer.class);
+
+    private final ObjectMapper objectMapper;
+    private final UsageAlertStatusRepository usageAlertStatusRepository;
+    private final SmsSender smsSender;
+
+    public AlertConsumer(ObjectMapper objectMapper, UsageAlertStatusRepository usageAlertStatusRepository,
+            SmsSender smsSender) {
+        this.objectMapper = objectMapper;
+        this.usageAlertStatusRepository = usageAlertStatusRepository;
+        this.smsSender = smsSender;
+    }
+
+    // Status changes for a whole poll are applied with one UPDATE per outcome
+    @KafkaListener(topics = "sms-alerts", batch = "true")
+    public void consume(List<ConsumerRecord<String, String>> records) {
+        List<Long> sent = new ArrayList<>(records.size());
+        List<Long> failed = new ArrayList<>();
+        for (ConsumerRecord<String, String> record : records) {
+            String key = record.key();
+            String value = record.value();
+            Long alertId = parseAlertId(value);
+            try {
+                smsSender.send(key, value);
+                if (alertId != null)
+                    sent.add(alertId);
+            } catch (Exception e) {
+                logger.error("Failed to send SMS to user {}", key, e);
+                if (alertId != null)
+                    failed.add(alertId);
+            }
+        }
+
+        try {
+            usageAlertStatusRepository.markSent(sent);
+            usageAlertStatusRepository.markFailed(failed);
+        } catch (Exception e) {
+            logger.error("Failed to update status for {} usage alerts", sent.size() + failed.size(), e);
+        }
+    }
+
+    private Long parseAlertId(String value) {
+        try {
+            JsonNode alertId = objectMapper.readTree(value).get("alertId");
+            return alertId != null && alertId.canConvertToLong() ? alertId.asLong() : null;
+        } catch (Exception e) {
+            return null;
+        }
     }
 }
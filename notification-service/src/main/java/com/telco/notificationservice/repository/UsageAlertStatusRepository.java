@@ -0,0 +1,42 @@
+package com.telco.notificationservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+@Repository
+public class UsageAlertStatusRepository {
+    // Only PENDING alerts transition, so redelivered messages cannot flip a final status
+    private static final String MARK_SENT = "UPDATE usage_alerts SET alert_status = 'SENT', sent_at = CURRENT_TIMESTAMP "
+            + "WHERE alert_id = ANY(?) AND alert_status = 'PENDING'";
+    private static final String MARK_FAILED = "UPDATE usage_alerts SET alert_status = 'FAILED' "
+            + "WHERE alert_id = ANY(?) AND alert_status = 'PENDING'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsageAlertStatusRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int markSent(List<Long> alertIds) {
+        return updateAll(MARK_SENT, alertIds);
+    }
+
+    public int markFailed(List<Long> alertIds) {
+        return updateAll(MARK_FAILED, alertIds);
+    }
+
+    private int updateAll(String sql, List<Long> alertIds) {
+        if (alertIds.isEmpty())
+            return 0;
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            Array ids = con.createArrayOf("bigint", alertIds.toArray());
+            ps.setArray(1, ids);
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.telco.notificationservice.sms;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+// No SMS gateway is wired in yet, messages are only logged
+@Component
+public class LoggingSmsSender implements SmsSender {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingSmsSender.class);
+
+    @Override
+    public void send(String recipient, String message) {
+        logger.info("SMS sent to user {}: {}", recipient, message);
+    }
+}
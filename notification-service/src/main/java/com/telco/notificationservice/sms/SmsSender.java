@@ -0,0 +1,9 @@
+package com.telco.notificationservice.sms;
+
+/**
+ * Delivers one SMS. Implementations throw when the message could not be handed to the
+ * gateway, so the caller can record the alert as failed.
+ */
+public interface SmsSender {
+    void send(String recipient, String message);
+}
@@ -0,0 +1,159 @@
+package com.telco.userservice.audit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.mapper.UserAuditMapper;
+import com.telco.userservice.model.User;
+import com.telco.userservice.model.UserAudit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write paths enqueue audit records after commit; a background flush drains them into
+ * user_audit with multi-row inserts. When the bounded queue is full records are dropped
+ * and counted instead of blocking the request.
+ */
+@Component
+public class UserAuditWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserAuditWriter.class);
+    private static final String CHANGED_BY = "user-service";
+
+    private final UserAuditMapper userAuditMapper;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentLinkedQueue<UserAudit> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final int capacity;
+    private final int batchSize;
+
+    private final Counter enqueuedCounter;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Timer flushTimer;
+
+    public UserAuditWriter(UserAuditMapper userAuditMapper,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${audit.queue.capacity:10000}") int capacity,
+            @Value("${audit.batch.size:500}") int batchSize) {
+        this.userAuditMapper = userAuditMapper;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+
+        this.enqueuedCounter = Counter.builder("user.audit.enqueued.total")
+                .description("Audit records accepted onto the write queue")
+                .register(meterRegistry);
+
+        this.writtenCounter = Counter.builder("user.audit.written.total")
+                .description("Audit records persisted to user_audit")
+                .register(meterRegistry);
+
+        this.droppedCounter = Counter.builder("user.audit.dropped.total")
+                .description("Audit records dropped because the queue was full or the insert failed")
+                .register(meterRegistry);
+
+        this.flushTimer = Timer.builder("user.audit.flush.duration")
+                .description("Latency of a single multi-row audit insert")
+                .register(meterRegistry);
+
+        Gauge.builder("user.audit.queue.depth", depth, AtomicInteger::get)
+                .description("Audit records waiting to be flushed")
+                .register(meterRegistry);
+    }
+
+    public void recordInsert(User newUser) {
+        enqueue(new UserAudit(newUser.getUserId(), "INSERT", null, toJson(newUser), CHANGED_BY));
+    }
+
+    public void recordUpdate(User oldUser, User newUser) {
+        enqueue(new UserAudit(newUser.getUserId(), "UPDATE", toJson(oldUser), toJson(newUser), CHANGED_BY));
+    }
+
+    public void recordDelete(User oldUser) {
+        enqueue(new UserAudit(oldUser.getUserId(), "DELETE", toJson(oldUser), null, CHANGED_BY));
+    }
+
+    private void enqueue(UserAudit record) {
+        // Only audit changes that actually commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(record);
+                }
+            });
+        } else {
+            offer(record);
+        }
+    }
+
+    boolean offer(UserAudit record) {
+        if (depth.incrementAndGet() > capacity) {
+            depth.decrementAndGet();
+            droppedCounter.increment();
+            return false;
+        }
+        queue.offer(record);
+        enqueuedCounter.increment();
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${audit.flush.interval-ms:500}")
+    public void flush() {
+        while (true) {
+            List<UserAudit> batch = new ArrayList<>(batchSize);
+            UserAudit record;
+            while (batch.size() < batchSize && (record = queue.poll()) != null) {
+                depth.decrementAndGet();
+                batch.add(record);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                flushTimer.record(() -> userAuditMapper.insertBatch(batch));
+                writtenCounter.increment(batch.size());
+            } catch (Exception e) {
+                // Do not requeue: a poisoned batch would otherwise block the pipeline
+                droppedCounter.increment(batch.size());
+                logger.error("Failed to write {} audit records", batch.size(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    private String toJson(User user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to serialize user {} for audit", user.getUserId(), e);
+            return null;
+        }
+    }
+}
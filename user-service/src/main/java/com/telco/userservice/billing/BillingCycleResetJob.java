@@ -0,0 +1,257 @@
+package com.telco.userservice.billing;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resets every subscriber's usage at the billing-cycle boundary. The users table is walked
+ * in user_id key ranges, one transaction per chunk, so no single statement locks the table
+ * or produces a burst of WAL. Progress is checkpointed per chunk and a run interrupted by a
+ * restart resumes from the last committed user_id.
+ */
+@Component
+public class BillingCycleResetJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillingCycleResetJob.class);
+    private static final String USERS_CACHE = "users";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final Executor executor;
+    private final int chunkSize;
+    private final Bucket throttle;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong usersResetInRun = new AtomicLong();
+
+    private final Counter usersResetCounter;
+    private final Counter alertsCancelledCounter;
+    private final Counter chunksCounter;
+    private final Timer chunkTimer;
+
+    public BillingCycleResetJob(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            CacheManager cacheManager,
+            @Qualifier("virtualThreadExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${billing.reset.chunk-size:1000}") int chunkSize,
+            @Value("${billing.reset.rows-per-second:5000}") int rowsPerSecond) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+
+        // A whole chunk must fit in the bucket or consume() would never return
+        Refill refill = Refill.greedy(rowsPerSecond, Duration.ofSeconds(1));
+        this.throttle = Bucket4j.builder()
+                .addLimit(Bandwidth.classic(Math.max(rowsPerSecond, chunkSize), refill))
+                .build();
+
+        this.usersResetCounter = Counter.builder("billing.reset.users.total")
+                .description("Users whose usage was reset at a billing-cycle boundary")
+                .register(meterRegistry);
+
+        this.alertsCancelledCounter = Counter.builder("billing.reset.alerts.cancelled.total")
+                .description("Pending usage alerts cancelled by the billing-cycle reset")
+                .register(meterRegistry);
+
+        this.chunksCounter = Counter.builder("billing.reset.chunks.total")
+                .description("Billing reset chunks committed")
+                .register(meterRegistry);
+
+        this.chunkTimer = Timer.builder("billing.reset.chunk.duration")
+                .description("Time to reset a single chunk of users")
+                .register(meterRegistry);
+
+        Gauge.builder("billing.reset.running", running, r -> r.get() ? 1 : 0)
+                .description("Whether a billing reset is running on this instance")
+                .register(meterRegistry);
+
+        Gauge.builder("billing.reset.run.users", usersResetInRun, AtomicLong::get)
+                .description("Users reset by the current or last run on this instance")
+                .register(meterRegistry);
+    }
+
+    // Resume off the startup thread, a full run can take a while
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        executor.execute(this::resumeInterruptedCycles);
+    }
+
+    @Scheduled(cron = "${billing.reset.cron:0 0 0 1 * *}")
+    public void resetCurrentCycle() {
+        YearMonth cycle = YearMonth.now();
+        jdbcTemplate.update(
+                "INSERT INTO billing_reset_checkpoint (cycle_id, cycle_start) VALUES (?, ?) " +
+                        "ON CONFLICT (cycle_id) DO NOTHING",
+                cycle.toString(), Timestamp.valueOf(cycle.atDay(1).atStartOfDay()));
+        runCycle(cycle.toString());
+    }
+
+    public void resumeInterruptedCycles() {
+        try {
+            List<String> cycles = jdbcTemplate.queryForList(
+                    "SELECT cycle_id FROM billing_reset_checkpoint WHERE status = 'IN_PROGRESS' ORDER BY cycle_id",
+                    String.class);
+            for (String cycleId : cycles) {
+                logger.info("Resuming interrupted billing reset for cycle {}", cycleId);
+                runCycle(cycleId);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to resume interrupted billing resets", e);
+        }
+    }
+
+    void runCycle(String cycleId) {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Billing reset already running on this instance, skipping cycle {}", cycleId);
+            return;
+        }
+
+        usersResetInRun.set(0);
+        long start = System.currentTimeMillis();
+        try {
+            while (true) {
+                throttle.asBlocking().consume(chunkSize);
+
+                long chunkStart = System.nanoTime();
+                ChunkResult result = transactionTemplate.execute(status -> resetNextChunk(cycleId));
+                if (result == null || result.finished) {
+                    break;
+                }
+                chunkTimer.record(Duration.ofNanos(System.nanoTime() - chunkStart));
+
+                // Only after commit, otherwise a reader could re-cache the old usage
+                evictUsers(result.resetUserIds);
+
+                chunksCounter.increment();
+                usersResetCounter.increment(result.resetUserIds.size());
+                alertsCancelledCounter.increment(result.alertsCancelled);
+                usersResetInRun.addAndGet(result.resetUserIds.size());
+                logger.debug("Billing reset {} chunk up to {}: {} users, {} alerts cancelled",
+                        cycleId, result.upperUserId, result.resetUserIds.size(), result.alertsCancelled);
+            }
+            logger.info("Billing reset for cycle {} completed: {} users reset in {} ms",
+                    cycleId, usersResetInRun.get(), System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Billing reset for cycle {} interrupted, it will resume on next start", cycleId);
+        } catch (Exception e) {
+            logger.error("Billing reset for cycle {} failed, it will resume from the last checkpoint", cycleId, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ChunkResult resetNextChunk(String cycleId) {
+        // Row lock on the checkpoint serializes chunks across replicas
+        List<Map<String, Object>> checkpoint = jdbcTemplate.queryForList(
+                "SELECT status, last_user_id, cycle_start FROM billing_reset_checkpoint " +
+                        "WHERE cycle_id = ? FOR UPDATE",
+                cycleId);
+        if (checkpoint.isEmpty() || "COMPLETED".equals(checkpoint.get(0).get("status"))) {
+            return ChunkResult.FINISHED;
+        }
+
+        String lastUserId = (String) checkpoint.get(0).get("last_user_id");
+        Timestamp cycleStart = (Timestamp) checkpoint.get(0).get("cycle_start");
+        String lowerUserId = lastUserId != null ? lastUserId : "";
+
+        List<String> chunk = jdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                String.class, lowerUserId, chunkSize);
+        if (chunk.isEmpty()) {
+            jdbcTemplate.update(
+                    "UPDATE billing_reset_checkpoint SET status = 'COMPLETED', " +
+                            "completed_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP WHERE cycle_id = ?",
+                    cycleId);
+            return ChunkResult.FINISHED;
+        }
+        String upperUserId = chunk.get(chunk.size() - 1);
+
+        // Skip rows already at zero to avoid needless row versions
+        List<String> resetUserIds = jdbcTemplate.queryForList(
+                "UPDATE users SET current_usage = 0, updated_at = CURRENT_TIMESTAMP " +
+                        "WHERE user_id > ? AND user_id <= ? AND current_usage <> 0 RETURNING user_id",
+                String.class, lowerUserId, upperUserId);
+
+        int alertsCancelled = jdbcTemplate.update(
+                "UPDATE usage_alerts SET alert_status = 'CANCELLED' " +
+                        "WHERE alert_status = 'PENDING' AND user_id > ? AND user_id <= ? AND created_at < ?",
+                lowerUserId, upperUserId, cycleStart);
+
+        jdbcTemplate.update(
+                "UPDATE billing_reset_checkpoint SET last_user_id = ?, chunks_completed = chunks_completed + 1, " +
+                        "users_reset = users_reset + ?, alerts_cancelled = alerts_cancelled + ?, " +
+                        "updated_at = CURRENT_TIMESTAMP WHERE cycle_id = ?",
+                upperUserId, resetUserIds.size(), alertsCancelled, cycleId);
+
+        return new ChunkResult(false, upperUserId, resetUserIds, alertsCancelled);
+    }
+
+    private void evictUsers(List<String> userIds) {
+        Cache cache = cacheManager.getCache(USERS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        try {
+            for (String userId : userIds) {
+                cache.evict(userId);
+            }
+            cache.evict("all");
+        } catch (Exception e) {
+            // Entries expire on their own TTL, a failed eviction must not stop the reset
+            logger.warn("Failed to evict {} users from cache during billing reset", userIds.size(), e);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private static class ChunkResult {
+        private static final ChunkResult FINISHED = new ChunkResult(true, null, List.of(), 0);
+
+        private final boolean finished;
+        private final String upperUserId;
+        private final List<String> resetUserIds;
+        private final int alertsCancelled;
+
+        ChunkResult(boolean finished, String upperUserId, List<String> resetUserIds, int alertsCancelled) {
+            this.finished = finished;
+            this.upperUserId = upperUserId;
+            this.resetUserIds = resetUserIds;
+            this.alertsCancelled = alertsCancelled;
+        }
+    }
+}
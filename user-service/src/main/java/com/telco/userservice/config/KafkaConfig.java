@@ -0,0 +1,30 @@
+package com.telco.userservice.config;
+
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+@Configuration
+public class KafkaConfig {
+
+    // Batch listener for saga-events; offsets are committed only when the listener acknowledges
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> sagaBatchListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            SagaPartitionOwnership sagaPartitionOwnership,
+            @Value("${saga.consumer.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        // One consumer per saga-events partition; extra consumers would sit idle
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Sagas follow their partition between replicas
+        factory.getContainerProperties().setConsumerRebalanceListener(sagaPartitionOwnership.rebalanceListener());
+        return factory;
+    }
+}
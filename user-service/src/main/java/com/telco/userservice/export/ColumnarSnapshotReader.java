@@ -0,0 +1,138 @@
+package com.telco.userservice.export;
+
+import com.telco.userservice.export.ColumnarSnapshotWriter.Column;
+import com.telco.userservice.export.ColumnarSnapshotWriter.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads files produced by {@link ColumnarSnapshotWriter}. Only the footer and the
+ * chunks of the requested column are read from disk.
+ */
+public class ColumnarSnapshotReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<Column> schema = new ArrayList<>();
+    private final List<Integer> rowGroupRows = new ArrayList<>();
+    private final List<long[]> chunkOffsets = new ArrayList<>();
+    private final List<int[]> chunkLengths = new ArrayList<>();
+    private final long rowCount;
+
+    public ColumnarSnapshotReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        byte[] magic = ColumnarSnapshotWriter.MAGIC;
+
+        ByteBuffer tail = read(size - 4 - magic.length, 4 + magic.length);
+        int footerLength = tail.getInt();
+        byte[] trailingMagic = new byte[magic.length];
+        tail.get(trailingMagic);
+        if (!Arrays.equals(magic, trailingMagic)) {
+            throw new IOException("Not a columnar snapshot file: " + file);
+        }
+
+        ByteBuffer footerBuffer = read(size - 4 - magic.length - footerLength, footerLength);
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBuffer.array()));
+        int version = footer.readInt();
+        if (version != ColumnarSnapshotWriter.FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version: " + version);
+        }
+        int columns = footer.readInt();
+        for (int i = 0; i < columns; i++) {
+            String name = footer.readUTF();
+            schema.add(new Column(name, ColumnType.values()[footer.readByte()]));
+        }
+        this.rowCount = footer.readLong();
+        int rowGroups = footer.readInt();
+        for (int g = 0; g < rowGroups; g++) {
+            rowGroupRows.add(footer.readInt());
+            long[] offsets = new long[columns];
+            int[] lengths = new int[columns];
+            for (int i = 0; i < columns; i++) {
+                offsets[i] = footer.readLong();
+                lengths[i] = footer.readInt();
+                footer.readLong(); // min
+                footer.readLong(); // max
+            }
+            chunkOffsets.add(offsets);
+            chunkLengths.add(lengths);
+        }
+    }
+
+    public List<Column> getSchema() {
+        return schema;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRowGroupCount() {
+        return rowGroupRows.size();
+    }
+
+    // Returns String or Long values (null where absent) for every row of the column
+    public List<Object> readColumn(String name) throws IOException {
+        int column = -1;
+        for (int i = 0; i < schema.size(); i++) {
+            if (schema.get(i).getName().equals(name)) {
+                column = i;
+            }
+        }
+        if (column < 0) {
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+
+        List<Object> values = new ArrayList<>((int) rowCount);
+        for (int g = 0; g < rowGroupRows.size(); g++) {
+            ByteBuffer chunk = read(chunkOffsets.get(g)[column], chunkLengths.get(g)[column]);
+            try (DataInputStream in = new DataInputStream(
+                    new GZIPInputStream(new ByteArrayInputStream(chunk.array())))) {
+                int rows = in.readInt();
+                byte[] bitmap = new byte[in.readInt()];
+                in.readFully(bitmap);
+                BitSet nulls = BitSet.valueOf(bitmap);
+                for (int r = 0; r < rows; r++) {
+                    if (schema.get(column).getType() == ColumnType.STRING) {
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        values.add(nulls.get(r) ? null : new String(bytes, StandardCharsets.UTF_8));
+                    } else {
+                        long value = in.readLong();
+                        values.add(nulls.get(r) ? null : value);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,353 @@
+package com.telco.userservice.export;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes rows into a column-chunked snapshot file (Parquet-like layout):
+ *
+ * <pre>
+ * "TCOL" | row group 0: chunk(col 0) .. chunk(col n) | row group 1 ... | footer | footer length | "TCOL"
+ * </pre>
+ *
+ * Each chunk holds one column of one row group as a null bitmap followed by the
+ * values, gzip-compressed independently so readers can fetch only the columns they
+ * need. The footer records the schema and the offset, length and min/max statistics
+ * of every chunk.
+ */
+public class ColumnarSnapshotWriter implements Closeable {
+
+    static final byte[] MAGIC = "TCOL".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+
+    public enum ColumnType {
+        STRING, INT64
+    }
+
+    public static class Column {
+        private final String name;
+        private final ColumnType type;
+
+        public Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+    }
+
+    private final List<Column> schema;
+    private final int rowGroupSize;
+    private final MessageDigest digest;
+    private final DataOutputStream out;
+    private final ColumnBuffer[] buffers;
+    private final List<RowGroupMeta> rowGroups = new ArrayList<>();
+    private final ColumnStats[] stats;
+
+    private long position;
+    private long rowCount;
+    private String sha256;
+    private int bufferedRows;
+    private boolean closed;
+
+    public ColumnarSnapshotWriter(Path file, List<Column> schema, int rowGroupSize) throws IOException {
+        this.schema = List.copyOf(schema);
+        this.rowGroupSize = rowGroupSize;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        this.out = new DataOutputStream(new DigestOutputStream(fileOut, digest));
+
+        this.buffers = new ColumnBuffer[schema.size()];
+        this.stats = new ColumnStats[schema.size()];
+        for (int i = 0; i < schema.size(); i++) {
+            buffers[i] = schema.get(i).getType() == ColumnType.STRING
+                    ? new StringColumnBuffer(rowGroupSize)
+                    : new LongColumnBuffer(rowGroupSize);
+            stats[i] = new ColumnStats();
+        }
+
+        out.write(MAGIC);
+        position = MAGIC.length;
+    }
+
+    // Values must follow the schema order: String for STRING, Long (or null) for INT64
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException("Expected " + schema.size() + " values but got " + values.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            buffers[i].append(values[i]);
+            stats[i].update(values[i]);
+        }
+        bufferedRows++;
+        rowCount++;
+        if (bufferedRows == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (bufferedRows == 0) {
+            return;
+        }
+        RowGroupMeta rowGroup = new RowGroupMeta(bufferedRows, schema.size());
+        for (int i = 0; i < buffers.length; i++) {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            try (DataOutputStream chunk = new DataOutputStream(new GZIPOutputStream(raw))) {
+                buffers[i].encode(chunk, bufferedRows);
+            }
+            byte[] bytes = raw.toByteArray();
+            rowGroup.offsets[i] = position;
+            rowGroup.lengths[i] = bytes.length;
+            rowGroup.minValues[i] = buffers[i].min();
+            rowGroup.maxValues[i] = buffers[i].max();
+            out.write(bytes);
+            position += bytes.length;
+            buffers[i].reset();
+        }
+        rowGroups.add(rowGroup);
+        bufferedRows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushRowGroup();
+
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+            footer.writeInt(FORMAT_VERSION);
+            footer.writeInt(schema.size());
+            for (Column column : schema) {
+                footer.writeUTF(column.getName());
+                footer.writeByte(column.getType().ordinal());
+            }
+            footer.writeLong(rowCount);
+            footer.writeInt(rowGroups.size());
+            for (RowGroupMeta rowGroup : rowGroups) {
+                footer.writeInt(rowGroup.rowCount);
+                for (int i = 0; i < schema.size(); i++) {
+                    footer.writeLong(rowGroup.offsets[i]);
+                    footer.writeInt(rowGroup.lengths[i]);
+                    footer.writeLong(rowGroup.minValues[i]);
+                    footer.writeLong(rowGroup.maxValues[i]);
+                }
+            }
+            footer.flush();
+
+            out.write(footerBytes.toByteArray());
+            out.writeInt(footerBytes.size());
+            out.write(MAGIC);
+        } finally {
+            out.close();
+            sha256 = HexFormat.of().formatHex(digest.digest());
+        }
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRowGroupCount() {
+        return rowGroups.size();
+    }
+
+    public List<Column> getSchema() {
+        return schema;
+    }
+
+    public ColumnStats getColumnStats(int column) {
+        return stats[column];
+    }
+
+    // Only valid after close()
+    public String getSha256() {
+        return sha256;
+    }
+
+    public static class ColumnStats {
+        private long nullCount;
+        private Long min;
+        private Long max;
+
+        void update(Object value) {
+            if (value == null) {
+                nullCount++;
+            } else if (value instanceof Long) {
+                long v = (Long) value;
+                min = min == null ? v : Math.min(min, v);
+                max = max == null ? v : Math.max(max, v);
+            }
+        }
+
+        public long getNullCount() {
+            return nullCount;
+        }
+
+        public Long getMin() {
+            return min;
+        }
+
+        public Long getMax() {
+            return max;
+        }
+    }
+
+    private static class RowGroupMeta {
+        private final int rowCount;
+        private final long[] offsets;
+        private final int[] lengths;
+        private final long[] minValues;
+        private final long[] maxValues;
+
+        RowGroupMeta(int rowCount, int columns) {
+            this.rowCount = rowCount;
+            this.offsets = new long[columns];
+            this.lengths = new int[columns];
+            this.minValues = new long[columns];
+            this.maxValues = new long[columns];
+        }
+    }
+
+    private abstract static class ColumnBuffer {
+        protected final BitSet nulls = new BitSet();
+        protected int size;
+
+        abstract void append(Object value);
+
+        abstract void encodeValues(DataOutputStream out) throws IOException;
+
+        long min() {
+            return 0L;
+        }
+
+        long max() {
+            return 0L;
+        }
+
+        void encode(DataOutputStream out, int rows) throws IOException {
+            byte[] bitmap = nulls.toByteArray();
+            out.writeInt(rows);
+            out.writeInt(bitmap.length);
+            out.write(bitmap);
+            encodeValues(out);
+        }
+
+        void reset() {
+            nulls.clear();
+            size = 0;
+        }
+    }
+
+    private static class StringColumnBuffer extends ColumnBuffer {
+        private final List<String> values;
+
+        StringColumnBuffer(int capacity) {
+            this.values = new ArrayList<>(capacity);
+        }
+
+        @Override
+        void append(Object value) {
+            if (value == null) {
+                nulls.set(size);
+            }
+            values.add((String) value);
+            size++;
+        }
+
+        @Override
+        void encodeValues(DataOutputStream out) throws IOException {
+            for (String value : values) {
+                if (value == null) {
+                    out.writeInt(0);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            values.clear();
+        }
+    }
+
+    private static class LongColumnBuffer extends ColumnBuffer {
+        private final long[] values;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        LongColumnBuffer(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void append(Object value) {
+            if (value == null) {
+                nulls.set(size);
+            } else {
+                long v = (Long) value;
+                values[size] = v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            size++;
+        }
+
+        @Override
+        void encodeValues(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(values[i]);
+            }
+        }
+
+        @Override
+        long min() {
+            return min;
+        }
+
+        @Override
+        long max() {
+            return max;
+        }
+
+        @Override
+        void reset() {
+            super.reset();
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.telco.userservice.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.export.ColumnarSnapshotWriter.Column;
+import com.telco.userservice.export.ColumnarSnapshotWriter.ColumnStats;
+import com.telco.userservice.export.ColumnarSnapshotWriter.ColumnType;
+import com.telco.userservice.mapper.UserMapper;
+import com.telco.userservice.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically streams the users table through a server-side cursor into a compressed
+ * columnar snapshot on local disk, so analytical scans run against files instead of
+ * the OLTP primary. Each snapshot is published by writing its manifest last.
+ */
+@Component
+public class SubscriberSnapshotExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriberSnapshotExporter.class);
+    private static final String SNAPSHOT_PREFIX = "users-";
+    private static final String DATA_SUFFIX = ".tcol";
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
+    private static final DateTimeFormatter SNAPSHOT_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+    // Only one replica exports a given schedule tick
+    private static final long EXPORT_LOCK_KEY = 0x7465_6c63_6f65_7870L;
+
+    private static final List<Column> USERS_SCHEMA = List.of(
+            new Column("user_id", ColumnType.STRING),
+            new Column("phone_number", ColumnType.STRING),
+            new Column("data_plan_limit", ColumnType.INT64),
+            new Column("current_usage", ColumnType.INT64),
+            new Column("created_at", ColumnType.INT64),
+            new Column("updated_at", ColumnType.INT64));
+
+    private final UserMapper userMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path snapshotDir;
+    private final int rowGroupSize;
+    private final int retainedSnapshots;
+
+    private final Timer exportTimer;
+    private final Counter exportedRowsCounter;
+    private final Counter exportFailureCounter;
+
+    public SubscriberSnapshotExporter(UserMapper userMapper,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${export.snapshot.dir:/var/lib/telco/snapshots}") String snapshotDir,
+            @Value("${export.snapshot.row-group-size:65536}") int rowGroupSize,
+            @Value("${export.snapshot.retained:7}") int retainedSnapshots) {
+        this.userMapper = userMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.snapshotDir = Paths.get(snapshotDir);
+        this.rowGroupSize = rowGroupSize;
+        this.retainedSnapshots = retainedSnapshots;
+
+        this.exportTimer = Timer.builder("export.snapshot.duration")
+                .description("Time to export a full subscriber snapshot")
+                .register(meterRegistry);
+
+        this.exportedRowsCounter = Counter.builder("export.snapshot.rows.total")
+                .description("Rows written to subscriber snapshots")
+                .register(meterRegistry);
+
+        this.exportFailureCounter = Counter.builder("export.snapshot.failed.total")
+                .description("Subscriber snapshot exports that failed")
+                .register(meterRegistry);
+    }
+
+    // Read-only transaction keeps the cursor open and gives the export a consistent view
+    @Scheduled(cron = "${export.snapshot.cron:0 0 3 * * *}")
+    @Transactional(readOnly = true)
+    public void exportSnapshot() {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class,
+                EXPORT_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.debug("Subscriber snapshot export is running on another instance");
+            return;
+        }
+
+        try {
+            Path manifest = exportTimer.recordCallable(this::writeSnapshot);
+            logger.info("Exported subscriber snapshot: {}", manifest);
+            pruneSnapshots();
+        } catch (Exception e) {
+            exportFailureCounter.increment();
+            logger.error("Failed to export subscriber snapshot", e);
+        }
+    }
+
+    private Path writeSnapshot() throws IOException {
+        Files.createDirectories(snapshotDir);
+        Instant createdAt = Instant.now();
+        String snapshotId = SNAPSHOT_PREFIX + SNAPSHOT_ID_FORMAT.format(createdAt);
+        Path dataFile = snapshotDir.resolve(snapshotId + DATA_SUFFIX);
+        Path tempDataFile = snapshotDir.resolve(snapshotId + DATA_SUFFIX + ".tmp");
+
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(tempDataFile, USERS_SCHEMA, rowGroupSize);
+        try (Cursor<User> cursor = userMapper.scanAll(); writer) {
+            for (User user : cursor) {
+                writer.writeRow(user.getUserId(), user.getPhoneNumber(), user.getDataPlanLimit(),
+                        user.getCurrentUsage(), toEpochMillis(user.getCreatedAt()), toEpochMillis(user.getUpdatedAt()));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempDataFile);
+            throw e;
+        }
+        Files.move(tempDataFile, dataFile, StandardCopyOption.ATOMIC_MOVE);
+        exportedRowsCounter.increment(writer.getRowCount());
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("snapshotId", snapshotId);
+        manifest.put("table", "users");
+        manifest.put("createdAt", createdAt.toString());
+        manifest.put("format", "tcol/" + ColumnarSnapshotWriter.FORMAT_VERSION);
+        manifest.put("compression", "gzip");
+        manifest.put("timestampEncoding", "epoch-millis-utc");
+        manifest.put("dataFile", dataFile.getFileName().toString());
+        manifest.put("sizeBytes", Files.size(dataFile));
+        manifest.put("sha256", writer.getSha256());
+        manifest.put("rowCount", writer.getRowCount());
+        manifest.put("rowGroupSize", rowGroupSize);
+        manifest.put("rowGroups", writer.getRowGroupCount());
+        List<Map<String, Object>> columns = new ArrayList<>();
+        for (int i = 0; i < USERS_SCHEMA.size(); i++) {
+            ColumnStats stats = writer.getColumnStats(i);
+            Map<String, Object> column = new LinkedHashMap<>();
+            column.put("name", USERS_SCHEMA.get(i).getName());
+            column.put("type", USERS_SCHEMA.get(i).getType().name());
+            column.put("nullCount", stats.getNullCount());
+            column.put("min", stats.getMin());
+            column.put("max", stats.getMax());
+            columns.add(column);
+        }
+        manifest.put("columns", columns);
+
+        Path manifestFile = snapshotDir.resolve(snapshotId + MANIFEST_SUFFIX);
+        Path tempManifestFile = snapshotDir.resolve(snapshotId + MANIFEST_SUFFIX + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(tempManifestFile.toFile(), manifest);
+        Files.move(tempManifestFile, manifestFile, StandardCopyOption.ATOMIC_MOVE);
+        return manifestFile;
+    }
+
+    private void pruneSnapshots() throws IOException {
+        List<Path> manifests = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(snapshotDir,
+                SNAPSHOT_PREFIX + "*" + MANIFEST_SUFFIX)) {
+            stream.forEach(manifests::add);
+        }
+        // Snapshot ids sort chronologically
+        manifests.sort(Collections.reverseOrder());
+        for (Path manifest : manifests.subList(Math.min(retainedSnapshots, manifests.size()), manifests.size())) {
+            String fileName = manifest.getFileName().toString();
+            String snapshotId = fileName.substring(0, fileName.length() - MANIFEST_SUFFIX.length());
+            // Remove the manifest first so readers never see a manifest without its data
+            Files.deleteIfExists(manifest);
+            Files.deleteIfExists(snapshotDir.resolve(snapshotId + DATA_SUFFIX));
+            logger.info("Removed expired subscriber snapshot: {}", snapshotId);
+        }
+    }
+
+    private static Long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp == null ? null : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
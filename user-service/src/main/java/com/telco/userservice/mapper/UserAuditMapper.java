@@ -0,0 +1,22 @@
+package com.telco.userservice.mapper;
+
+import com.telco.userservice.model.UserAudit;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface UserAuditMapper {
+
+    // Multi-row insert so a whole flush costs a single round trip
+    @Insert({ "<script>",
+            "INSERT INTO user_audit (user_id, action, old_data, new_data, changed_by, changed_at) VALUES ",
+            "<foreach collection='records' item='r' separator=','>",
+            "(#{r.userId}, #{r.action}, CAST(#{r.oldData,jdbcType=VARCHAR} AS JSONB), ",
+            "CAST(#{r.newData,jdbcType=VARCHAR} AS JSONB), #{r.changedBy}, #{r.changedAt})",
+            "</foreach>",
+            "</script>" })
+    int insertBatch(@Param("records") List<UserAudit> records);
+}
@@ -2,6 +2,7 @@ package com.telco.userservice.mapper;
 
 import com.telco.userservice.model.User;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 import java.util.Optional;
@@ -57,6 +58,20 @@ public interface UserMapper {
     })
     List<User> findUsersAboveThreshold(@Param("threshold") double threshold);
 
+    // Streams the whole table in primary key order; must be consumed inside a transaction
+    @Select("SELECT user_id, phone_number, data_plan_limit, current_usage, created_at, updated_at " +
+            "FROM users ORDER BY user_id")
+    @Results({
+            @Result(property = "userId", column = "user_id"),
+            @Result(property = "phoneNumber", column = "phone_number"),
+            @Result(property = "dataPlanLimit", column = "data_plan_limit"),
+            @Result(property = "currentUsage", column = "current_usage"),
+            @Result(property = "createdAt", column = "created_at"),
+            @Result(property = "updatedAt", column = "updated_at")
+    })
+    @Options(fetchSize = 5000)
+    Cursor<User> scanAll();
+
     @Insert("INSERT INTO users (user_id, phone_number, data_plan_limit, current_usage) " +
             "VALUES (#{userId}, #{phoneNumber}, #{dataPlanLimit}, #{currentUsage})")
     int insert(User user);
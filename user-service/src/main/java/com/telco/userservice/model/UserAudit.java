@@ -0,0 +1,75 @@
+package com.telco.userservice.model;
+
+import java.time.LocalDateTime;
+
+public class UserAudit {
+
+    private String userId;
+    private String action;
+    private String oldData;
+    private String newData;
+    private String changedBy;
+    private LocalDateTime changedAt;
+
+    // Constructors
+    public UserAudit() {
+    }
+
+    public UserAudit(String userId, String action, String oldData, String newData, String changedBy) {
+        this.userId = userId;
+        this.action = action;
+        this.oldData = oldData;
+        this.newData = newData;
+        this.changedBy = changedBy;
+        this.changedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getOldData() {
+        return oldData;
+    }
+
+    public void setOldData(String oldData) {
+        this.oldData = oldData;
+    }
+
+    public String getNewData() {
+        return newData;
+    }
+
+    public void setNewData(String newData) {
+        this.newData = newData;
+    }
+
+    public String getChangedBy() {
+        return changedBy;
+    }
+
+    public void setChangedBy(String changedBy) {
+        this.changedBy = changedBy;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(LocalDateTime changedAt) {
+        this.changedAt = changedAt;
+    }
+}
@@ -0,0 +1,277 @@
+package com.telco.userservice.outbox;
+
+import com.telco.userservice.saga.event.SagaEventHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes outbox rows to Kafka in id order per aggregate and deletes them once the broker
+ * has acknowledged them. A dedicated connection LISTENs for the insert trigger so events go out
+ * as soon as their transaction commits; a slow poll covers missed notifications. Delivery is
+ * at-least-once: a crash between send and delete republishes the batch. No transaction is
+ * open while waiting for the broker; a session advisory lock keeps other replicas out.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final String CHANNEL = "outbox";
+    private static final long RECONNECT_BACKOFF_MS = 5000;
+    // Only one replica relays at a time, which keeps per-aggregate order
+    private static final long RELAY_LOCK_KEY = 0x7465_6c63_6f6f_7574L;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+    private final int listenTimeoutMs;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private volatile boolean running = true;
+    private Thread listener;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    public OutboxRelay(DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            KafkaTemplate<String, String> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${outbox.relay.batch-size:200}") int batchSize,
+            @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${outbox.relay.listen-timeout-ms:1000}") int listenTimeoutMs) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.listenTimeoutMs = listenTimeoutMs;
+
+        this.publishedCounter = Counter.builder("outbox.relay.published.total")
+                .description("Outbox events acknowledged by Kafka and deleted")
+                .register(meterRegistry);
+
+        this.failedCounter = Counter.builder("outbox.relay.failed.total")
+                .description("Outbox events whose publish failed and will be retried")
+                .register(meterRegistry);
+
+        this.batchTimer = Timer.builder("outbox.relay.batch.duration")
+                .description("Time to publish and delete one outbox batch")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        listener = new Thread(this::listen, "outbox-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    // Fallback for notifications lost while the listener was reconnecting
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:5000}")
+    public void poll() {
+        drain();
+    }
+
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            // The running drain picks this up before it returns
+            drainRequested.set(true);
+            return;
+        }
+        try {
+            do {
+                drainRequested.set(false);
+                jdbcTemplate.execute((ConnectionCallback<Void>) this::relayWhileLocked);
+            } while (drainRequested.get() && running);
+        } catch (Exception e) {
+            logger.error("Failed to relay outbox events", e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    // The lock lives on this connection's session, the batches run in short autocommit statements
+    private Void relayWhileLocked(Connection lockConnection) throws SQLException {
+        if (!advisoryLock(lockConnection, "pg_try_advisory_lock")) {
+            logger.debug("Outbox relay is running on another instance");
+            return null;
+        }
+        try {
+            int published;
+            do {
+                published = publishBatch();
+            } while (running && published == batchSize);
+        } finally {
+            advisoryLock(lockConnection, "pg_advisory_unlock");
+        }
+        return null;
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT " + function + "(" + RELAY_LOCK_KEY + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    // Returns the number of events published and deleted; 0 when any of the batch failed
+    private int publishBatch() {
+        List<OutboxEvent> batch = jdbcTemplate.query(
+                "SELECT id, aggregate_id, topic, event_type, event_id, payload FROM outbox ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new OutboxEvent(rs.getLong("id"), rs.getString("aggregate_id"), rs.getString("topic"),
+                        rs.getString("event_type"), rs.getString("event_id"), rs.getString("payload")),
+                batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        // The aggregate of a saga event is its saga
+        Map<String, Deque<OutboxEvent>> byAggregate = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            byAggregate.computeIfAbsent(event.aggregateId, id -> new ArrayDeque<>()).add(event);
+        }
+
+        // Each round sends the next row of every aggregate together, so an aggregate has one row in
+        // flight and its next row only goes out once the broker acknowledged the previous one. After
+        // a failure its remaining rows wait for a later batch, never overtaking the failed one
+        List<Long> published = new ArrayList<>(batch.size());
+        while (!byAggregate.isEmpty()) {
+            List<OutboxEvent> round = new ArrayList<>(byAggregate.size());
+            List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(byAggregate.size());
+            for (Deque<OutboxEvent> rows : byAggregate.values()) {
+                OutboxEvent event = rows.poll();
+                round.add(event);
+                sends.add(kafkaTemplate.send(new ProducerRecord<>(event.topic, null, event.aggregateId,
+                        event.payload, SagaEventHeaders.of(event.eventType, event.aggregateId, event.eventId))));
+            }
+            byAggregate.values().removeIf(Deque::isEmpty);
+
+            for (int i = 0; i < round.size(); i++) {
+                OutboxEvent event = round.get(i);
+                try {
+                    sends.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                    published.add(event.id);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    byAggregate.clear();
+                    break;
+                } catch (Exception e) {
+                    Deque<OutboxEvent> held = byAggregate.remove(event.aggregateId);
+                    failedCounter.increment(1 + (held != null ? held.size() : 0));
+                    logger.warn("Failed to publish outbox event {} ({}) for {}, retrying later", event.id,
+                            event.eventType, event.aggregateId, e);
+                }
+            }
+        }
+
+        if (!published.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM outbox WHERE id = ANY(?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", published.toArray())));
+            publishedCounter.increment(published.size());
+        }
+        batchTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        logger.debug("Relayed {} of {} outbox events", published.size(), batch.size());
+        return published.size() == batch.size() ? published.size() : 0;
+    }
+
+    private void listen() {
+        while (running) {
+            // Held for the lifetime of the relay, so it permanently occupies one pool slot
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    logger.info("Outbox notifications need PostgreSQL, relying on the poll alone");
+                    return;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                logger.info("Listening for outbox notifications");
+
+                // Catch up on anything committed before LISTEN took effect
+                drain();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(listenTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        drain();
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Outbox listener connection failed, reconnecting in {} ms", RECONNECT_BACKOFF_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class OutboxEvent {
+        private final long id;
+        private final String aggregateId;
+        private final String topic;
+        private final String eventType;
+        // Null for rows queued before the column existed
+        private final String eventId;
+        private final String payload;
+
+        OutboxEvent(long id, String aggregateId, String topic, String eventType, String eventId, String payload) {
+            this.id = id;
+            this.aggregateId = aggregateId;
+            this.topic = topic;
+            this.eventType = eventType;
+            this.eventId = eventId;
+            this.payload = payload;
+        }
+    }
+}
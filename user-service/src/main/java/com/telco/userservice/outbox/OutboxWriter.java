@@ -0,0 +1,89 @@
+package com.telco.userservice.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.event.SagaEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Appends events to the outbox table on the caller's connection, so they commit or roll
+ * back together with the change that produced them. {@link OutboxRelay} publishes them.
+ */
+@Component
+public class OutboxWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate separateTransaction;
+    private final ObjectMapper objectMapper;
+    private final Counter appendedCounter;
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.separateTransaction = new TransactionTemplate(transactionManager);
+        this.separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+
+        this.appendedCounter = Counter.builder("outbox.appended.total")
+                .description("Events written to the outbox")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Appends the event within the current transaction.
+     */
+    public void append(String topic, SagaEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            // Fail the enclosing transaction rather than commit a change without its event
+            throw new IllegalStateException("Failed to serialize saga event: " + event.getEventType(), e);
+        }
+        String key = event.getSagaId() != null ? event.getSagaId() : event.getEventId();
+
+        jdbcTemplate.update(
+                "INSERT INTO outbox (aggregate_id, topic, event_type, event_id, payload) VALUES (?, ?, ?, ?, ?)",
+                key, topic, event.getEventType(), event.getEventId(), payload);
+        appendedCounter.increment();
+    }
+
+    /**
+     * Appends the event in its own transaction once the current one has rolled back. Used
+     * for failure events, which describe the rollback and would otherwise be undone by it.
+     */
+    public void appendOnRollback(String topic, SagaEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(topic, event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    separateTransaction.executeWithoutResult(tx -> append(topic, event));
+                } catch (Exception e) {
+                    logger.error("Failed to write {} for saga {} to the outbox", event.getEventType(),
+                            event.getSagaId(), e);
+                }
+            }
+        });
+    }
+}
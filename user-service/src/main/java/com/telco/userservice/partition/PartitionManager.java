@@ -0,0 +1,133 @@
+package com.telco.userservice.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of time-partitioned tables rolling: future months are
+ * pre-created ahead of time and months older than the table's retention are detached
+ * (and optionally dropped), so expiry never needs a bulk DELETE.
+ */
+@Component
+public class PartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionManager.class);
+    private static final Pattern PARTITION_SUFFIX = Pattern.compile("_p(\\d{6})$");
+    private static final DateTimeFormatter SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    // Serializes maintenance across replicas
+    private static final long MAINTENANCE_LOCK_KEY = 0x7465_6c63_6f70_6172L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<ManagedTable> managedTables = new ArrayList<>();
+    private final int premakeMonths;
+    private final boolean dropExpired;
+
+    public PartitionManager(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${partition.premake.months:3}") int premakeMonths,
+            @Value("${partition.drop-expired:true}") boolean dropExpired,
+            @Value("${partition.retention.user-audit.months:12}") int userAuditRetentionMonths,
+            @Value("${partition.retention.usage-alerts.months:6}") int usageAlertsRetentionMonths,
+            @Value("${partition.retention.saga-history.months:3}") int sagaHistoryRetentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.premakeMonths = premakeMonths;
+        this.dropExpired = dropExpired;
+
+        managedTables.add(new ManagedTable("user_audit", userAuditRetentionMonths));
+        managedTables.add(new ManagedTable("usage_alerts", usageAlertsRetentionMonths));
+        managedTables.add(new ManagedTable("saga_history", sagaHistoryRetentionMonths));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${partition.maintenance.cron:0 15 2 * * *}")
+    public void maintainPartitions() {
+        YearMonth currentMonth = YearMonth.now();
+        for (ManagedTable table : managedTables) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Boolean locked = jdbcTemplate.queryForObject(
+                            "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK_KEY);
+                    if (!Boolean.TRUE.equals(locked)) {
+                        logger.debug("Partition maintenance for {} is running on another instance", table.name);
+                        return;
+                    }
+                    createFuturePartitions(table, currentMonth);
+                    expirePartitions(table, currentMonth);
+                });
+            } catch (Exception e) {
+                logger.error("Partition maintenance failed for table: {}", table.name, e);
+            }
+        }
+    }
+
+    private void createFuturePartitions(ManagedTable table, YearMonth currentMonth) {
+        for (int i = 0; i <= premakeMonths; i++) {
+            Date monthStart = Date.valueOf(currentMonth.plusMonths(i).atDay(1));
+            jdbcTemplate.queryForObject("SELECT create_monthly_partition(?, ?)", String.class, table.name, monthStart);
+        }
+    }
+
+    private void expirePartitions(ManagedTable table, YearMonth currentMonth) {
+        YearMonth oldestRetained = currentMonth.minusMonths(table.retentionMonths);
+        for (String partition : listPartitions(table.name)) {
+            Matcher matcher = PARTITION_SUFFIX.matcher(partition);
+            if (!matcher.find()) {
+                continue;
+            }
+            YearMonth month = YearMonth.parse(matcher.group(1), SUFFIX_FORMAT);
+            if (!month.isBefore(oldestRetained)) {
+                continue;
+            }
+
+            // Names come from the catalog and match the partition pattern, so quoting is safe
+            jdbcTemplate.execute("ALTER TABLE \"" + table.name + "\" DETACH PARTITION \"" + partition + "\"");
+            if (dropExpired) {
+                jdbcTemplate.execute("DROP TABLE \"" + partition + "\"");
+                logger.info("Dropped expired partition {} of {}", partition, table.name);
+            } else {
+                logger.info("Detached expired partition {} of {}", partition, table.name);
+            }
+        }
+    }
+
+    private List<String> listPartitions(String parentTable) {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = ? ORDER BY c.relname",
+                String.class, parentTable);
+    }
+
+    private static class ManagedTable {
+        private final String name;
+        private final int retentionMonths;
+
+        ManagedTable(String name, int retentionMonths) {
+            this.name = name;
+            this.retentionMonths = retentionMonths;
+        }
+    }
+}
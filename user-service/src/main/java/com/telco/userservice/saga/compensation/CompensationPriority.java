@@ -0,0 +1,13 @@
+package com.telco.userservice.saga.compensation;
+
+/**
+ * Order in which queued compensations are dispatched; within a priority the oldest goes first.
+ */
+public enum CompensationPriority {
+    // A single step that completed after its saga had already failed
+    HIGH,
+    // Sagas that failed while running
+    NORMAL,
+    // Sagas found by the timeout sweep, which arrive in bursts
+    LOW
+}
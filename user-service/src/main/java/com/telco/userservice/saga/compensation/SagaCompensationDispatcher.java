@@ -0,0 +1,210 @@
+package com.telco.userservice.saga.compensation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.compensation.SagaCompensationQueue.Claim;
+import com.telco.userservice.saga.event.SagaCompensationEvent;
+import com.telco.userservice.saga.producer.SagaEventProducer;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends saga compensations through the {@link SagaCompensationQueue} instead of publishing
+ * each one as it is triggered, so a participant outage that fails many sagas at once
+ * does not replay all of them against the service as it recovers. Compensations drain in
+ * priority order at no more than {@code saga.compensation.rate-per-second} per instance.
+ * A claim is only completed once the broker has acknowledged its event; one that is not
+ * acknowledged stays leased and is claimed again when the lease runs out.
+ */
+@Component
+public class SagaCompensationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaCompensationDispatcher.class);
+    // Weight of the latest drain in the smoothed drain rate
+    private static final double RATE_SMOOTHING = 0.2;
+
+    private final SagaCompensationQueue sagaCompensationQueue;
+    private final SagaEventProducer sagaEventProducer;
+    private final ObjectMapper objectMapper;
+    private final Bucket bucket;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration sendTimeout;
+
+    private final Map<CompensationPriority, Counter> enqueuedCounters = new EnumMap<>(CompensationPriority.class);
+    private final Counter dispatchedCounter;
+    private final Counter failureCounter;
+    private final Timer waitTimer;
+    private final AtomicLong backlog = new AtomicLong();
+    private volatile double drainRate;
+    private long lastDrainNanos = System.nanoTime();
+
+    public SagaCompensationDispatcher(SagaCompensationQueue sagaCompensationQueue,
+            SagaEventProducer sagaEventProducer,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${saga.compensation.rate-per-second:200}") long ratePerSecond,
+            @Value("${saga.compensation.max-burst:200}") long maxBurst,
+            @Value("${saga.compensation.batch-size:100}") int batchSize,
+            @Value("${saga.compensation.lease.seconds:30}") long leaseSeconds,
+            @Value("${saga.compensation.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.sagaCompensationQueue = sagaCompensationQueue;
+        this.sagaEventProducer = sagaEventProducer;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.sendTimeout = Duration.ofMillis(sendTimeoutMs);
+
+        // Greedy refill spreads tokens across the second, a backlog drains steadily instead of once a second
+        Bandwidth limit = Bandwidth.classic(maxBurst, Refill.greedy(ratePerSecond, Duration.ofSeconds(1)));
+        this.bucket = Bucket4j.builder()
+                .addLimit(limit)
+                .build();
+
+        for (CompensationPriority priority : CompensationPriority.values()) {
+            enqueuedCounters.put(priority, Counter.builder("saga.compensation.enqueued.total")
+                    .description("Saga compensations queued for dispatch")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+
+        this.dispatchedCounter = Counter.builder("saga.compensation.dispatched.total")
+                .description("Queued saga compensations published")
+                .register(meterRegistry);
+
+        this.failureCounter = Counter.builder("saga.compensation.failures.total")
+                .description("Saga compensations that could not be queued or decoded")
+                .register(meterRegistry);
+
+        this.waitTimer = Timer.builder("saga.compensation.wait")
+                .description("Time from queueing a saga compensation to publishing it")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.compensation.backlog", backlog, AtomicLong::get)
+                .description("Saga compensations queued or in flight, as of the last drain")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.compensation.drain.rate", this, dispatcher -> dispatcher.drainRate)
+                .description("Smoothed saga compensations published per second")
+                .register(meterRegistry);
+    }
+
+    public void dispatch(SagaCompensationEvent event, CompensationPriority priority) {
+        try {
+            sagaCompensationQueue.enqueue(event.getSagaId(), event.getFailedStep(), priority,
+                    System.currentTimeMillis(), objectMapper.writeValueAsString(event));
+            enqueuedCounters.get(priority).increment();
+        } catch (Exception e) {
+            // Better to send it unshaped than to lose it
+            failureCounter.increment();
+            logger.error("Failed to queue compensation for saga: {}, publishing directly", event.getSagaId(), e);
+            sagaEventProducer.publishSagaEvent(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${saga.compensation.poll-interval-ms:100}")
+    public void drain() {
+        long dispatched = 0;
+        try {
+            while (true) {
+                int permits = (int) bucket.tryConsumeAsMuchAsPossible(batchSize);
+                if (permits == 0) {
+                    break;
+                }
+                List<Claim> claims = sagaCompensationQueue.claim(System.currentTimeMillis(), permits, lease.toMillis());
+                if (claims.size() < permits) {
+                    bucket.addTokens(permits - claims.size());
+                }
+                // Sent together, then awaited, so one batch costs about one broker round trip
+                List<PendingSend> sends = new ArrayList<>(claims.size());
+                for (Claim claim : claims) {
+                    PendingSend send = publish(claim);
+                    if (send != null) {
+                        sends.add(send);
+                    }
+                }
+                for (PendingSend send : sends) {
+                    if (awaitAck(send)) {
+                        dispatched++;
+                    }
+                }
+                if (claims.size() < permits) {
+                    break;
+                }
+            }
+            backlog.set(sagaCompensationQueue.size());
+        } catch (Exception e) {
+            logger.error("Failed to drain saga compensations", e);
+        }
+        updateDrainRate(dispatched);
+    }
+
+    private PendingSend publish(Claim claim) {
+        SagaCompensationEvent event;
+        try {
+            event = objectMapper.readValue(claim.getPayload(), SagaCompensationEvent.class);
+        } catch (JsonProcessingException e) {
+            failureCounter.increment();
+            logger.error("Dropping undecodable compensation for saga: {}", claim.getSagaId(), e);
+            sagaCompensationQueue.complete(claim);
+            return null;
+        }
+        return new PendingSend(claim, event, sagaEventProducer.publishSagaEvent(event));
+    }
+
+    private boolean awaitAck(PendingSend send) {
+        try {
+            send.ack.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            // Left leased, it is claimed again once the lease runs out
+            logger.warn("Compensation for saga: {} was not acknowledged, retrying after lease",
+                    send.claim.getSagaId(), e);
+            return false;
+        }
+        sagaCompensationQueue.complete(send.claim);
+        dispatchedCounter.increment();
+        if (send.event.getTimestamp() != null) {
+            waitTimer.record(Duration.between(send.event.getTimestamp(), LocalDateTime.now()));
+        }
+        return true;
+    }
+
+    private record PendingSend(Claim claim, SagaCompensationEvent event, Future<?> ack) {
+    }
+
+    // Only the scheduler thread drains, so the timestamp needs no synchronization
+    private void updateDrainRate(long dispatched) {
+        long now = System.nanoTime();
+        double seconds = (now - lastDrainNanos) / 1e9;
+        lastDrainNanos = now;
+        if (seconds > 0) {
+            drainRate += RATE_SMOOTHING * (dispatched / seconds - drainRate);
+        }
+    }
+}
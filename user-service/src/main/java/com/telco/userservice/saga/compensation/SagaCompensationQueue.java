@@ -0,0 +1,119 @@
+package com.telco.userservice.saga.compensation;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable compensation backlog: a Redis sorted set of pending compensations, one member
+ * per saga step, plus a hash holding each one's serialized event. Queued members are
+ * scored by priority band and enqueue time, so the lowest score is always the next to
+ * send. Claiming moves a member into a lease band above every priority; it is deleted
+ * once published, and becomes claimable again if its claimant dies before that.
+ */
+@Repository
+public class SagaCompensationQueue {
+
+    private static final String QUEUE_KEY = "saga:compensations";
+    private static final String PAYLOAD_KEY = "saga:compensations:payload";
+    private static final String SEPARATOR = "|";
+    // Wide enough for enqueue millis; all scores stay below 2^53 so doubles hold them exactly
+    private static final long PRIORITY_SPAN = 10_000_000_000_000L;
+    private static final long LEASE_BASE = PRIORITY_SPAN * 10;
+
+    // Re-enqueueing keeps the better score. ARGV: score, member, payload
+    private static final RedisScript<Long> ENQUEUE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[2], ARGV[2], ARGV[3])\n" +
+            "local current = redis.call('ZSCORE', KEYS[1], ARGV[2])\n" +
+            "if not current or tonumber(ARGV[1]) < tonumber(current) then\n" +
+            "  redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "end\n" +
+            "return 1", Long.class);
+
+    // Expired leases first, then queued members by score. ARGV: lease base, now as lease score,
+    // limit, lease expiry score. Returns member, payload pairs
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local claimed = redis.call('ZRANGEBYSCORE', KEYS[1], ARGV[1], ARGV[2], 'LIMIT', 0, ARGV[3])\n" +
+            "local remaining = tonumber(ARGV[3]) - #claimed\n" +
+            "if remaining > 0 then\n" +
+            "  for _, member in ipairs(redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[1], 'LIMIT', 0, remaining)) do\n" +
+            "    claimed[#claimed + 1] = member\n" +
+            "  end\n" +
+            "end\n" +
+            "local result = {}\n" +
+            "for _, member in ipairs(claimed) do\n" +
+            "  redis.call('ZADD', KEYS[1], ARGV[4], member)\n" +
+            "  result[#result + 1] = member\n" +
+            "  result[#result + 1] = redis.call('HGET', KEYS[2], member) or ''\n" +
+            "end\n" +
+            "return result", List.class);
+
+    // A member re-enqueued while leased is left for the next claim. ARGV: member, lease base
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "local score = redis.call('ZSCORE', KEYS[1], ARGV[1])\n" +
+            "if score and tonumber(score) >= tonumber(ARGV[2]) then\n" +
+            "  redis.call('ZREM', KEYS[1], ARGV[1])\n" +
+            "  redis.call('HDEL', KEYS[2], ARGV[1])\n" +
+            "  return 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public SagaCompensationQueue(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void enqueue(String sagaId, String stepName, CompensationPriority priority, long nowMillis,
+            String payload) {
+        long score = priority.ordinal() * PRIORITY_SPAN + nowMillis;
+        redisTemplate.execute(ENQUEUE_SCRIPT, List.of(QUEUE_KEY, PAYLOAD_KEY),
+                String.valueOf(score), sagaId + SEPARATOR + stepName, payload);
+    }
+
+    public List<Claim> claim(long nowMillis, int limit, long leaseMillis) {
+        List<?> result = redisTemplate.execute(CLAIM_SCRIPT, List.of(QUEUE_KEY, PAYLOAD_KEY),
+                String.valueOf(LEASE_BASE), String.valueOf(LEASE_BASE + nowMillis), String.valueOf(limit),
+                String.valueOf(LEASE_BASE + nowMillis + leaseMillis));
+        List<Claim> claims = new ArrayList<>();
+        if (result != null) {
+            for (int i = 0; i + 1 < result.size(); i += 2) {
+                claims.add(new Claim(result.get(i).toString(), result.get(i + 1).toString()));
+            }
+        }
+        return claims;
+    }
+
+    public void complete(Claim claim) {
+        redisTemplate.execute(COMPLETE_SCRIPT, List.of(QUEUE_KEY, PAYLOAD_KEY),
+                claim.member, String.valueOf(LEASE_BASE));
+    }
+
+    // Queued and leased compensations not yet published
+    public long size() {
+        Long size = redisTemplate.opsForZSet().zCard(QUEUE_KEY);
+        return size != null ? size : 0;
+    }
+
+    public static class Claim {
+        private final String member;
+        private final String payload;
+
+        Claim(String member, String payload) {
+            this.member = member;
+            this.payload = payload;
+        }
+
+        public String getSagaId() {
+            return member.substring(0, member.lastIndexOf(SEPARATOR));
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+    }
+}
@@ -1,44 +1,242 @@
 package com.telco.userservice.saga.consumer;
 
+import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.telco.userservice.saga.event.SagaEvent;
+import com.telco.userservice.saga.event.SagaEventHeaders;
 import com.telco.userservice.saga.orchestrator.SagaOrchestrator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Applies saga-events in acknowledged batches. The whole batch is dispatched before any
+ * result is checked, so when a record fails the records after it may already have been
+ * applied and are redelivered by the nack. That is safe because applying an event is
+ * idempotent: each saga keeps the ids of the events applied to it in Redis, and the
+ * orchestrator drops an event whose id is already there, whichever instance owned it.
+ */
 @Component
-public class SagaEventConsumer {
+public class SagaEventConsumer implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(SagaEventConsumer.class);
+    // Event types the orchestrator can decode, anything else on the topic is skipped unread
+    private static final Set<String> KNOWN_EVENT_TYPES = Arrays.stream(
+            SagaEvent.class.getAnnotation(JsonSubTypes.class).value())
+            .map(JsonSubTypes.Type::name)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private final ObjectMapper objectMapper;
+    private final SagaOrchestrator sagaOrchestrator;
+    private final int maxRedeliveries;
+    private final Duration redeliveryBackoff;
+
+    // Redelivery attempts of records that failed, keyed by partition and offset; dropped with the partition
+    private final Map<String, Integer> redeliveries = new ConcurrentHashMap<>();
+
+    private final Timer batchTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter eventsCounter;
+    private final Counter parseFailureCounter;
+    private final Counter nackCounter;
+    private final Counter skippedCounter;
+    private final Counter unknownTypeCounter;
+    private final Counter filteredCounter;
+
+    public SagaEventConsumer(ObjectMapper objectMapper,
+            SagaOrchestrator sagaOrchestrator,
+            MeterRegistry meterRegistry,
+            @Value("${saga.consumer.max-redeliveries:5}") int maxRedeliveries,
+            @Value("${saga.consumer.redelivery-backoff-ms:1000}") long redeliveryBackoffMs) {
+        this.objectMapper = objectMapper;
+        this.sagaOrchestrator = sagaOrchestrator;
+        this.maxRedeliveries = maxRedeliveries;
+        this.redeliveryBackoff = Duration.ofMillis(redeliveryBackoffMs);
+
+        this.batchTimer = Timer.builder("saga.consumer.batch.duration")
+                .description("Time to apply and acknowledge a batch of saga events")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.batchSizeSummary = DistributionSummary.builder("saga.consumer.batch.size")
+                .description("Saga events per consumed batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.eventsCounter = Counter.builder("saga.consumer.events.total")
+                .description("Saga events received")
+                .register(meterRegistry);
+
+        this.parseFailureCounter = Counter.builder("saga.consumer.parse_failures.total")
+                .description("Saga events that could not be deserialized and were skipped")
+                .register(meterRegistry);
+
+        this.nackCounter = Counter.builder("saga.consumer.batch.nacked.total")
+                .description("Batches partially redelivered after a processing failure")
+                .register(meterRegistry);
+
+        this.skippedCounter = Counter.builder("saga.consumer.events.skipped.total")
+                .description("Saga events skipped after exhausting redeliveries")
+                .register(meterRegistry);
+
+        this.unknownTypeCounter = Counter.builder("saga.consumer.events.undecoded.total")
+                .description("Saga events dropped on their headers without decoding the body")
+                .tag("reason", "unknown_type")
+                .register(meterRegistry);
+
+        this.filteredCounter = Counter.builder("saga.consumer.events.undecoded.total")
+                .description("Saga events dropped on their headers without decoding the body")
+                .tag("reason", "filtered")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "saga-events", groupId = "user-service-saga-consumer",
+            containerFactory = "sagaBatchListenerContainerFactory")
+    public void handleSagaEvents(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        long start = System.nanoTime();
+        batchSizeSummary.record(records.size());
+        eventsCounter.increment(records.size());
+
+        // Dispatch the whole batch first so different sagas run on their lanes in parallel
+        List<CompletableFuture<Void>> futures = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            futures.add(dispatch(record));
+        }
+
+        int failedIndex = -1;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedIndex = i;
+                break;
+            } catch (ExecutionException e) {
+                ConsumerRecord<String, String> record = records.get(i);
+                if (shouldRedeliver(record)) {
+                    logger.warn("Saga event at {}-{}@{} failed, redelivering from it",
+                            record.topic(), record.partition(), record.offset(), e.getCause());
+                    failedIndex = i;
+                    break;
+                }
+                skippedCounter.increment();
+                logger.error("Saga event at {}-{}@{} failed after {} redeliveries, skipping: {}",
+                        record.topic(), record.partition(), record.offset(), maxRedeliveries, record.value(),
+                        e.getCause());
+            }
+        }
+
+        if (failedIndex < 0) {
+            acknowledgment.acknowledge();
+            for (ConsumerRecord<String, String> record : records) {
+                redeliveries.remove(redeliveryKey(record));
+            }
+        } else {
+            // Commits everything before the failed record and re-polls from it
+            nackCounter.increment();
+            acknowledgment.nack(failedIndex, redeliveryBackoff);
+        }
 
-    @Autowired
-    private ObjectMapper objectMapper;
+        long elapsed = System.nanoTime() - start;
+        batchTimer.record(Duration.ofNanos(elapsed));
+        logger.debug("Processed saga event batch of {} records in {} ms{}", records.size(),
+                elapsed / 1_000_000, failedIndex < 0 ? "" : ", redelivering from index " + failedIndex);
+    }
 
-    @Autowired
-    private SagaOrchestrator sagaOrchestrator;
+    // Whoever is assigned the partition next counts redeliveries from scratch
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            String prefix = partition.topic() + "-" + partition.partition() + "@";
+            redeliveries.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
 
-    @KafkaListener(topics = "saga-events", groupId = "user-service-saga-consumer")
-    public void handleSagaEvent(@Payload String eventJson,
-            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-            @Header("kafka_receivedPartitionId") int partition,
-            @Header(KafkaHeaders.OFFSET) long offset) {
+    private CompletableFuture<Void> dispatch(ConsumerRecord<String, String> record) {
+        String eventType = SagaEventHeaders.get(record.headers(), SagaEventHeaders.EVENT_TYPE);
+        String sagaId = SagaEventHeaders.get(record.headers(), SagaEventHeaders.SAGA_ID);
+        if (eventType == null || sagaId == null) {
+            return dispatchDecoded(record);
+        }
+        if (!KNOWN_EVENT_TYPES.contains(eventType)) {
+            unknownTypeCounter.increment();
+            logger.debug("Skipping saga event of unknown type {} at {}-{}@{}",
+                    eventType, record.topic(), record.partition(), record.offset());
+            return CompletableFuture.completedFuture(null);
+        }
 
+        // Duplicates and events for sagas this service no longer holds are dropped undecoded
+        String eventId = SagaEventHeaders.get(record.headers(), SagaEventHeaders.EVENT_ID);
         try {
-            logger.info("Received saga event from topic: {}, partition: {}, offset: {}", topic, partition, offset);
+            return sagaOrchestrator.handleSagaEvent(sagaId, eventId, () -> decode(record))
+                    .thenAccept(decoded -> {
+                        if (!decoded) {
+                            filteredCounter.increment();
+                        }
+                    });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-            SagaEvent event = objectMapper.readValue(eventJson, SagaEvent.class);
-            logger.info("Processing saga event: {} for saga: {}", event.getEventType(), event.getSagaId());
+    // Records without routing headers, published before they were added
+    private CompletableFuture<Void> dispatchDecoded(ConsumerRecord<String, String> record) {
+        SagaEvent event = decode(record);
+        if (event == null) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-            sagaOrchestrator.handleSagaEvent(event);
+        try {
+            return sagaOrchestrator.handleSagaEvent(event);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
+    private SagaEvent decode(ConsumerRecord<String, String> record) {
+        try {
+            return objectMapper.readValue(record.value(), SagaEvent.class);
         } catch (Exception e) {
-            logger.error("Failed to process saga event: {}", eventJson, e);
+            // A malformed record will never parse, redelivering it would block the partition
+            parseFailureCounter.increment();
+            logger.error("Failed to deserialize saga event at {}-{}@{}: {}",
+                    record.topic(), record.partition(), record.offset(), record.value(), e);
+            return null;
         }
     }
+
+    private boolean shouldRedeliver(ConsumerRecord<String, String> record) {
+        int attempts = redeliveries.merge(redeliveryKey(record), 1, Integer::sum);
+        if (attempts > maxRedeliveries) {
+            redeliveries.remove(redeliveryKey(record));
+            return false;
+        }
+        return true;
+    }
+
+    private String redeliveryKey(ConsumerRecord<String, String> record) {
+        return record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
 }
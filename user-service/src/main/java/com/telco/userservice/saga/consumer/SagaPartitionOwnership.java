@@ -0,0 +1,163 @@
+package com.telco.userservice.saga.consumer;
+
+import com.telco.userservice.saga.producer.SagaEventProducer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which saga-events partitions this instance's consumers hold. A saga belongs to
+ * the partition its id hashes to under the default partitioner, the same partition all of
+ * its events are keyed to, so only the instance consuming that partition keeps the saga in
+ * memory. Until the first assignment every saga counts as owned.
+ *
+ * <p>The rebalance listener is handed out by {@link #rebalanceListener()} rather than
+ * implemented by this bean, which Boot would otherwise attach to every listener container.
+ */
+@Component
+public class SagaPartitionOwnership {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaPartitionOwnership.class);
+    // Ids drawn before giving up on landing in an owned partition
+    private static final int MAX_ID_ATTEMPTS = 64;
+
+    private final Set<Integer> ownedPartitions = ConcurrentHashMap.newKeySet();
+    private volatile int partitionCount;
+    private volatile RebalanceHandler rebalanceHandler = assigned -> {
+    };
+    private final ConsumerAwareRebalanceListener rebalanceListener = new ConsumerAwareRebalanceListener() {
+        @Override
+        public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            assign(consumer, partitions);
+        }
+
+        @Override
+        public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            release(partitions);
+        }
+
+        @Override
+        public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            release(partitions);
+        }
+    };
+
+    public SagaPartitionOwnership(MeterRegistry meterRegistry) {
+        Gauge.builder("saga.partitions.owned", ownedPartitions, Set::size)
+                .description("saga-events partitions whose sagas this instance owns")
+                .register(meterRegistry);
+    }
+
+    // For the saga-events listener container only
+    public ConsumerAwareRebalanceListener rebalanceListener() {
+        return rebalanceListener;
+    }
+
+    public void setRebalanceHandler(RebalanceHandler rebalanceHandler) {
+        this.rebalanceHandler = rebalanceHandler;
+    }
+
+    public boolean owns(String sagaId) {
+        int count = partitionCount;
+        return count == 0 || ownedPartitions.contains(partitionOf(sagaId, count));
+    }
+
+    public int partitionOf(String sagaId) {
+        return partitionOf(sagaId, partitionCount);
+    }
+
+    // Zero until the first assignment
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * A new saga id that hashes to a partition this instance owns, so the saga's events
+     * come back to the instance that started it. Falls back to any id when none is owned.
+     */
+    public String newSagaId() {
+        String sagaId = UUID.randomUUID().toString();
+        if (partitionCount == 0 || ownedPartitions.isEmpty()) {
+            return sagaId;
+        }
+        for (int attempt = 1; attempt < MAX_ID_ATTEMPTS && !owns(sagaId); attempt++) {
+            sagaId = UUID.randomUUID().toString();
+        }
+        return sagaId;
+    }
+
+    private void assign(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Set<Integer> assigned = sagaPartitions(partitions);
+        if (assigned.isEmpty()) {
+            return;
+        }
+        // Re-read on every assignment, the topic may have grown
+        List<PartitionInfo> partitionInfos = consumer.partitionsFor(SagaEventProducer.SAGA_TOPIC);
+        if (partitionInfos != null && !partitionInfos.isEmpty()) {
+            partitionCount = partitionInfos.size();
+        }
+        ownedPartitions.addAll(assigned);
+        logger.info("Assigned saga partitions {}, now owning {}", assigned, ownedPartitions);
+        handleRebalance(assigned);
+    }
+
+    private void release(Collection<TopicPartition> partitions) {
+        Set<Integer> revoked = sagaPartitions(partitions);
+        if (revoked.isEmpty()) {
+            return;
+        }
+        ownedPartitions.removeAll(revoked);
+        logger.info("Released saga partitions {}, now owning {}", revoked, ownedPartitions);
+        handleRebalance(Set.of());
+    }
+
+    private void handleRebalance(Set<Integer> assigned) {
+        try {
+            rebalanceHandler.onRebalance(assigned);
+        } catch (Exception e) {
+            // Sagas not restored now are read from Redis on their next event
+            logger.error("Failed to handle saga partition rebalance", e);
+        }
+    }
+
+    private static Set<Integer> sagaPartitions(Collection<TopicPartition> partitions) {
+        Set<Integer> sagaPartitions = new HashSet<>();
+        for (TopicPartition partition : partitions) {
+            if (SagaEventProducer.SAGA_TOPIC.equals(partition.topic())) {
+                sagaPartitions.add(partition.partition());
+            }
+        }
+        return sagaPartitions;
+    }
+
+    // Same as the producer's default partitioner for a String key
+    static int partitionOf(String sagaId, int partitionCount) {
+        if (partitionCount == 0) {
+            return 0;
+        }
+        return Utils.toPositive(Utils.murmur2(sagaId.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+
+    /**
+     * Called on the consumer thread after every rebalance with the partitions just
+     * assigned (empty after a revocation), before any of their records are polled.
+     */
+    public interface RebalanceHandler {
+        void onRebalance(Set<Integer> assigned);
+    }
+}
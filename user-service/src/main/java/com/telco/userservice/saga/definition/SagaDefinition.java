@@ -0,0 +1,153 @@
+package com.telco.userservice.saga.definition;
+
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Declares the steps of a saga and the steps each one depends on. A step may only depend
+ * on steps declared before it, so declaration order is always a valid topological order
+ * and the graph cannot have cycles. Steps whose dependencies have all completed are ready
+ * and may run concurrently.
+ */
+public class SagaDefinition {
+
+    private final String name;
+    private final Map<String, StepDefinition> steps;
+
+    private SagaDefinition(String name, Map<String, StepDefinition> steps) {
+        this.name = name;
+        this.steps = steps;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public SagaState newSagaState(String sagaId, String correlationId) {
+        SagaState sagaState = new SagaState(sagaId, correlationId);
+        for (StepDefinition step : steps.values()) {
+            sagaState.addStep(new SagaStep(step.name, step.serviceName, step.compensationAction));
+        }
+        return sagaState;
+    }
+
+    /**
+     * Pending steps whose dependencies have all completed, in declaration order.
+     */
+    public List<SagaStep> readySteps(SagaState sagaState) {
+        Map<String, SagaStep> byName = index(sagaState);
+        List<SagaStep> ready = new ArrayList<>();
+        for (StepDefinition definition : steps.values()) {
+            SagaStep step = byName.get(definition.name);
+            if (step == null || step.getStatus() != SagaStepStatus.PENDING) {
+                continue;
+            }
+            boolean dependenciesDone = definition.dependsOn.stream()
+                    .map(byName::get)
+                    .allMatch(dependency -> dependency != null && isDone(dependency));
+            if (dependenciesDone) {
+                ready.add(step);
+            }
+        }
+        return ready;
+    }
+
+    public boolean isComplete(SagaState sagaState) {
+        Map<String, SagaStep> byName = index(sagaState);
+        return steps.keySet().stream()
+                .map(byName::get)
+                .allMatch(step -> step != null && isDone(step));
+    }
+
+    /**
+     * Completed steps in reverse topological order, the order they must be compensated in.
+     */
+    public List<SagaStep> compensationOrder(SagaState sagaState) {
+        Map<String, SagaStep> byName = index(sagaState);
+        List<SagaStep> completed = new ArrayList<>();
+        for (String stepName : steps.keySet()) {
+            SagaStep step = byName.get(stepName);
+            if (step != null && step.getStatus() == SagaStepStatus.COMPLETED) {
+                completed.add(step);
+            }
+        }
+        Collections.reverse(completed);
+        return completed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> getDependencies(String stepName) {
+        StepDefinition step = steps.get(stepName);
+        return step != null ? step.dependsOn : Set.of();
+    }
+
+    private static boolean isDone(SagaStep step) {
+        return step.getStatus() == SagaStepStatus.COMPLETED || step.getStatus() == SagaStepStatus.SKIPPED;
+    }
+
+    private static Map<String, SagaStep> index(SagaState sagaState) {
+        Map<String, SagaStep> byName = new LinkedHashMap<>();
+        for (SagaStep step : sagaState.getSteps()) {
+            byName.put(step.getStepName(), step);
+        }
+        return byName;
+    }
+
+    public static class Builder {
+        private final String name;
+        private final Map<String, StepDefinition> steps = new LinkedHashMap<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder step(String stepName, String serviceName, String compensationAction, String... dependsOn) {
+            if (steps.containsKey(stepName)) {
+                throw new IllegalArgumentException("Duplicate step " + stepName + " in saga " + name);
+            }
+            for (String dependency : dependsOn) {
+                if (!steps.containsKey(dependency)) {
+                    throw new IllegalArgumentException("Step " + stepName + " of saga " + name +
+                            " depends on " + dependency + ", which must be declared before it");
+                }
+            }
+            steps.put(stepName, new StepDefinition(stepName, serviceName, compensationAction,
+                    Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(dependsOn)))));
+            return this;
+        }
+
+        public SagaDefinition build() {
+            if (steps.isEmpty()) {
+                throw new IllegalStateException("Saga " + name + " has no steps");
+            }
+            return new SagaDefinition(name, Collections.unmodifiableMap(new LinkedHashMap<>(steps)));
+        }
+    }
+
+    private static class StepDefinition {
+        private final String name;
+        private final String serviceName;
+        private final String compensationAction;
+        private final Set<String> dependsOn;
+
+        StepDefinition(String name, String serviceName, String compensationAction, Set<String> dependsOn) {
+            this.name = name;
+            this.serviceName = serviceName;
+            this.compensationAction = compensationAction;
+            this.dependsOn = dependsOn;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.telco.userservice.saga.event;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kafka record headers carried by saga events, so consumers can route and filter a record
+ * without deserializing its body. Records published before the headers existed have none.
+ */
+public final class SagaEventHeaders {
+
+    public static final String EVENT_TYPE = "eventType";
+    public static final String SAGA_ID = "sagaId";
+    public static final String EVENT_ID = "eventId";
+
+    private SagaEventHeaders() {
+    }
+
+    public static Headers of(String eventType, String sagaId, String eventId) {
+        Headers headers = new RecordHeaders();
+        add(headers, EVENT_TYPE, eventType);
+        add(headers, SAGA_ID, sagaId);
+        add(headers, EVENT_ID, eventId);
+        return headers;
+    }
+
+    public static Headers of(SagaEvent event) {
+        return of(event.getEventType(), event.getSagaId(), event.getEventId());
+    }
+
+    public static String get(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header != null && header.value() != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static void add(Headers headers, String name, String value) {
+        if (value != null) {
+            headers.add(name, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
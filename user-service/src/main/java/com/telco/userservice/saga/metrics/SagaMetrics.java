@@ -5,19 +5,32 @@ import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Saga and step counters and timers. Saga durations are measured from a monotonic start
+ * time kept in a bounded {@link SagaStartTimeMap}, so sagas that never finish cannot leak
+ * memory. Timers are tagged by outcome (and step) and publish percentile histograms with
+ * SLO buckets, so latency can be aggregated across instances.
+ */
 @Component
 public class SagaMetrics {
 
     private final MeterRegistry meterRegistry;
-    private final ConcurrentHashMap<String, LocalDateTime> sagaStartTimes = new ConcurrentHashMap<>();
-    private final AtomicLong activeSagas = new AtomicLong(0);
+    private final SagaStartTimeMap sagaStartTimes;
+    private final Duration[] sagaSlos;
+    private final Duration[] stepSlos;
+    // step|outcome -> timer, so recording does not go through the registry lookup
+    private final ConcurrentHashMap<String, Timer> stepTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> sagaTimers = new ConcurrentHashMap<>();
+    private final Counter untrackedCounter;
     private final AtomicLong completedSagas = new AtomicLong(0);
     private final AtomicLong failedSagas = new AtomicLong(0);
     private final AtomicLong compensatedSagas = new AtomicLong(0);
@@ -29,16 +42,19 @@ public class SagaMetrics {
     private final Counter sagaFailedCounter;
     private final Counter sagaCompensatedCounter;
     private final Counter sagaTimedOutCounter;
-    private final Counter sagaStepRetryCounter;
     private final Counter sagaCompensationTriggeredCounter;
 
-    // Timers
-    private final Timer sagaDurationTimer;
-    private final Timer sagaStepDurationTimer;
-
     @Autowired
-    public SagaMetrics(MeterRegistry meterRegistry) {
+    public SagaMetrics(MeterRegistry meterRegistry,
+            @Value("${saga.metrics.start-times.capacity:100000}") int startTimesCapacity,
+            @Value("${saga.metrics.start-times.max-age-minutes:60}") long startTimesMaxAgeMinutes,
+            @Value("${saga.metrics.saga-slo-ms:500,1000,2000,5000,30000}") long[] sagaSloMillis,
+            @Value("${saga.metrics.step-slo-ms:50,100,250,500,1000,5000}") long[] stepSloMillis) {
         this.meterRegistry = meterRegistry;
+        this.sagaStartTimes = new SagaStartTimeMap(startTimesCapacity,
+                TimeUnit.MINUTES.toNanos(startTimesMaxAgeMinutes), System::nanoTime);
+        this.sagaSlos = Arrays.stream(sagaSloMillis).mapToObj(Duration::ofMillis).toArray(Duration[]::new);
+        this.stepSlos = Arrays.stream(stepSloMillis).mapToObj(Duration::ofMillis).toArray(Duration[]::new);
 
         // Initialize counters
         this.sagaStartedCounter = Counter.builder("saga.started.total")
@@ -61,21 +77,12 @@ public class SagaMetrics {
                 .description("Total number of sagas that timed out")
                 .register(meterRegistry);
 
-        this.sagaStepRetryCounter = Counter.builder("saga.step.retry.total")
-                .description("Total number of saga step retries")
-                .register(meterRegistry);
-
         this.sagaCompensationTriggeredCounter = Counter.builder("saga.compensation.triggered.total")
                 .description("Total number of compensation events triggered")
                 .register(meterRegistry);
 
-        // Initialize timers
-        this.sagaDurationTimer = Timer.builder("saga.duration")
-                .description("Saga execution duration")
-                .register(meterRegistry);
-
-        this.sagaStepDurationTimer = Timer.builder("saga.step.duration")
-                .description("Saga step execution duration")
+        this.untrackedCounter = Counter.builder("saga.metrics.untracked.total")
+                .description("Sagas whose start time could not be tracked because the table was full")
                 .register(meterRegistry);
 
         // Initialize gauges
@@ -102,73 +109,74 @@ public class SagaMetrics {
 
     public void recordSagaStarted(String sagaId) {
         sagaStartedCounter.increment();
-        activeSagas.incrementAndGet();
-        sagaStartTimes.put(sagaId, LocalDateTime.now());
+        if (!sagaStartTimes.put(sagaId, System.nanoTime())) {
+            untrackedCounter.increment();
+        }
     }
 
     public void recordSagaCompleted(String sagaId) {
         sagaCompletedCounter.increment();
         completedSagas.incrementAndGet();
-        activeSagas.decrementAndGet();
-
-        LocalDateTime startTime = sagaStartTimes.remove(sagaId);
-        if (startTime != null) {
-            Duration duration = Duration.between(startTime, LocalDateTime.now());
-            sagaDurationTimer.record(duration);
-        }
+        recordSagaDuration(sagaId, "completed");
     }
 
     public void recordSagaFailed(String sagaId) {
         sagaFailedCounter.increment();
         failedSagas.incrementAndGet();
-        activeSagas.decrementAndGet();
-
-        LocalDateTime startTime = sagaStartTimes.remove(sagaId);
-        if (startTime != null) {
-            Duration duration = Duration.between(startTime, LocalDateTime.now());
-            sagaDurationTimer.record(duration);
-        }
+        recordSagaDuration(sagaId, "failed");
     }
 
     public void recordSagaCompensated(String sagaId) {
         sagaCompensatedCounter.increment();
         compensatedSagas.incrementAndGet();
-        activeSagas.decrementAndGet();
-
-        LocalDateTime startTime = sagaStartTimes.remove(sagaId);
-        if (startTime != null) {
-            Duration duration = Duration.between(startTime, LocalDateTime.now());
-            sagaDurationTimer.record(duration);
-        }
+        // Usually already timed as failed, this only covers a saga compensated while running
+        recordSagaDuration(sagaId, "compensated");
     }
 
     public void recordSagaTimedOut(String sagaId) {
         sagaTimedOutCounter.increment();
         timedOutSagas.incrementAndGet();
-        activeSagas.decrementAndGet();
-
-        LocalDateTime startTime = sagaStartTimes.remove(sagaId);
-        if (startTime != null) {
-            Duration duration = Duration.between(startTime, LocalDateTime.now());
-            sagaDurationTimer.record(duration);
-        }
+        recordSagaDuration(sagaId, "timed_out");
     }
 
     public void recordSagaStepRetry(String stepName) {
-        sagaStepRetryCounter.increment();
+        meterRegistry.counter("saga.step.retry.total", "step", stepName).increment();
     }
 
     public void recordSagaCompensationTriggered(String reason) {
         sagaCompensationTriggeredCounter.increment();
     }
 
-    public void recordSagaStepDuration(String stepName, Duration duration) {
-        sagaStepDurationTimer.record(duration.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS);
+    public void recordSagaStepDuration(String stepName, String outcome, Duration duration) {
+        stepTimers.computeIfAbsent(stepName + "|" + outcome, key -> Timer.builder("saga.step.duration")
+                .description("Saga step execution duration")
+                .tag("step", stepName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(stepSlos)
+                .register(meterRegistry))
+                .record(duration);
+    }
+
+    // A saga is only timed once, by whichever terminal recorder sees it first
+    private void recordSagaDuration(String sagaId, String outcome) {
+        long startNanos = sagaStartTimes.remove(sagaId);
+        if (startNanos == Long.MIN_VALUE) {
+            return;
+        }
+        sagaTimers.computeIfAbsent(outcome, key -> Timer.builder("saga.duration")
+                .description("Saga execution duration")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(sagaSlos)
+                .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 
     // Gauge methods
+    // Sagas started on this instance that have not finished yet
     public double getActiveSagaCount() {
-        return activeSagas.get();
+        return sagaStartTimes.size();
     }
 
     public double getCompletedSagaCount() {
@@ -0,0 +1,139 @@
+package com.telco.userservice.saga.metrics;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Saga start times as {@code System.nanoTime} values in a fixed-size open-addressing table
+ * keyed by the saga id's two UUID halves, so no entry objects are kept per saga and the
+ * table cannot grow. Sagas that never report an end are dropped once older than
+ * {@code maxAgeNanos}, the next time the table fills up.
+ */
+class SagaStartTimeMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long[] mostBits;
+    private final long[] leastBits;
+    private final long[] startTimes;
+    private final int mask;
+    private final int maxSize;
+    private final long maxAgeNanos;
+    private final LongSupplier nanoClock;
+    private int size;
+
+    SagaStartTimeMap(int capacity, long maxAgeNanos, LongSupplier nanoClock) {
+        // Power of two slots kept at most three quarters full so probe chains stay short
+        int slots = Integer.highestOneBit(Math.max(16, capacity * 4 / 3 - 1) << 1);
+        this.mostBits = new long[slots];
+        this.leastBits = new long[slots];
+        this.startTimes = new long[slots];
+        Arrays.fill(startTimes, EMPTY);
+        this.mask = slots - 1;
+        this.maxSize = slots / 4 * 3;
+        this.maxAgeNanos = maxAgeNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /** Returns false when the id is not a UUID or the table is full of live sagas. */
+    synchronized boolean put(String sagaId, long startNanos) {
+        UUID id = parse(sagaId);
+        if (id == null) {
+            return false;
+        }
+        int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        if (startTimes[slot] != EMPTY) {
+            startTimes[slot] = startNanos;
+            return true;
+        }
+        if (size >= maxSize) {
+            evictExpired();
+            if (size >= maxSize) {
+                return false;
+            }
+            slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+        mostBits[slot] = id.getMostSignificantBits();
+        leastBits[slot] = id.getLeastSignificantBits();
+        startTimes[slot] = startNanos;
+        size++;
+        return true;
+    }
+
+    /** Removes the saga and returns its start time, or {@link Long#MIN_VALUE} when not tracked. */
+    synchronized long remove(String sagaId) {
+        UUID id = parse(sagaId);
+        if (id == null) {
+            return EMPTY;
+        }
+        int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        long startNanos = startTimes[slot];
+        if (startNanos != EMPTY) {
+            delete(slot);
+        }
+        return startNanos;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Slot holding the key, or the empty slot that ends its probe chain
+    private int find(long most, long least) {
+        int slot = hash(most, least) & mask;
+        while (startTimes[slot] != EMPTY && (mostBits[slot] != most || leastBits[slot] != least)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void delete(int slot) {
+        startTimes[slot] = EMPTY;
+        size--;
+        int hole = slot;
+        int next = (slot + 1) & mask;
+        while (startTimes[next] != EMPTY) {
+            int home = hash(mostBits[next], leastBits[next]) & mask;
+            // Move the entry back unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                mostBits[hole] = mostBits[next];
+                leastBits[hole] = leastBits[next];
+                startTimes[hole] = startTimes[next];
+                startTimes[next] = EMPTY;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void evictExpired() {
+        long now = nanoClock.getAsLong();
+        int slot = 0;
+        while (slot <= mask) {
+            // A deletion may shift a later entry into this slot, look at it again
+            if (startTimes[slot] != EMPTY && now - startTimes[slot] > maxAgeNanos) {
+                delete(slot);
+            } else {
+                slot++;
+            }
+        }
+    }
+
+    private static int hash(long most, long least) {
+        long h = most ^ least;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static UUID parse(String sagaId) {
+        try {
+            return sagaId != null ? UUID.fromString(sagaId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.telco.userservice.saga.orchestrator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded memory of recently processed event ids. The latest ids are kept exactly in a
+ * ring; older ones only in a set of Bloom filters, one per time bucket, where the oldest
+ * bucket is cleared and reused as time moves on. Memory is fixed up front and both lookup
+ * and insert are O(1). A Bloom-only match may be a false positive, so it is reported
+ * separately from an exact one.
+ * <p>
+ * Not thread-safe, each saga lane owns its own window.
+ */
+class EventDedupWindow {
+
+    enum Match {
+        NONE, EXACT, PROBABLE
+    }
+
+    private final String[] ring;
+    private final Set<String> recent;
+    private int next;
+
+    private final long[][] filters;
+    private final long[] filterBuckets;
+    private final int bitsPerFilter;
+    private final int hashes;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    EventDedupWindow(int recentSize, long windowMillis, int buckets, int expectedPerBucket,
+            double falsePositiveRate, LongSupplier clock) {
+        this.ring = new String[recentSize];
+        this.recent = new HashSet<>(recentSize * 2);
+
+        // Standard Bloom sizing: m = -n ln p / (ln 2)^2 bits, k = m / n ln 2 hashes
+        long bits = (long) Math.ceil(-expectedPerBucket * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitsPerFilter = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, bits));
+        this.hashes = Math.max(1, (int) Math.round((double) bitsPerFilter / expectedPerBucket * Math.log(2)));
+        this.filters = new long[buckets][(bitsPerFilter + 63) / 64];
+        this.filterBuckets = new long[buckets];
+        Arrays.fill(filterBuckets, -1);
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.clock = clock;
+    }
+
+    Match lookup(String eventId) {
+        if (recent.contains(eventId)) {
+            return Match.EXACT;
+        }
+
+        long bucket = clock.getAsLong() / bucketMillis;
+        long h1 = hash(eventId);
+        long h2 = mix(h1);
+        for (int i = 0; i < filters.length; i++) {
+            // Buckets older than the window are stale even if not yet reused
+            if (filterBuckets[i] > bucket - filters.length && mightContain(filters[i], h1, h2)) {
+                return Match.PROBABLE;
+            }
+        }
+        return Match.NONE;
+    }
+
+    void add(String eventId) {
+        if (!recent.add(eventId)) {
+            return;
+        }
+        String evicted = ring[next];
+        if (evicted != null) {
+            recent.remove(evicted);
+        }
+        ring[next] = eventId;
+        next = (next + 1) % ring.length;
+
+        long[] filter = currentFilter();
+        long h1 = hash(eventId);
+        long h2 = mix(h1);
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1, h2, i);
+            filter[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private long[] currentFilter() {
+        long bucket = clock.getAsLong() / bucketMillis;
+        int slot = (int) Math.floorMod(bucket, (long) filters.length);
+        if (filterBuckets[slot] != bucket) {
+            Arrays.fill(filters[slot], 0L);
+            filterBuckets[slot] = bucket;
+        }
+        return filters[slot];
+    }
+
+    private boolean mightContain(long[] filter, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1, h2, i);
+            if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Kirsch-Mitzenmacher: k indexes from two hashes
+    private int index(long h1, long h2, int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, bitsPerFilter);
+    }
+
+    // 64-bit FNV-1a over the id's chars
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // SplitMix64 finalizer, an independent-enough second hash
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return (h ^ (h >>> 31)) | 1L;
+    }
+}
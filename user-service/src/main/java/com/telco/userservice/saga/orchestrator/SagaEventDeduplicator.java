@@ -0,0 +1,78 @@
+package com.telco.userservice.saga.orchestrator;
+
+import com.telco.userservice.saga.orchestrator.EventDedupWindow.Match;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops saga events that were already applied, keyed by event id. Kafka redelivers after
+ * a rebalance or a nacked batch, and reapplying a completion or failure would dispatch
+ * steps or publish compensations twice. Each lane has its own {@link EventDedupWindow};
+ * events of a saga always run on the same lane, so no window is shared between threads.
+ */
+@Component
+public class SagaEventDeduplicator {
+
+    private final SagaLaneExecutor sagaLaneExecutor;
+    private final EventDedupWindow[] windows;
+    private final Counter exactCounter;
+    private final Counter probableCounter;
+
+    public SagaEventDeduplicator(SagaLaneExecutor sagaLaneExecutor, MeterRegistry meterRegistry,
+            @Value("${saga.dedup.recent-size:4096}") int recentSize,
+            @Value("${saga.dedup.window-ms:900000}") long windowMillis,
+            @Value("${saga.dedup.buckets:6}") int buckets,
+            @Value("${saga.dedup.expected-events:1000000}") int expectedEvents,
+            @Value("${saga.dedup.false-positive-rate:0.000001}") double falsePositiveRate) {
+        this.sagaLaneExecutor = sagaLaneExecutor;
+
+        // Expected events are for the whole window, spread over lanes and buckets
+        int lanes = sagaLaneExecutor.laneCount();
+        int expectedPerBucket = Math.max(1, expectedEvents / lanes / buckets);
+        this.windows = new EventDedupWindow[lanes];
+        for (int i = 0; i < lanes; i++) {
+            windows[i] = new EventDedupWindow(recentSize, windowMillis, buckets, expectedPerBucket,
+                    falsePositiveRate, System::currentTimeMillis);
+        }
+
+        this.exactCounter = Counter.builder("saga.dedup.dropped.total")
+                .description("Duplicate saga events dropped before being applied")
+                .tag("match", "exact")
+                .register(meterRegistry);
+
+        this.probableCounter = Counter.builder("saga.dedup.dropped.total")
+                .description("Duplicate saga events dropped before being applied")
+                .tag("match", "probable")
+                .register(meterRegistry);
+    }
+
+    /** Must be called on the saga's lane. Events without an id are never treated as duplicates. */
+    public boolean isDuplicate(String sagaId, String eventId) {
+        if (eventId == null) {
+            return false;
+        }
+        Match match = window(sagaId).lookup(eventId);
+        if (match == Match.EXACT) {
+            exactCounter.increment();
+            return true;
+        }
+        if (match == Match.PROBABLE) {
+            probableCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /** Must be called on the saga's lane, once the event has been applied. */
+    public void markProcessed(String sagaId, String eventId) {
+        if (eventId != null) {
+            window(sagaId).add(eventId);
+        }
+    }
+
+    private EventDedupWindow window(String sagaId) {
+        return windows[sagaLaneExecutor.laneOf(sagaId)];
+    }
+}
@@ -0,0 +1,124 @@
+package com.telco.userservice.saga.orchestrator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs all work for a saga on one of N single-threaded lanes chosen by hashing the saga
+ * id, so a saga's state is only ever touched by one thread at a time and needs no locks.
+ * Different sagas spread over the lanes and proceed in parallel.
+ */
+@Component
+public class SagaLaneExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaLaneExecutor.class);
+
+    // Lane the current thread belongs to, -1 outside of any lane
+    private static final ThreadLocal<Integer> CURRENT_LANE = ThreadLocal.withInitial(() -> -1);
+
+    private final ExecutorService[] lanes;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter tasksCounter;
+
+    public SagaLaneExecutor(MeterRegistry meterRegistry,
+            @Value("${saga.lane.count:16}") int laneCount) {
+        this.lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            int lane = i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> Thread.ofVirtual()
+                    .name("saga-lane-" + lane)
+                    .unstarted(() -> {
+                        CURRENT_LANE.set(lane);
+                        runnable.run();
+                    }));
+        }
+
+        this.tasksCounter = Counter.builder("saga.lane.tasks.total")
+                .description("Saga tasks executed on lanes")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.lane.queued", queued, AtomicInteger::get)
+                .description("Saga tasks waiting for their lane")
+                .register(meterRegistry);
+    }
+
+    public int laneCount() {
+        return lanes.length;
+    }
+
+    public int laneOf(String sagaId) {
+        return Math.floorMod(sagaId.hashCode(), lanes.length);
+    }
+
+    public CompletableFuture<Void> execute(String sagaId, Runnable task) {
+        return submit(sagaId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(String sagaId, Callable<T> task) {
+        int lane = laneOf(sagaId);
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        // Already on the saga's lane: run inline, queueing behind ourselves would deadlock
+        if (CURRENT_LANE.get() == lane) {
+            run(task, future);
+            return future;
+        }
+
+        queued.incrementAndGet();
+        try {
+            lanes[lane].execute(() -> {
+                queued.decrementAndGet();
+                run(task, future);
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> future) {
+        tasksCounter.increment();
+        try {
+            future.complete(task.call());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Saga lane did not drain within 10 seconds");
+                    lane.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lane.shutdownNow();
+            }
+        }
+    }
+}
@@ -1,7 +1,18 @@
 package com.telco.userservice.saga.orchestrator;
 
+import com.telco.userservice.saga.compensation.CompensationPriority;
+import com.telco.userservice.saga.compensation.SagaCompensationDispatcher;
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
+import com.telco.userservice.saga.definition.SagaDefinition;
 import com.telco.userservice.saga.event.*;
-import com.telco.userservice.saga.producer.SagaEventProducer;
+import com.telco.userservice.saga.metrics.SagaMetrics;
+import com.telco.userservice.saga.persistence.SagaDeadlineIndex;
+import com.telco.userservice.saga.persistence.SagaPage;
+import com.telco.userservice.saga.persistence.SagaStateStore;
+import com.telco.userservice.saga.resilience.BreakerOpenAction;
+import com.telco.userservice.saga.resilience.SagaCircuitBreakers;
+import com.telco.userservice.saga.resilience.SagaRetryBudget;
+import com.telco.userservice.saga.retry.SagaRetryManager;
 import com.telco.userservice.saga.state.SagaState;
 import com.telco.userservice.saga.state.SagaStatus;
 import com.telco.userservice.saga.state.SagaStep;
@@ -9,12 +20,14 @@ import com.telco.userservice.saga.state.SagaStepStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.Collections;
 
 @Component
@@ -22,47 +35,140 @@ public class SagaOrchestrator {
 
     private static final Logger logger = LoggerFactory.getLogger(SagaOrchestrator.class);
 
+    // Alerts and the welcome notification only need the user, so they run concurrently
+    static final SagaDefinition USER_REGISTRATION = SagaDefinition.builder("user-registration")
+            .step("CREATE_USER", "user-service", "DELETE_USER")
+            .step("SETUP_ALERTS", "alert-trigger-service", "DISABLE_ALERTS", "CREATE_USER")
+            .step("SEND_WELCOME_NOTIFICATION", "notification-service", "SEND_FAILURE_NOTIFICATION", "CREATE_USER")
+            .build();
+
     @Autowired
-    private SagaEventProducer sagaEventProducer;
+    private SagaCompensationDispatcher sagaCompensationDispatcher;
 
-    // In-memory saga state storage (in production, use Redis or database)
-    private final Map<String, SagaState> sagaStates = new ConcurrentHashMap<>();
+    @Autowired
+    private SagaStateStore sagaStateStore;
 
-    public java.util.List<String> getActiveSagaIds() {
-        return sagaStates.values().stream()
-                .filter(state -> state.getStatus() == SagaStatus.IN_PROGRESS)
-                .map(SagaState::getSagaId)
-                .collect(java.util.stream.Collectors.toList());
-    }
+    @Autowired
+    private SagaLaneExecutor sagaLaneExecutor;
 
-    public String startUserRegistrationSaga(String correlationId) {
-        String sagaId = UUID.randomUUID().toString();
-        SagaState sagaState = new SagaState(sagaId, correlationId);
+    @Autowired
+    private SagaEventDeduplicator sagaEventDeduplicator;
 
-        // Define saga steps
-        sagaState.addStep(new SagaStep("CREATE_USER", "user-service", "DELETE_USER"));
-        sagaState.addStep(new SagaStep("SETUP_ALERTS", "alert-trigger-service", "DISABLE_ALERTS"));
-        sagaState.addStep(
-                new SagaStep("SEND_WELCOME_NOTIFICATION", "notification-service", "SEND_FAILURE_NOTIFICATION"));
+    @Autowired
+    private SagaMetrics sagaMetrics;
 
-        sagaStates.put(sagaId, sagaState);
+    @Autowired
+    private SagaCircuitBreakers sagaCircuitBreakers;
 
-        logger.info("Started user registration saga: {} with correlation: {}", sagaId, correlationId);
+    @Autowired
+    private SagaRetryBudget sagaRetryBudget;
 
-        // Start the first step
-        startNextStep(sagaId);
+    @Autowired
+    private SagaRetryManager sagaRetryManager;
 
+    @Autowired
+    private SagaPartitionOwnership sagaPartitionOwnership;
+
+    @Value("${saga.breaker.open-action:PARK}")
+    private BreakerOpenAction breakerOpenAction;
+
+    @Value("${saga.max.retry.attempts:3}")
+    private int maxRetryAttempts;
+
+    public java.util.List<String> getActiveSagaIds(int limit) {
+        return sagaStateStore.findSagaIds(SagaStatus.IN_PROGRESS, limit);
+    }
+
+    public SagaPage findSagas(SagaStatus status, LocalDateTime since, String cursor, int limit) {
+        long sinceMillis = since != null ? since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+        return sagaStateStore.findSagas(status, sinceMillis, cursor, limit);
+    }
+
+    public String startUserRegistrationSaga(String correlationId) {
+        // Started on a partition this instance consumes, so its events come back here
+        String sagaId = sagaPartitionOwnership.newSagaId();
+        sagaLaneExecutor.execute(sagaId, () -> initUserRegistrationSaga(sagaId, correlationId)).join();
         return sagaId;
     }
 
-    public void handleSagaEvent(SagaEvent event) {
-        String sagaId = event.getSagaId();
-        SagaState sagaState = sagaStates.get(sagaId);
+    private void initUserRegistrationSaga(String sagaId, String correlationId) {
+        SagaState sagaState = USER_REGISTRATION.newSagaState(sagaId, correlationId);
 
-        if (sagaState == null) {
-            logger.warn("Received event for unknown saga: {}", sagaId);
-            return;
+        logger.info("Started user registration saga: {} with correlation: {}", sagaId, correlationId);
+        sagaMetrics.recordSagaStarted(sagaId);
+
+        // Persisted before any step is dispatched, so no reply can arrive for a saga Redis lacks
+        sagaStateStore.save(sagaState);
+        startReadySteps(sagaState);
+        sagaStateStore.save(sagaState);
+    }
+
+    // Events of one saga are applied in order on that saga's lane
+    public CompletableFuture<Void> handleSagaEvent(SagaEvent event) {
+        if (event.getSagaId() == null) {
+            logger.warn("Received saga event without saga id: {}", event.getEventType());
+            return CompletableFuture.completedFuture(null);
         }
+        return sagaLaneExecutor.execute(event.getSagaId(), () -> {
+            // Redelivered events are dropped; an event is only remembered once it applied cleanly
+            if (sagaEventDeduplicator.isDuplicate(event.getSagaId(), event.getEventId())) {
+                logger.debug("Dropping duplicate saga event: {} for saga: {}", event.getEventId(), event.getSagaId());
+                return;
+            }
+            SagaState sagaState = sagaStateStore.get(event.getSagaId());
+            if (sagaState == null) {
+                logger.warn("Received event for unknown saga: {}", event.getSagaId());
+                return;
+            }
+            if (sagaState.hasApplied(event.getEventId())) {
+                logger.debug("Dropping already applied saga event: {} for saga: {}", event.getEventId(),
+                        event.getSagaId());
+                return;
+            }
+            applySagaEvent(event, sagaState);
+            sagaEventDeduplicator.markProcessed(event.getSagaId(), event.getEventId());
+        });
+    }
+
+    /**
+     * Applies an event routed by its record headers. The body is only decoded once the
+     * event is known not to be a duplicate and its saga exists; completes with whether it
+     * was. Without an event id the duplicate check waits for the decoded body.
+     */
+    public CompletableFuture<Boolean> handleSagaEvent(String sagaId, String eventId, Supplier<SagaEvent> body) {
+        return sagaLaneExecutor.submit(sagaId, () -> {
+            if (eventId != null && sagaEventDeduplicator.isDuplicate(sagaId, eventId)) {
+                logger.debug("Dropping duplicate saga event: {} for saga: {}", eventId, sagaId);
+                return false;
+            }
+            SagaState sagaState = sagaStateStore.get(sagaId);
+            if (sagaState == null) {
+                logger.warn("Received event for unknown saga: {}", sagaId);
+                return false;
+            }
+            // Applied by whichever instance owned the saga before, the window only knows its own
+            if (sagaState.hasApplied(eventId)) {
+                logger.debug("Dropping already applied saga event: {} for saga: {}", eventId, sagaId);
+                return false;
+            }
+
+            SagaEvent event = body.get();
+            if (event == null) {
+                return true;
+            }
+            if (eventId == null && (sagaEventDeduplicator.isDuplicate(sagaId, event.getEventId())
+                    || sagaState.hasApplied(event.getEventId()))) {
+                logger.debug("Dropping duplicate saga event: {} for saga: {}", event.getEventId(), sagaId);
+                return true;
+            }
+            applySagaEvent(event, sagaState);
+            sagaEventDeduplicator.markProcessed(sagaId, event.getEventId());
+            return true;
+        });
+    }
+
+    private void applySagaEvent(SagaEvent event, SagaState sagaState) {
+        String sagaId = sagaState.getSagaId();
 
         logger.info("Processing saga event: {} for saga: {}", event.getEventType(), sagaId);
 
@@ -90,71 +196,209 @@ public class SagaOrchestrator {
                 break;
             default:
                 logger.warn("Unknown saga event type: {}", event.getEventType());
+                return;
         }
+
+        // Write through once per event, after all transitions it caused, together with its id
+        sagaState.recordAppliedEvent(event.getEventId());
+        sagaStateStore.save(sagaState);
     }
 
     private void handleUserCreated(UserCreatedEvent event, SagaState sagaState) {
-        sagaState.markStepCompleted("CREATE_USER");
+        completeStep(sagaState, "CREATE_USER");
         logger.info("User created successfully for saga: {}", event.getSagaId());
-        startNextStep(event.getSagaId());
     }
 
     private void handleUserCreationFailed(UserCreationFailedEvent event, SagaState sagaState) {
+        recordStepEnd(findStep(sagaState, "CREATE_USER"), "failed");
         sagaState.markStepFailed("CREATE_USER", event.getErrorMessage());
         logger.error("User creation failed for saga: {} - {}", event.getSagaId(), event.getErrorMessage());
-        triggerCompensation(event.getSagaId(), "User creation failed");
+        triggerCompensation(sagaState, "User creation failed");
     }
 
     private void handleAlertSetupCompleted(AlertSetupCompletedEvent event, SagaState sagaState) {
-        sagaState.markStepCompleted("SETUP_ALERTS");
+        completeStep(sagaState, "SETUP_ALERTS");
         logger.info("Alert setup completed for saga: {}", event.getSagaId());
-        startNextStep(event.getSagaId());
     }
 
     private void handleAlertSetupFailed(AlertSetupFailedEvent event, SagaState sagaState) {
-        sagaState.markStepFailed("SETUP_ALERTS", event.getErrorMessage());
         logger.error("Alert setup failed for saga: {} - {}", event.getSagaId(), event.getErrorMessage());
-        triggerCompensation(event.getSagaId(), "Alert setup failed");
+        failStep(sagaState, "SETUP_ALERTS", event.getErrorMessage(), "Alert setup failed");
     }
 
     private void handleNotificationSent(NotificationSentEvent event, SagaState sagaState) {
-        sagaState.markStepCompleted("SEND_WELCOME_NOTIFICATION");
+        completeStep(sagaState, "SEND_WELCOME_NOTIFICATION");
         logger.info("Notification sent successfully for saga: {}", event.getSagaId());
-        completeSaga(event.getSagaId());
     }
 
     private void handleNotificationFailed(NotificationFailedEvent event, SagaState sagaState) {
-        sagaState.markStepFailed("SEND_WELCOME_NOTIFICATION", event.getErrorMessage());
         logger.error("Notification failed for saga: {} - {}", event.getSagaId(), event.getErrorMessage());
-        triggerCompensation(event.getSagaId(), "Notification failed");
+        failStep(sagaState, "SEND_WELCOME_NOTIFICATION", event.getErrorMessage(), "Notification failed");
     }
 
+    // Each compensation that comes back undoes its step and hands over to the next completed one
     private void handleSagaCompensation(SagaCompensationEvent event, SagaState sagaState) {
-        logger.info("Saga compensation completed for saga: {} - {}", event.getSagaId(), event.getCompensationReason());
-        sagaState.markSagaCompensated();
+        SagaStep undone = findStep(sagaState, event.getFailedStep());
+        if (undone != null && undone.getStatus() == SagaStepStatus.COMPLETED) {
+            sagaState.markStepCompensated(undone.getStepName());
+            logger.info("Step {} compensated for saga: {}", undone.getStepName(), event.getSagaId());
+        }
+
+        SagaStep nextStep = nextToCompensate(sagaState);
+        if (nextStep != null) {
+            publishCompensation(sagaState, nextStep, event.getCompensationReason(), CompensationPriority.NORMAL);
+            return;
+        }
+
+        if (sagaState.getStatus() != SagaStatus.COMPENSATED) {
+            logger.info("Saga compensation completed for saga: {} - {}", event.getSagaId(),
+                    event.getCompensationReason());
+            sagaState.markSagaCompensated();
+            sagaMetrics.recordSagaCompensated(sagaState.getSagaId());
+        }
     }
 
-    private void startNextStep(String sagaId) {
-        SagaState sagaState = sagaStates.get(sagaId);
-        if (sagaState == null)
+    private void completeStep(SagaState sagaState, String stepName) {
+        SagaStep completed = findStep(sagaState, stepName);
+        // Any other completed step of a failed saga means its compensation is still under way
+        boolean compensating = nextToCompensate(sagaState) != null;
+        recordStepEnd(completed, "completed");
+        sagaState.markStepCompleted(stepName);
+        if (completed != null && isParticipantStep(completed)) {
+            sagaCircuitBreakers.onSuccess(completed.getServiceName());
+        }
+
+        // A branch that finishes after a sibling failed has nothing left to join, undo it. The
+        // compensation under way reaches it on its own, otherwise it is undone by itself
+        if (sagaState.getStatus() != SagaStatus.PENDING && sagaState.getStatus() != SagaStatus.IN_PROGRESS) {
+            if (completed != null && !compensating) {
+                publishCompensation(sagaState, completed, "Step completed after saga failed",
+                        CompensationPriority.HIGH);
+            }
             return;
+        }
 
-        // Find next pending step
-        SagaStep nextStep = sagaState.getSteps().stream()
-                .filter(step -> step.getStatus() == SagaStepStatus.PENDING)
-                .findFirst()
-                .orElse(null);
+        if (sagaState.getStatus() == SagaStatus.PENDING) {
+            sagaState.setStatus(SagaStatus.IN_PROGRESS);
+        }
+        startReadySteps(sagaState);
+    }
 
-        if (nextStep == null) {
-            completeSaga(sagaId);
+    private void startReadySteps(SagaState sagaState) {
+        if (USER_REGISTRATION.isComplete(sagaState)) {
+            completeSaga(sagaState);
             return;
         }
 
-        nextStep.setStatus(SagaStepStatus.IN_PROGRESS);
-        logger.info("Starting next step: {} for saga: {}", nextStep.getStepName(), sagaId);
+        // Dispatch every step whose dependencies are done; the rest wait for their branch to join
+        for (SagaStep nextStep : USER_REGISTRATION.readySteps(sagaState)) {
+            // A rejected sibling may already have failed the saga
+            if (!SagaDeadlineIndex.isRunning(sagaState)) {
+                return;
+            }
+            sagaRetryBudget.onFirstAttempt();
+            dispatchStep(sagaState, nextStep);
+        }
+    }
+
+    /**
+     * Records a participant failure and decides what happens to the saga: retry the step
+     * while attempts and the retry budget last, park it while the participant's circuit is
+     * open, otherwise fail the saga and compensate.
+     */
+    private void failStep(SagaState sagaState, String stepName, String errorMessage, String reason) {
+        SagaStep step = findStep(sagaState, stepName);
+        recordStepEnd(step, "failed");
+        if (step != null && isParticipantStep(step)) {
+            String serviceName = step.getServiceName();
+            sagaCircuitBreakers.onFailure(serviceName);
+
+            if (SagaDeadlineIndex.isRunning(sagaState) && step.getRetryCount() < maxRetryAttempts) {
+                if (sagaCircuitBreakers.isOpen(serviceName)) {
+                    if (breakerOpenAction == BreakerOpenAction.PARK) {
+                        parkStep(sagaState, step, errorMessage);
+                        return;
+                    }
+                } else if (sagaRetryBudget.tryAcquireRetry()) {
+                    holdStep(step, errorMessage);
+                    sagaMetrics.recordSagaStepRetry(stepName);
+                    sagaRetryManager.scheduleRetry(sagaState.getSagaId(), stepName, step.getRetryCount());
+                    return;
+                }
+            }
+        }
+
+        // A sibling failing after the saga did leaves the compensation under way to finish
+        boolean running = SagaDeadlineIndex.isRunning(sagaState);
+        sagaState.markStepFailed(stepName, errorMessage);
+        if (running) {
+            triggerCompensation(sagaState, reason);
+        }
+    }
+
+    private void rejectStep(SagaState sagaState, SagaStep step) {
+        String error = "Circuit open for " + step.getServiceName();
+        logger.warn("Not dispatching step: {} for saga: {} - {}", step.getStepName(), sagaState.getSagaId(), error);
+
+        if (breakerOpenAction == BreakerOpenAction.PARK) {
+            parkStep(sagaState, step, error);
+        } else {
+            sagaState.markStepFailed(step.getStepName(), error);
+            triggerCompensation(sagaState, error);
+        }
+    }
+
+    private void parkStep(SagaState sagaState, SagaStep step, String errorMessage) {
+        holdStep(step, errorMessage);
+        sagaRetryManager.park(sagaState.getSagaId(), step.getStepName(), step.getRetryCount(),
+                sagaCircuitBreakers.remainingOpenMillis(step.getServiceName()));
+    }
+
+    // Fails the step alone, the saga keeps running until the step is retried
+    private void holdStep(SagaStep step, String errorMessage) {
+        step.setStatus(SagaStepStatus.FAILED);
+        step.setErrorMessage(errorMessage);
+        step.setEndTime(LocalDateTime.now());
+    }
+
+    /**
+     * Re-dispatches a failed step as a retry. Completes with false when there is nothing to
+     * retry: the saga is gone or settled, or the step is no longer failed.
+     */
+    public CompletableFuture<Boolean> retryStep(String sagaId, String stepName, int attempt) {
+        return sagaLaneExecutor.submit(sagaId, () -> {
+            SagaState sagaState = sagaStateStore.get(sagaId);
+            if (sagaState == null || !SagaDeadlineIndex.isRunning(sagaState)) {
+                return false;
+            }
+            SagaStep step = findStep(sagaState, stepName);
+            if (step == null || step.getStatus() != SagaStepStatus.FAILED) {
+                return false;
+            }
+
+            logger.info("Retrying step: {} for saga: {} (attempt {})", stepName, sagaId, attempt);
+            step.setRetryCount(attempt);
+            step.setErrorMessage(null);
+            dispatchStep(sagaState, step);
+            sagaStateStore.save(sagaState);
+            return true;
+        });
+    }
+
+    private void dispatchStep(SagaState sagaState, SagaStep step) {
+        if (isParticipantStep(step) && !sagaCircuitBreakers.tryAcquire(step.getServiceName())) {
+            rejectStep(sagaState, step);
+            return;
+        }
 
-        // Trigger the next step based on step name
-        switch (nextStep.getStepName()) {
+        String sagaId = sagaState.getSagaId();
+        step.setStatus(SagaStepStatus.IN_PROGRESS);
+        step.setStartTime(LocalDateTime.now());
+        sagaState.setCurrentStep(step.getStepName());
+        logger.info("Starting step: {} for saga: {}", step.getStepName(), sagaId);
+
+        // Trigger the step based on step name
+        switch (step.getStepName()) {
             case "CREATE_USER":
                 // This step is already handled by the service that starts the saga
                 break;
@@ -167,6 +411,26 @@ public class SagaOrchestrator {
         }
     }
 
+    // Only steps that were actually dispatched have a duration
+    private void recordStepEnd(SagaStep step, String outcome) {
+        if (step != null && step.getStatus() == SagaStepStatus.IN_PROGRESS && step.getStartTime() != null) {
+            sagaMetrics.recordSagaStepDuration(step.getStepName(), outcome,
+                    Duration.between(step.getStartTime(), LocalDateTime.now()));
+        }
+    }
+
+    // Steps run by this service itself are not guarded by a participant circuit
+    private static boolean isParticipantStep(SagaStep step) {
+        return step.getServiceName() != null && !"user-service".equals(step.getServiceName());
+    }
+
+    private static SagaStep findStep(SagaState sagaState, String stepName) {
+        return sagaState.getSteps().stream()
+                .filter(step -> step.getStepName().equals(stepName))
+                .findFirst()
+                .orElse(null);
+    }
+
     private void triggerAlertSetup(String sagaId, SagaState sagaState) {
         // Find user data from the saga state
         // In a real implementation, you would store user data in the saga state
@@ -179,36 +443,46 @@ public class SagaOrchestrator {
         // This would typically send a message to the notification service
     }
 
-    private void completeSaga(String sagaId) {
-        SagaState sagaState = sagaStates.get(sagaId);
-        if (sagaState != null) {
-            sagaState.markSagaCompleted();
-            logger.info("Saga completed successfully: {}", sagaId);
-        }
+    private void completeSaga(SagaState sagaState) {
+        sagaState.markSagaCompleted();
+        sagaMetrics.recordSagaCompleted(sagaState.getSagaId());
+        logger.info("Saga completed successfully: {}", sagaState.getSagaId());
     }
 
-    private void triggerCompensation(String sagaId, String reason) {
-        SagaState sagaState = sagaStates.get(sagaId);
-        if (sagaState == null)
-            return;
+    private void triggerCompensation(SagaState sagaState, String reason) {
+        String sagaId = sagaState.getSagaId();
 
         logger.info("Triggering compensation for saga: {} - {}", sagaId, reason);
+        sagaMetrics.recordSagaFailed(sagaId);
+        sagaMetrics.recordSagaCompensationTriggered(reason);
 
-        // Find the last completed step and trigger its compensation
-        SagaStep lastCompletedStep = sagaState.getSteps().stream()
-                .filter(step -> step.getStatus() == SagaStepStatus.COMPLETED)
-                .reduce((first, second) -> second)
-                .orElse(null);
-
+        // Steps are undone one at a time, the most dependent first; handleSagaCompensation
+        // publishes the next one when the previous compensation comes back
+        SagaStep lastCompletedStep = nextToCompensate(sagaState);
         if (lastCompletedStep != null) {
-            SagaCompensationEvent compensationEvent = new SagaCompensationEvent(
-                    sagaId, sagaState.getCorrelationId(), reason, lastCompletedStep.getStepName(),
-                    Collections.singletonMap("compensationAction", lastCompletedStep.getCompensationAction()));
-            sagaEventProducer.publishSagaEvent(compensationEvent);
+            publishCompensation(sagaState, lastCompletedStep, reason, CompensationPriority.NORMAL);
         }
     }
 
+    private static SagaStep nextToCompensate(SagaState sagaState) {
+        return USER_REGISTRATION.compensationOrder(sagaState).stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void publishCompensation(SagaState sagaState, SagaStep step, String reason,
+            CompensationPriority priority) {
+        SagaCompensationEvent compensationEvent = new SagaCompensationEvent(
+                sagaState.getSagaId(), sagaState.getCorrelationId(), reason, step.getStepName(),
+                Collections.singletonMap("compensationAction", step.getCompensationAction()));
+        sagaCompensationDispatcher.dispatch(compensationEvent, priority);
+    }
+
+    // Readers get a snapshot taken on the lane, never the live object
     public SagaState getSagaState(String sagaId) {
-        return sagaStates.get(sagaId);
+        return sagaLaneExecutor.submit(sagaId, () -> {
+            SagaState sagaState = sagaStateStore.getIncludingArchived(sagaId);
+            return sagaState != null ? sagaState.copy() : null;
+        }).join();
     }
 }
@@ -0,0 +1,151 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves settled sagas from Redis into {@code saga_history} in batches, so Redis only
+ * holds sagas that can still change. Candidates come from the status index; a saga is only
+ * archived once it has been settled for the minimum age. Each batch is inserted in one
+ * transaction and only deleted from Redis once it committed, and only where the saga is
+ * still in the state that was archived. A crash in between, or a saga that moved on, leaves
+ * it in both places and the next run archives its latest state over the earlier one.
+ * Each status set is paged with a cursor, so failed sagas still owing compensation at the
+ * old end of a set do not hold back the settled ones behind them.
+ */
+@Component
+public class SagaArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaArchiver.class);
+    // Statuses a saga can settle in
+    private static final SagaStatus[] ARCHIVED_STATUSES = {
+            SagaStatus.COMPLETED, SagaStatus.COMPENSATED, SagaStatus.FAILED, SagaStatus.TIMEOUT };
+    // Serializes archiving across replicas
+    private static final long ARCHIVE_LOCK_KEY = 0x7465_6c63_7361_6761L;
+
+    private final SagaStatusIndex sagaStatusIndex;
+    private final SagaStateRepository sagaStateRepository;
+    private final SagaHistoryRepository sagaHistoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration minAge;
+    private final int batchSize;
+
+    private final Counter archivedCounter;
+    private final Counter failureCounter;
+    private final Timer batchTimer;
+
+    public SagaArchiver(SagaStatusIndex sagaStatusIndex,
+            SagaStateRepository sagaStateRepository,
+            SagaHistoryRepository sagaHistoryRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${saga.archive.min-age-minutes:15}") long minAgeMinutes,
+            @Value("${saga.archive.batch-size:500}") int batchSize) {
+        this.sagaStatusIndex = sagaStatusIndex;
+        this.sagaStateRepository = sagaStateRepository;
+        this.sagaHistoryRepository = sagaHistoryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minAge = Duration.ofMinutes(minAgeMinutes);
+        this.batchSize = batchSize;
+
+        this.archivedCounter = Counter.builder("saga.archive.archived.total")
+                .description("Settled sagas moved from Redis to saga_history")
+                .register(meterRegistry);
+
+        this.failureCounter = Counter.builder("saga.archive.failures.total")
+                .description("Saga archive batches that failed and were left in Redis")
+                .register(meterRegistry);
+
+        this.batchTimer = Timer.builder("saga.archive.batch.duration")
+                .description("Time to archive one batch of sagas")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${saga.archive.interval-ms:60000}")
+    public void archiveSettledSagas() {
+        // A saga ends after it starts, so those started since cannot have settled long enough
+        long startedBefore = System.currentTimeMillis() - minAge.toMillis();
+        for (SagaStatus status : ARCHIVED_STATUSES) {
+            try {
+                String cursor = null;
+                do {
+                    SagaStatusIndex.Page page = sagaStatusIndex.page(status, 0, startedBefore, cursor, batchSize);
+                    if (page.getSagaIds().isEmpty() || !archiveBatch(status, page.getSagaIds())) {
+                        break;
+                    }
+                    cursor = page.getNextCursor();
+                } while (cursor != null);
+            } catch (Exception e) {
+                failureCounter.increment();
+                logger.error("Failed to archive {} sagas", status, e);
+            }
+        }
+    }
+
+    // Returns false when another instance holds the archive lock
+    private boolean archiveBatch(SagaStatus status, List<String> candidates) {
+        return batchTimer.record(() -> {
+            // Recently settled sagas may still receive late events, leave them in Redis for a while
+            LocalDateTime settledBefore = LocalDateTime.now().minus(minAge);
+            List<SagaState> settled = new ArrayList<>();
+            for (SagaState sagaState : sagaStateRepository.getSagaStates(candidates)) {
+                LocalDateTime lastChange = SagaStateStore.lastChangedAt(sagaState);
+                if (SagaStateStore.isSettled(sagaState) && lastChange != null && lastChange.isBefore(settledBefore)) {
+                    settled.add(sagaState);
+                }
+            }
+
+            Boolean committed = transactionTemplate.execute(tx -> {
+                Boolean locked = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ARCHIVE_LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) {
+                    logger.debug("Saga archiving is running on another instance");
+                    return false;
+                }
+                try {
+                    sagaHistoryRepository.archive(settled);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to archive saga batch", e);
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(committed)) {
+                return false;
+            }
+
+            // A saga updated since it was read, say a failed one that finished compensating, stays
+            Set<String> archivedIds = sagaStateRepository.deleteSagaStatesIfUnchanged(settled);
+            // Sagas still owing compensation or too recent stay; entries whose hash expired are dropped too
+            List<String> retained = new ArrayList<>(candidates);
+            retained.removeAll(archivedIds);
+            Set<String> existing = sagaStateRepository.existingSagaIds(retained);
+            List<String> removed = new ArrayList<>(candidates);
+            removed.removeIf(sagaId -> !archivedIds.contains(sagaId) && existing.contains(sagaId));
+            sagaStatusIndex.remove(removed);
+
+            archivedCounter.increment(archivedIds.size());
+            logger.debug("Archived {} {} sagas", archivedIds.size(), status);
+            return true;
+        });
+    }
+}
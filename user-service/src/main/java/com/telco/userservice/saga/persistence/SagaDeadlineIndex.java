@@ -0,0 +1,94 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Redis sorted set of running sagas scored by their next deadline, the earlier of the
+ * overall saga deadline and the deadline of the step in progress. Timeout scans read
+ * only the expired prefix instead of loading every active saga.
+ */
+@Repository
+public class SagaDeadlineIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaDeadlineIndex.class);
+    private static final String DEADLINE_KEY = "saga:deadlines";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final Duration sagaTimeout;
+    private final Duration stepTimeout;
+
+    public SagaDeadlineIndex(RedisTemplate<String, String> redisTemplate,
+            @Value("${saga.timeout.minutes:10}") long sagaTimeoutMinutes,
+            @Value("${saga.step.timeout.minutes:2}") long stepTimeoutMinutes) {
+        this.redisTemplate = redisTemplate;
+        this.sagaTimeout = Duration.ofMinutes(sagaTimeoutMinutes);
+        this.stepTimeout = Duration.ofMinutes(stepTimeoutMinutes);
+    }
+
+    public void update(SagaState sagaState) {
+        if (isRunning(sagaState)) {
+            redisTemplate.opsForZSet().add(DEADLINE_KEY, sagaState.getSagaId(), deadlineOf(sagaState));
+        } else {
+            remove(sagaState.getSagaId());
+        }
+    }
+
+    public void remove(String sagaId) {
+        redisTemplate.opsForZSet().remove(DEADLINE_KEY, sagaId);
+    }
+
+    public Set<String> findExpired(long nowMillis, long offset, int limit) {
+        Set<String> sagaIds = redisTemplate.opsForZSet().rangeByScore(DEADLINE_KEY, 0, nowMillis, offset, limit);
+        return sagaIds != null ? sagaIds : Collections.emptySet();
+    }
+
+    // Only the instance whose ZREM succeeds handles the deadline
+    public boolean claim(String sagaId) {
+        Long removed = redisTemplate.opsForZSet().remove(DEADLINE_KEY, sagaId);
+        if (removed == null || removed == 0) {
+            logger.debug("Deadline for saga {} already claimed", sagaId);
+            return false;
+        }
+        return true;
+    }
+
+    public long deadlineOf(SagaState sagaState) {
+        long deadline = toEpochMillis(sagaState.getStartTime().plus(sagaTimeout));
+        for (SagaStep step : sagaState.getSteps()) {
+            if (step.getStatus() == SagaStepStatus.IN_PROGRESS && step.getStartTime() != null) {
+                deadline = Math.min(deadline, toEpochMillis(step.getStartTime().plus(stepTimeout)));
+            }
+        }
+        return deadline;
+    }
+
+    public Duration getSagaTimeout() {
+        return sagaTimeout;
+    }
+
+    public Duration getStepTimeout() {
+        return stepTimeout;
+    }
+
+    public static boolean isRunning(SagaState sagaState) {
+        return sagaState.getStatus() == SagaStatus.PENDING || sagaState.getStatus() == SagaStatus.IN_PROGRESS;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
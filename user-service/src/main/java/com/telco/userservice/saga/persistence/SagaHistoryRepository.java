@@ -0,0 +1,81 @@
+package com.telco.userservice.saga.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.state.SagaState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Postgres archive of settled sagas ({@code saga_history}). Each row keeps the same flat
+ * field map as the Redis hash (see {@link SagaStateCodec}) plus the columns needed to
+ * partition and filter, so archived sagas decode exactly like live ones.
+ */
+@Repository
+public class SagaHistoryRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaHistoryRepository.class);
+    private static final TypeReference<Map<String, String>> FIELDS_TYPE = new TypeReference<>() {
+    };
+
+    // Re-archiving a saga whose Redis copy outlived a previous run stores its latest state
+    private static final String INSERT_SQL = "INSERT INTO saga_history " +
+            "(saga_id, correlation_id, status, started_at, ended_at, state) VALUES (?, ?, ?, ?, ?, ?::jsonb) " +
+            "ON CONFLICT (saga_id, started_at) DO UPDATE SET status = EXCLUDED.status, " +
+            "ended_at = EXCLUDED.ended_at, state = EXCLUDED.state";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final SagaStateCodec codec;
+
+    public SagaHistoryRepository(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.codec = new SagaStateCodec(objectMapper);
+    }
+
+    public void archive(List<SagaState> sagaStates) throws JsonProcessingException {
+        List<Object[]> rows = new ArrayList<>(sagaStates.size());
+        for (SagaState sagaState : sagaStates) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            codec.encode(sagaState).forEach((field, value) -> {
+                if (value != null) {
+                    fields.put(field, value);
+                }
+            });
+            rows.add(new Object[] {
+                    sagaState.getSagaId(),
+                    sagaState.getCorrelationId(),
+                    sagaState.getStatus().name(),
+                    Timestamp.valueOf(sagaState.getStartTime()),
+                    sagaState.getEndTime() != null ? Timestamp.valueOf(sagaState.getEndTime()) : null,
+                    objectMapper.writeValueAsString(fields) });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    public Optional<SagaState> find(String sagaId) {
+        List<String> states = jdbcTemplate.queryForList(
+                "SELECT state FROM saga_history WHERE saga_id = ? ORDER BY started_at DESC LIMIT 1",
+                String.class, sagaId);
+        if (states.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(codec.decode(sagaId, objectMapper.readValue(states.get(0), FIELDS_TYPE)));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            logger.error("Failed to deserialize archived saga: {}", sagaId, e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.state.SagaState;
+
+import java.util.List;
+
+/**
+ * One page of a saga listing. {@code nextCursor} is null on the last page.
+ */
+public class SagaPage {
+
+    private final List<SagaState> sagas;
+    private final String nextCursor;
+
+    public SagaPage(List<SagaState> sagas, String nextCursor) {
+        this.sagas = sagas;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SagaState> getSagas() {
+        return sagas;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,145 @@
+package com.telco.userservice.saga.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flat Redis hash encoding of a saga. Saga fields use short names and each step owns a
+ * group of {@code s.<step>.<field>} entries, so one step can be updated with a single
+ * HSET. Timestamps are epoch millis and absent values are simply missing fields.
+ */
+public class SagaStateCodec {
+
+    static final String CORRELATION_ID = "cid";
+    static final String STATUS = "st";
+    static final String START_TIME = "t0";
+    static final String END_TIME = "t1";
+    static final String CURRENT_STEP = "cur";
+    static final String FAILURE_REASON = "err";
+    static final String COMPENSATION_REQUIRED = "comp";
+    static final String STEP_NAMES = "steps";
+    static final String APPLIED_EVENT_IDS = "ev";
+
+    static final String STEP_SERVICE = "svc";
+    static final String STEP_STATUS = "st";
+    static final String STEP_START_TIME = "t0";
+    static final String STEP_END_TIME = "t1";
+    static final String STEP_ERROR = "err";
+    static final String STEP_COMPENSATION = "comp";
+    static final String STEP_DATA = "data";
+    static final String STEP_RETRY_COUNT = "n";
+
+    private static final String STEP_PREFIX = "s.";
+    private static final String STEP_SEPARATOR = ",";
+
+    private final ObjectMapper objectMapper;
+
+    public SagaStateCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static String stepField(String stepName, String field) {
+        return STEP_PREFIX + stepName + "." + field;
+    }
+
+    /**
+     * Encodes every field of the saga. Entries with a null value are fields that must be
+     * removed from an existing hash.
+     */
+    public Map<String, String> encode(SagaState sagaState) throws JsonProcessingException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put(CORRELATION_ID, sagaState.getCorrelationId());
+        fields.put(STATUS, name(sagaState.getStatus()));
+        fields.put(START_TIME, toMillis(sagaState.getStartTime()));
+        fields.put(END_TIME, toMillis(sagaState.getEndTime()));
+        fields.put(CURRENT_STEP, sagaState.getCurrentStep());
+        fields.put(FAILURE_REASON, sagaState.getFailureReason());
+        fields.put(COMPENSATION_REQUIRED, sagaState.isCompensationRequired() ? "1" : "0");
+
+        List<String> stepNames = new ArrayList<>();
+        for (SagaStep step : sagaState.getSteps()) {
+            String stepName = step.getStepName();
+            stepNames.add(stepName);
+            fields.put(stepField(stepName, STEP_SERVICE), step.getServiceName());
+            fields.put(stepField(stepName, STEP_STATUS), name(step.getStatus()));
+            fields.put(stepField(stepName, STEP_START_TIME), toMillis(step.getStartTime()));
+            fields.put(stepField(stepName, STEP_END_TIME), toMillis(step.getEndTime()));
+            fields.put(stepField(stepName, STEP_ERROR), step.getErrorMessage());
+            fields.put(stepField(stepName, STEP_COMPENSATION), step.getCompensationAction());
+            fields.put(stepField(stepName, STEP_DATA),
+                    step.getStepData() != null ? objectMapper.writeValueAsString(step.getStepData()) : null);
+            fields.put(stepField(stepName, STEP_RETRY_COUNT),
+                    step.getRetryCount() > 0 ? String.valueOf(step.getRetryCount()) : null);
+        }
+        fields.put(STEP_NAMES, String.join(STEP_SEPARATOR, stepNames));
+        fields.put(APPLIED_EVENT_IDS, sagaState.getAppliedEventIds().isEmpty() ? null
+                : String.join(STEP_SEPARATOR, sagaState.getAppliedEventIds()));
+        return fields;
+    }
+
+    public SagaState decode(String sagaId, Map<String, String> fields) throws JsonProcessingException {
+        if (fields.get(STATUS) == null) {
+            throw new IllegalArgumentException("Saga hash has no status field: " + sagaId);
+        }
+        SagaState sagaState = new SagaState(sagaId, fields.get(CORRELATION_ID));
+        sagaState.setStatus(SagaStatus.valueOf(fields.get(STATUS)));
+        sagaState.setStartTime(fromMillis(fields.get(START_TIME)));
+        sagaState.setEndTime(fromMillis(fields.get(END_TIME)));
+        sagaState.setCurrentStep(fields.get(CURRENT_STEP));
+        sagaState.setFailureReason(fields.get(FAILURE_REASON));
+        sagaState.setCompensationRequired("1".equals(fields.get(COMPENSATION_REQUIRED)));
+
+        String stepNames = fields.get(STEP_NAMES);
+        if (stepNames != null && !stepNames.isEmpty()) {
+            for (String stepName : stepNames.split(STEP_SEPARATOR)) {
+                SagaStep step = new SagaStep(stepName, fields.get(stepField(stepName, STEP_SERVICE)),
+                        fields.get(stepField(stepName, STEP_COMPENSATION)));
+                step.setStatus(SagaStepStatus.valueOf(fields.get(stepField(stepName, STEP_STATUS))));
+                step.setStartTime(fromMillis(fields.get(stepField(stepName, STEP_START_TIME))));
+                step.setEndTime(fromMillis(fields.get(stepField(stepName, STEP_END_TIME))));
+                step.setErrorMessage(fields.get(stepField(stepName, STEP_ERROR)));
+                String retryCount = fields.get(stepField(stepName, STEP_RETRY_COUNT));
+                step.setRetryCount(retryCount != null ? Integer.parseInt(retryCount) : 0);
+                String stepData = fields.get(stepField(stepName, STEP_DATA));
+                if (stepData != null) {
+                    step.setStepData(objectMapper.readValue(stepData, Object.class));
+                }
+                sagaState.getSteps().add(step);
+            }
+        }
+
+        String appliedEventIds = fields.get(APPLIED_EVENT_IDS);
+        if (appliedEventIds != null && !appliedEventIds.isEmpty()) {
+            for (String eventId : appliedEventIds.split(STEP_SEPARATOR)) {
+                sagaState.recordAppliedEvent(eventId);
+            }
+        }
+        return sagaState;
+    }
+
+    static String toMillis(LocalDateTime dateTime) {
+        return dateTime != null ? String.valueOf(dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                : null;
+    }
+
+    static LocalDateTime fromMillis(String millis) {
+        return millis != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(millis)),
+                ZoneId.systemDefault()) : null;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
@@ -3,71 +3,289 @@ package com.telco.userservice.saga.persistence;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * Stores each saga as a Redis hash (see {@link SagaStateCodec}). Writes go through Lua
+ * scripts that refuse to move a step out of a final status, so a stale full save or a
+ * late duplicate transition cannot undo a step another writer already finished. The one
+ * way out is COMPLETED to COMPENSATED, when a finished step is undone.
+ */
 @Repository
 public class SagaStateRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(SagaStateRepository.class);
-    private static final String SAGA_KEY_PREFIX = "saga:state:";
-    private static final Duration SAGA_TTL = Duration.ofHours(24); // 24 hours TTL
+    // Hash encoding, distinct from the former JSON string keys so they simply expire
+    private static final String SAGA_KEY_PREFIX = "saga:h:";
+    static final Duration SAGA_TTL = Duration.ofHours(24); // 24 hours TTL
 
-    @Autowired
-    private RedisTemplate<String, String> redisTemplate;
+    // Whether a step in status v must not move to status next
+    private static final String FINAL_STEP_CHECK =
+            "local function final(v, next)\n" +
+            "  if v == 'COMPLETED' then return next ~= 'COMPENSATED' end\n" +
+            "  return v == 'COMPENSATED' or v == 'SKIPPED'\n" +
+            "end\n";
 
-    @Autowired
-    private ObjectMapper objectMapper;
+    // ARGV: ttl seconds, number of fields to set, field/value pairs, then fields to delete
+    private static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(FINAL_STEP_CHECK +
+            "local key = KEYS[1]\n" +
+            "local n = tonumber(ARGV[2])\n" +
+            "for i = 0, n - 1 do\n" +
+            "  local field = ARGV[3 + 2 * i]\n" +
+            "  local value = ARGV[4 + 2 * i]\n" +
+            "  local isStepStatus = string.sub(field, 1, 2) == 's.' and string.sub(field, -3) == '.st'\n" +
+            "  if not (isStepStatus and final(redis.call('HGET', key, field), value)) then\n" +
+            "    redis.call('HSET', key, field, value)\n" +
+            "  end\n" +
+            "end\n" +
+            "for i = 3 + 2 * n, #ARGV do redis.call('HDEL', key, ARGV[i]) end\n" +
+            "redis.call('EXPIRE', key, ARGV[1])\n" +
+            "return 1", Long.class);
 
+    // ARGV: per key, the number of field/value pairs it must still hold, then those pairs.
+    // Returns the positions of the keys that matched and were deleted
+    private static final RedisScript<List> DELETE_UNCHANGED_SCRIPT = new DefaultRedisScript<>(
+            "local deleted = {}\n" +
+            "local i = 1\n" +
+            "for k = 1, #KEYS do\n" +
+            "  local n = tonumber(ARGV[i])\n" +
+            "  local unchanged = true\n" +
+            "  for j = 0, n - 1 do\n" +
+            "    if redis.call('HGET', KEYS[k], ARGV[i + 1 + 2 * j]) ~= ARGV[i + 2 + 2 * j] then unchanged = false end\n" +
+            "  end\n" +
+            "  if unchanged then\n" +
+            "    redis.call('DEL', KEYS[k])\n" +
+            "    deleted[#deleted + 1] = k\n" +
+            "  end\n" +
+            "  i = i + 1 + 2 * n\n" +
+            "end\n" +
+            "return deleted", List.class);
+
+    // ARGV: step status field, new status, then field/value pairs applied with it
+    private static final RedisScript<Long> STEP_TRANSITION_SCRIPT = new DefaultRedisScript<>(FINAL_STEP_CHECK +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+            "if final(redis.call('HGET', KEYS[1], ARGV[1]), ARGV[2]) then return 0 end\n" +
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end\n" +
+            "return 1", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final SagaStateCodec codec;
+
+    public SagaStateRepository(RedisTemplate<String, String> redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.codec = new SagaStateCodec(objectMapper);
+    }
+
+    /**
+     * Writes the whole saga. Throws when it cannot be encoded, so callers never take an
+     * unwritten saga for a persisted one.
+     */
     public void saveSagaState(SagaState sagaState) {
         try {
             String key = SAGA_KEY_PREFIX + sagaState.getSagaId();
-            String json = objectMapper.writeValueAsString(sagaState);
+            Map<String, String> fields = codec.encode(sagaState);
 
-            redisTemplate.opsForValue().set(key, json, SAGA_TTL);
+            List<String> setArgs = new ArrayList<>();
+            List<String> deleteArgs = new ArrayList<>();
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                if (field.getValue() != null) {
+                    setArgs.add(field.getKey());
+                    setArgs.add(field.getValue());
+                } else {
+                    deleteArgs.add(field.getKey());
+                }
+            }
+
+            List<String> args = new ArrayList<>(setArgs.size() + deleteArgs.size() + 2);
+            args.add(String.valueOf(SAGA_TTL.toSeconds()));
+            args.add(String.valueOf(setArgs.size() / 2));
+            args.addAll(setArgs);
+            args.addAll(deleteArgs);
+
+            redisTemplate.execute(SAVE_SCRIPT, List.of(key), args.toArray());
             logger.debug("Saved saga state for saga: {}", sagaState.getSagaId());
 
         } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize saga state for saga: {}", sagaState.getSagaId(), e);
+            throw new IllegalArgumentException("Failed to serialize saga state for saga: " + sagaState.getSagaId(), e);
         }
     }
 
+    /**
+     * Atomically moves one step to a new status without reading the saga, stamping its start
+     * or end with the given time. Returns false when the saga is gone or the step already
+     * reached a final status.
+     */
+    public boolean updateStepStatus(String sagaId, String stepName, SagaStepStatus status, String errorMessage,
+            boolean compensationRequired, LocalDateTime at) {
+        String key = SAGA_KEY_PREFIX + sagaId;
+        String now = SagaStateCodec.toMillis(at);
+
+        List<String> args = new ArrayList<>();
+        args.add(SagaStateCodec.stepField(stepName, SagaStateCodec.STEP_STATUS));
+        args.add(status.name());
+        if (status == SagaStepStatus.IN_PROGRESS) {
+            args.add(SagaStateCodec.stepField(stepName, SagaStateCodec.STEP_START_TIME));
+            args.add(now);
+        } else if (status != SagaStepStatus.PENDING) {
+            args.add(SagaStateCodec.stepField(stepName, SagaStateCodec.STEP_END_TIME));
+            args.add(now);
+        }
+        if (errorMessage != null) {
+            args.add(SagaStateCodec.stepField(stepName, SagaStateCodec.STEP_ERROR));
+            args.add(errorMessage);
+        }
+        if (compensationRequired) {
+            args.add(SagaStateCodec.COMPENSATION_REQUIRED);
+            args.add("1");
+        }
+
+        Long result = redisTemplate.execute(STEP_TRANSITION_SCRIPT, List.of(key), args.toArray());
+        if (result == null || result != 1) {
+            logger.debug("Step transition {} -> {} rejected for saga: {} (result {})", stepName, status, sagaId,
+                    result);
+            return false;
+        }
+        return true;
+    }
+
     public Optional<SagaState> getSagaState(String sagaId) {
         try {
             String key = SAGA_KEY_PREFIX + sagaId;
-            String json = redisTemplate.opsForValue().get(key);
+            Map<String, String> fields = redisTemplate.<String, String>opsForHash().entries(key);
 
-            if (json == null) {
+            if (fields.isEmpty()) {
                 return Optional.empty();
             }
 
-            SagaState sagaState = objectMapper.readValue(json, SagaState.class);
+            SagaState sagaState = codec.decode(sagaId, fields);
             logger.debug("Retrieved saga state for saga: {}", sagaId);
             return Optional.of(sagaState);
 
-        } catch (JsonProcessingException e) {
+        } catch (JsonProcessingException | IllegalArgumentException e) {
             logger.error("Failed to deserialize saga state for saga: {}", sagaId, e);
             return Optional.empty();
         }
     }
 
+    /**
+     * Loads several sagas in one pipelined round trip, in the order given. Sagas that are
+     * gone or unreadable are left out.
+     */
+    @SuppressWarnings("unchecked")
+    public List<SagaState> getSagaStates(List<String> sagaIds) {
+        if (sagaIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String sagaId : sagaIds) {
+                connection.hashCommands().hGetAll((SAGA_KEY_PREFIX + sagaId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        List<SagaState> sagaStates = new ArrayList<>(sagaIds.size());
+        for (int i = 0; i < sagaIds.size(); i++) {
+            Map<String, String> fields = (Map<String, String>) results.get(i);
+            if (fields == null || fields.isEmpty()) {
+                continue;
+            }
+            try {
+                sagaStates.add(codec.decode(sagaIds.get(i), fields));
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                logger.error("Failed to deserialize saga state for saga: {}", sagaIds.get(i), e);
+            }
+        }
+        return sagaStates;
+    }
+
     public void deleteSagaState(String sagaId) {
         String key = SAGA_KEY_PREFIX + sagaId;
         redisTemplate.delete(key);
         logger.debug("Deleted saga state for saga: {}", sagaId);
     }
 
+    /**
+     * Deletes the given sagas unless their status or a step status moved on since they were
+     * read, and returns the ids of those deleted. A saga that changed meanwhile, such as a
+     * failed one that finished compensating, stays in Redis with its newer state.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> deleteSagaStatesIfUnchanged(Collection<SagaState> sagaStates) {
+        if (sagaStates.isEmpty()) {
+            return Set.of();
+        }
+        List<String> sagaIds = new ArrayList<>(sagaStates.size());
+        List<String> keys = new ArrayList<>(sagaStates.size());
+        List<String> args = new ArrayList<>();
+        for (SagaState sagaState : sagaStates) {
+            sagaIds.add(sagaState.getSagaId());
+            keys.add(SAGA_KEY_PREFIX + sagaState.getSagaId());
+            args.add(String.valueOf(sagaState.getSteps().size() + 1));
+            args.add(SagaStateCodec.STATUS);
+            args.add(sagaState.getStatus().name());
+            for (SagaStep step : sagaState.getSteps()) {
+                args.add(SagaStateCodec.stepField(step.getStepName(), SagaStateCodec.STEP_STATUS));
+                args.add(step.getStatus().name());
+            }
+        }
+
+        List<Object> positions = redisTemplate.execute(DELETE_UNCHANGED_SCRIPT, keys, args.toArray());
+        Set<String> deleted = new HashSet<>();
+        if (positions != null) {
+            for (Object position : positions) {
+                deleted.add(sagaIds.get(((Number) position).intValue() - 1));
+            }
+        }
+        logger.debug("Deleted saga state for {} of {} sagas", deleted.size(), sagaIds.size());
+        return deleted;
+    }
+
     public boolean existsSagaState(String sagaId) {
         String key = SAGA_KEY_PREFIX + sagaId;
         return Boolean.TRUE.equals(redisTemplate.hasKey(key));
     }
 
+    // The given sagas whose hash still exists, in one pipelined round trip
+    public Set<String> existingSagaIds(List<String> sagaIds) {
+        if (sagaIds.isEmpty()) {
+            return Set.of();
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String sagaId : sagaIds) {
+                connection.keyCommands().exists((SAGA_KEY_PREFIX + sagaId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < sagaIds.size(); i++) {
+            if (Boolean.TRUE.equals(results.get(i))) {
+                existing.add(sagaIds.get(i));
+            }
+        }
+        return existing;
+    }
+
     public void extendSagaTTL(String sagaId) {
         String key = SAGA_KEY_PREFIX + sagaId;
         redisTemplate.expire(key, SAGA_TTL);
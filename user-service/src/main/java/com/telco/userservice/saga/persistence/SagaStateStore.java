@@ -0,0 +1,459 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
+import com.telco.userservice.saga.orchestrator.SagaLaneExecutor;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import com.telco.userservice.saga.timeout.SagaDeadlineTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot set of in-flight sagas in front of {@link SagaStateRepository}. Every save writes
+ * through to Redis, including the deadline index, settled sagas leave the hot set, and
+ * cold reads fall back to Redis, so memory is bounded by the number of concurrent sagas
+ * rather than by history. Only sagas on saga-events partitions this instance owns are kept
+ * hot; the rest are read from Redis every time, since another instance is changing them.
+ * A saga whose write did not reach Redis stays hot and dirty until a retry persists it.
+ */
+@Component
+public class SagaStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaStateStore.class);
+    private static final int RESTORE_PAGE_SIZE = 1000;
+
+    private final SagaStateRepository sagaStateRepository;
+    private final SagaDeadlineIndex sagaDeadlineIndex;
+    private final SagaDeadlineTimer sagaDeadlineTimer;
+    private final SagaTransitionLog sagaTransitionLog;
+    private final SagaStatusIndex sagaStatusIndex;
+    private final SagaHistoryRepository sagaHistoryRepository;
+    private final SagaPartitionOwnership sagaPartitionOwnership;
+    private final SagaTransitionChannel sagaTransitionChannel;
+    private final SagaLaneExecutor sagaLaneExecutor;
+    private final Map<String, SagaState> hotSagas = new ConcurrentHashMap<>();
+    // Hot sagas whose latest state is not in Redis yet; never evicted
+    private final Set<String> dirtySagas = ConcurrentHashMap.newKeySet();
+    // In-flight sagas read back from the log, held until their partition is assigned here
+    private final Map<String, SagaState> recovered = new ConcurrentHashMap<>();
+    private final int maxHotSagas;
+    private final long recoveryHoldMillis;
+    private volatile long recoveredAt;
+
+    private final Counter coldReadCounter;
+    private final Counter evictedCounter;
+    private final Counter writeFailureCounter;
+    private final Counter archiveReadCounter;
+    private final Counter restoredCounter;
+
+    public SagaStateStore(SagaStateRepository sagaStateRepository,
+            SagaDeadlineIndex sagaDeadlineIndex,
+            SagaDeadlineTimer sagaDeadlineTimer,
+            SagaTransitionLog sagaTransitionLog,
+            SagaStatusIndex sagaStatusIndex,
+            SagaHistoryRepository sagaHistoryRepository,
+            SagaPartitionOwnership sagaPartitionOwnership,
+            SagaTransitionChannel sagaTransitionChannel,
+            SagaLaneExecutor sagaLaneExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${saga.state.hot.max:10000}") int maxHotSagas,
+            @Value("${saga.log.recovery.hold-minutes:10}") long recoveryHoldMinutes) {
+        this.sagaStateRepository = sagaStateRepository;
+        this.sagaDeadlineIndex = sagaDeadlineIndex;
+        this.sagaDeadlineTimer = sagaDeadlineTimer;
+        this.sagaTransitionLog = sagaTransitionLog;
+        this.sagaStatusIndex = sagaStatusIndex;
+        this.sagaHistoryRepository = sagaHistoryRepository;
+        this.sagaPartitionOwnership = sagaPartitionOwnership;
+        this.sagaTransitionChannel = sagaTransitionChannel;
+        this.sagaLaneExecutor = sagaLaneExecutor;
+        this.maxHotSagas = maxHotSagas;
+        this.recoveryHoldMillis = TimeUnit.MINUTES.toMillis(recoveryHoldMinutes);
+
+        this.coldReadCounter = Counter.builder("saga.state.cold_reads.total")
+                .description("Saga state reads served from Redis instead of the hot set")
+                .register(meterRegistry);
+
+        this.evictedCounter = Counter.builder("saga.state.evicted.total")
+                .description("In-flight sagas evicted from the hot set because it was full")
+                .register(meterRegistry);
+
+        this.writeFailureCounter = Counter.builder("saga.state.write_failures.total")
+                .description("Saga state writes that failed to reach Redis")
+                .register(meterRegistry);
+
+        this.archiveReadCounter = Counter.builder("saga.state.archive_reads.total")
+                .description("Saga state reads served from the saga_history archive")
+                .register(meterRegistry);
+
+        this.restoredCounter = Counter.builder("saga.state.restored.total")
+                .description("Sagas loaded into the hot set when their partition was assigned")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.state.hot.size", hotSagas, Map::size)
+                .description("Sagas held in the in-memory hot set")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.state.dirty", dirtySagas, Set::size)
+                .description("Hot sagas whose latest state has not reached Redis")
+                .register(meterRegistry);
+
+        sagaPartitionOwnership.setRebalanceHandler(this::rebalance);
+    }
+
+    /**
+     * Reads back the sagas the transition log still has in flight. Nothing is written yet:
+     * which of them this instance may restore is only known once partitions are assigned,
+     * see {@link #restoreRecovered}.
+     */
+    @PostConstruct
+    public void recover() {
+        for (SagaState sagaState : sagaTransitionLog.recover()) {
+            recovered.put(sagaState.getSagaId(), sagaState);
+        }
+        recoveredAt = System.currentTimeMillis();
+        logger.info("Holding {} recovered sagas until their partitions are assigned", recovered.size());
+    }
+
+    public void save(SagaState sagaState) {
+        boolean persisted = persist(sagaState);
+        sagaTransitionLog.append(sagaState, !isSettled(sagaState));
+        // Only the owner arms a timer; the periodic scan covers deadlines nobody owns
+        if (SagaDeadlineIndex.isRunning(sagaState) && sagaPartitionOwnership.owns(sagaState.getSagaId())) {
+            sagaDeadlineTimer.schedule(sagaState.getSagaId(), sagaDeadlineIndex.deadlineOf(sagaState));
+        } else {
+            sagaDeadlineTimer.cancel(sagaState.getSagaId());
+        }
+        // Watchers only ever see what reached Redis
+        if (persisted) {
+            sagaTransitionChannel.publish(sagaState, isSettled(sagaState));
+        }
+
+        if ((isSettled(sagaState) || !sagaPartitionOwnership.owns(sagaState.getSagaId())) && persisted) {
+            hotSagas.remove(sagaState.getSagaId());
+            return;
+        }
+
+        hotSagas.put(sagaState.getSagaId(), sagaState);
+        enforceCapacity();
+    }
+
+    public SagaState get(String sagaId) {
+        SagaState sagaState = hotSagas.get(sagaId);
+        if (sagaState != null) {
+            return sagaState;
+        }
+
+        coldReadCounter.increment();
+        try {
+            sagaState = sagaStateRepository.getSagaState(sagaId).orElse(null);
+        } catch (Exception e) {
+            logger.error("Failed to read saga state from Redis for saga: {}", sagaId, e);
+            return null;
+        }
+
+        // Sagas started before a restart continue from their persisted state
+        if (sagaState != null && !isSettled(sagaState) && sagaPartitionOwnership.owns(sagaId)) {
+            SagaState existing = hotSagas.putIfAbsent(sagaId, sagaState);
+            if (existing != null) {
+                return existing;
+            }
+            enforceCapacity();
+        }
+        return sagaState;
+    }
+
+    /**
+     * Like {@link #get}, but falls back to the Postgres archive for settled sagas that have
+     * already been moved out of Redis. Meant for status lookups, not for applying events.
+     */
+    public SagaState getIncludingArchived(String sagaId) {
+        SagaState sagaState = get(sagaId);
+        if (sagaState != null) {
+            return sagaState;
+        }
+        try {
+            sagaState = sagaHistoryRepository.find(sagaId).orElse(null);
+        } catch (Exception e) {
+            logger.error("Failed to read archived saga: {}", sagaId, e);
+            return null;
+        }
+        if (sagaState != null) {
+            archiveReadCounter.increment();
+        }
+        return sagaState;
+    }
+
+    /**
+     * Applies a single step transition directly in Redis and mirrors it onto the hot copy,
+     * without reading or rewriting the rest of the saga.
+     */
+    public boolean updateStep(String sagaId, String stepName, SagaStepStatus status, String errorMessage) {
+        boolean failed = status == SagaStepStatus.FAILED;
+        // Redis keeps millisecond times, so the hot copy gets exactly what is written there
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        if (!sagaStateRepository.updateStepStatus(sagaId, stepName, status, errorMessage, failed, now)) {
+            return false;
+        }
+
+        SagaState sagaState = hotSagas.get(sagaId);
+        if (sagaState != null) {
+            sagaState.getSteps().stream()
+                    .filter(step -> step.getStepName().equals(stepName))
+                    .findFirst()
+                    .ifPresent(step -> {
+                        step.setStatus(status);
+                        if (status == SagaStepStatus.IN_PROGRESS) {
+                            step.setStartTime(now);
+                        } else if (status != SagaStepStatus.PENDING) {
+                            step.setEndTime(now);
+                        }
+                        if (errorMessage != null) {
+                            step.setErrorMessage(errorMessage);
+                        }
+                    });
+            if (failed) {
+                sagaState.setCompensationRequired(true);
+            }
+            sagaTransitionLog.append(sagaState, !isSettled(sagaState));
+            if (SagaDeadlineIndex.isRunning(sagaState)) {
+                sagaDeadlineIndex.update(sagaState);
+                sagaDeadlineTimer.schedule(sagaId, sagaDeadlineIndex.deadlineOf(sagaState));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists sagas through the status index, read straight from Redis without touching the
+     * hot set. A null status lists sagas of every status.
+     */
+    public SagaPage findSagas(SagaStatus status, long sinceMillis, String cursor, int limit) {
+        SagaStatusIndex.Page page = sagaStatusIndex.page(status, sinceMillis, cursor, limit);
+        List<SagaState> sagaStates = sagaStateRepository.getSagaStates(page.getSagaIds());
+        if (status != null) {
+            // The hash may already be a step ahead of the index entry that listed it
+            sagaStates.removeIf(sagaState -> sagaState.getStatus() != status);
+        }
+        return new SagaPage(sagaStates, page.getNextCursor());
+    }
+
+    public List<String> findSagaIds(SagaStatus status, int limit) {
+        return sagaStatusIndex.page(status, 0, null, limit).getSagaIds();
+    }
+
+    /**
+     * Drops sagas and deadline timers whose partition moved to another instance. For newly
+     * assigned partitions, reads only their unsettled sagas from the partition index, arms
+     * the timer of every running one and loads them, up to the hot set's capacity.
+     */
+    void rebalance(Set<Integer> assigned) {
+        // Dirty sagas are dropped by the flush that finally persists them
+        hotSagas.keySet().removeIf(sagaId -> !sagaPartitionOwnership.owns(sagaId) && !dirtySagas.contains(sagaId));
+        sagaDeadlineTimer.cancelIf(sagaId -> !sagaPartitionOwnership.owns(sagaId));
+        // Their new owner logs them from now on; dirty ones are only in this log until flushed
+        sagaTransitionLog.forget(sagaId -> !sagaPartitionOwnership.owns(sagaId) && !dirtySagas.contains(sagaId)
+                && !recovered.containsKey(sagaId));
+        if (assigned.isEmpty()) {
+            return;
+        }
+        restoreRecovered(assigned);
+
+        int armed = 0;
+        int restored = 0;
+        for (int partition : assigned) {
+            String cursor = null;
+            do {
+                SagaStatusIndex.Page page = sagaStatusIndex.pagePartition(partition, cursor, RESTORE_PAGE_SIZE);
+                for (SagaState loaded : sagaStateRepository.getSagaStates(page.getSagaIds())) {
+                    // The index lags a settle or a change in partition count
+                    if (isSettled(loaded) || !sagaPartitionOwnership.owns(loaded.getSagaId())) {
+                        continue;
+                    }
+                    SagaState sagaState = hotSagas.getOrDefault(loaded.getSagaId(), loaded);
+                    if (SagaDeadlineIndex.isRunning(sagaState)) {
+                        sagaDeadlineTimer.schedule(sagaState.getSagaId(), sagaDeadlineIndex.deadlineOf(sagaState));
+                        armed++;
+                    }
+                    if (hotSagas.size() < maxHotSagas && hotSagas.putIfAbsent(loaded.getSagaId(), loaded) == null) {
+                        restored++;
+                    }
+                }
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+        }
+
+        restoredCounter.increment(restored);
+        logger.info("Restored {} sagas and armed {} deadline timers for assigned partitions {}", restored, armed,
+                assigned);
+    }
+
+    /**
+     * Writes back the recovered sagas of the assigned partitions that Redis no longer has.
+     * Redis stays authoritative for every saga it still holds, and a saga that was archived
+     * or expired has finished, whatever this possibly stale log says. Re-persisting also
+     * restores its deadline and status index entries.
+     */
+    private void restoreRecovered(Set<Integer> assigned) {
+        int rewritten = 0;
+        Set<String> skipped = new HashSet<>();
+        for (SagaState sagaState : new ArrayList<>(recovered.values())) {
+            String sagaId = sagaState.getSagaId();
+            if (!assigned.contains(sagaPartitionOwnership.partitionOf(sagaId))) {
+                continue;
+            }
+            try {
+                if (!sagaStateRepository.existsSagaState(sagaId) && !isExpired(sagaState)
+                        && sagaHistoryRepository.find(sagaId).isEmpty()) {
+                    if (persist(sagaState)) {
+                        rewritten++;
+                    } else {
+                        // Held dirty until a flush writes it
+                        hotSagas.putIfAbsent(sagaId, sagaState);
+                    }
+                } else {
+                    skipped.add(sagaId);
+                }
+                recovered.remove(sagaId);
+            } catch (Exception e) {
+                // Checked again the next time its partition is assigned
+                logger.error("Failed to check recovered saga {}", sagaId, e);
+            }
+        }
+        // The log's copy is stale; a saga still running is logged again on its next save
+        sagaTransitionLog.forget(skipped::contains);
+        if (rewritten > 0) {
+            logger.info("Rewrote {} recovered sagas missing from Redis", rewritten);
+        }
+    }
+
+    // Untouched for longer than its Redis TTL, so Redis dropped it and nobody was driving it
+    private static boolean isExpired(SagaState sagaState) {
+        LocalDateTime lastChange = lastChangedAt(sagaState);
+        return lastChange != null
+                && lastChange.isBefore(LocalDateTime.now().minus(SagaStateRepository.SAGA_TTL));
+    }
+
+    // Failed sagas have no end time, their last step start or end stands in for it
+    static LocalDateTime lastChangedAt(SagaState sagaState) {
+        LocalDateTime lastChange = sagaState.getStartTime();
+        for (SagaStep step : sagaState.getSteps()) {
+            for (LocalDateTime time : new LocalDateTime[] { step.getStartTime(), step.getEndTime() }) {
+                if (time != null && (lastChange == null || time.isAfter(lastChange))) {
+                    lastChange = time;
+                }
+            }
+        }
+        LocalDateTime endTime = sagaState.getEndTime();
+        return endTime != null && (lastChange == null || endTime.isAfter(lastChange)) ? endTime : lastChange;
+    }
+
+    public Collection<SagaState> getHotSagas() {
+        return hotSagas.values();
+    }
+
+    public int getHotSize() {
+        return hotSagas.size();
+    }
+
+    /**
+     * Retries the write of every dirty saga on its lane, so the state cannot change while it
+     * is encoded. Once persisted, a saga that has settled or moved away leaves the hot set.
+     */
+    @Scheduled(fixedDelayString = "${saga.state.flush-interval-ms:5000}")
+    public void flushDirty() {
+        for (String sagaId : new ArrayList<>(dirtySagas)) {
+            sagaLaneExecutor.execute(sagaId, () -> {
+                SagaState sagaState = hotSagas.get(sagaId);
+                if (sagaState == null) {
+                    dirtySagas.remove(sagaId);
+                    return;
+                }
+                if (!dirtySagas.contains(sagaId) || !persist(sagaState)) {
+                    return;
+                }
+                sagaTransitionChannel.publish(sagaState, isSettled(sagaState));
+                if (isSettled(sagaState) || !sagaPartitionOwnership.owns(sagaId)) {
+                    hotSagas.remove(sagaId);
+                }
+            });
+        }
+
+        // Partitions that never came here are owned elsewhere, so are their recovered sagas
+        if (!recovered.isEmpty() && System.currentTimeMillis() - recoveredAt > recoveryHoldMillis) {
+            int before = recovered.size();
+            recovered.keySet().removeIf(sagaId -> !sagaPartitionOwnership.owns(sagaId));
+            sagaTransitionLog.forget(sagaId -> !sagaPartitionOwnership.owns(sagaId) && !dirtySagas.contains(sagaId)
+                    && !recovered.containsKey(sagaId));
+            logger.info("Dropped {} recovered sagas of partitions owned by other instances",
+                    before - recovered.size());
+        }
+    }
+
+    public int getDirtySize() {
+        return dirtySagas.size();
+    }
+
+    private boolean persist(SagaState sagaState) {
+        try {
+            sagaStateRepository.saveSagaState(sagaState);
+            sagaDeadlineIndex.update(sagaState);
+            sagaStatusIndex.update(sagaState);
+            dirtySagas.remove(sagaState.getSagaId());
+            return true;
+        } catch (Exception e) {
+            // Keep the saga hot and dirty so it is not lost until a retry persists it
+            dirtySagas.add(sagaState.getSagaId());
+            writeFailureCounter.increment();
+            logger.error("Failed to write through saga state for saga: {}", sagaState.getSagaId(), e);
+            return false;
+        }
+    }
+
+    private void enforceCapacity() {
+        if (hotSagas.size() <= maxHotSagas) {
+            return;
+        }
+
+        // Clean sagas are already in Redis, so dropping one only costs a Redis read later
+        Iterator<String> iterator = hotSagas.keySet().iterator();
+        while (hotSagas.size() > maxHotSagas && iterator.hasNext()) {
+            if (dirtySagas.contains(iterator.next())) {
+                continue;
+            }
+            iterator.remove();
+            evictedCounter.increment();
+        }
+    }
+
+    // Terminal, or failed with no completed step left to compensate
+    public static boolean isSettled(SagaState sagaState) {
+        SagaStatus status = sagaState.getStatus();
+        if (status.isTerminal()) {
+            return true;
+        }
+        return (status == SagaStatus.FAILED || status == SagaStatus.TIMEOUT) &&
+                sagaState.getSteps().stream().noneMatch(step -> step.getStatus() == SagaStepStatus.COMPLETED);
+    }
+}
@@ -0,0 +1,238 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Secondary indexes over saga hashes: one Redis sorted set per status plus one of all
+ * sagas, each scored by saga start time. A saga moves between status sets atomically on
+ * every save. Listing pages by rank, so a page costs O(log n + limit) however many sagas
+ * match, and the cursor carries the last saga's score so a saga that changed status
+ * between pages does not lose the position.
+ *
+ * <p>Unsettled sagas are also indexed by saga-events partition, so an instance that is
+ * assigned partitions reads only their sagas. Sagas saved before this instance learned the
+ * partition count are left out of it and are loaded on their next event instead.
+ */
+@Repository
+public class SagaStatusIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaStatusIndex.class);
+    private static final String STATUS_KEY_PREFIX = "saga:idx:status:";
+    private static final String ALL_KEY = "saga:idx:all";
+    private static final String PARTITION_KEY_PREFIX = "saga:idx:partition:";
+    // Same lifetime as the saga hashes the entries point to
+    private static final Duration RETENTION = Duration.ofHours(24);
+
+    // KEYS: new status set, all-sagas set, partition set, then every other status set.
+    // ARGV: score, saga id, and add, remove or skip for the partition set
+    private static final RedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 4, #KEYS do redis.call('ZREM', KEYS[i], ARGV[2]) end\n" +
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[1], ARGV[2])\n" +
+            "if ARGV[3] == 'add' then redis.call('ZADD', KEYS[3], ARGV[1], ARGV[2])\n" +
+            "elseif ARGV[3] == 'remove' then redis.call('ZREM', KEYS[3], ARGV[2]) end\n" +
+            "return 1", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final SagaPartitionOwnership sagaPartitionOwnership;
+
+    public SagaStatusIndex(RedisTemplate<String, String> redisTemplate,
+            SagaPartitionOwnership sagaPartitionOwnership) {
+        this.redisTemplate = redisTemplate;
+        this.sagaPartitionOwnership = sagaPartitionOwnership;
+    }
+
+    public void update(SagaState sagaState) {
+        String partitionOp = "skip";
+        if (sagaPartitionOwnership.getPartitionCount() > 0) {
+            partitionOp = SagaStateStore.isSettled(sagaState) ? "remove" : "add";
+        }
+        List<String> keys = new ArrayList<>(SagaStatus.values().length + 2);
+        keys.add(statusKey(sagaState.getStatus()));
+        keys.add(ALL_KEY);
+        keys.add(partitionKey(sagaPartitionOwnership.partitionOf(sagaState.getSagaId())));
+        for (SagaStatus status : SagaStatus.values()) {
+            if (status != sagaState.getStatus()) {
+                keys.add(statusKey(status));
+            }
+        }
+        long startMillis = sagaState.getStartTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        redisTemplate.execute(UPDATE_SCRIPT, keys, String.valueOf(startMillis), sagaState.getSagaId(), partitionOp);
+    }
+
+    /**
+     * Returns up to {@code limit} saga ids ordered by start time, oldest first. Without a
+     * cursor the page starts at {@code sinceMillis}; a cursor from a previous page
+     * continues after its last saga. A saga that moved between pages may be listed twice
+     * but is never skipped.
+     */
+    public Page page(SagaStatus status, long sinceMillis, String cursor, int limit) {
+        return page(status, sinceMillis, Long.MAX_VALUE, cursor, limit);
+    }
+
+    // As above, ending before the first saga started at or after beforeMillis
+    public Page page(SagaStatus status, long sinceMillis, long beforeMillis, String cursor, int limit) {
+        return page(status != null ? statusKey(status) : ALL_KEY, sinceMillis, beforeMillis, cursor, limit);
+    }
+
+    // Unsettled sagas of one saga-events partition, paged like a status
+    public Page pagePartition(int partition, String cursor, int limit) {
+        return page(partitionKey(partition), 0, Long.MAX_VALUE, cursor, limit);
+    }
+
+    private Page page(String key, long sinceMillis, long beforeMillis, String cursor, int limit) {
+        ZSetOperations<String, String> zset = redisTemplate.opsForZSet();
+
+        long start;
+        if (cursor != null) {
+            Position position = Position.decode(cursor);
+            Long rank = zset.rank(key, position.sagaId);
+            // Gone from this set since the last page: resume at the first saga with its start time
+            start = rank != null ? rank + 1 : countBefore(zset, key, position.score);
+        } else {
+            start = sinceMillis > 0 ? countBefore(zset, key, sinceMillis) : 0;
+        }
+
+        Set<TypedTuple<String>> entries = zset.rangeWithScores(key, start, start + limit - 1);
+        List<String> sagaIds = new ArrayList<>();
+        TypedTuple<String> last = null;
+        if (entries != null) {
+            for (TypedTuple<String> entry : entries) {
+                if (entry.getScore() >= beforeMillis) {
+                    break;
+                }
+                sagaIds.add(entry.getValue());
+                last = entry;
+            }
+        }
+
+        String nextCursor = last != null && sagaIds.size() == limit
+                ? new Position(last.getScore().longValue(), last.getValue()).encode()
+                : null;
+        return new Page(sagaIds, nextCursor);
+    }
+
+    public void remove(Collection<String> sagaIds) {
+        if (sagaIds.isEmpty()) {
+            return;
+        }
+        Object[] members = sagaIds.toArray();
+        for (SagaStatus status : SagaStatus.values()) {
+            redisTemplate.opsForZSet().remove(statusKey(status), members);
+        }
+        redisTemplate.opsForZSet().remove(ALL_KEY, members);
+        if (sagaPartitionOwnership.getPartitionCount() > 0) {
+            for (String sagaId : sagaIds) {
+                redisTemplate.opsForZSet().remove(partitionKey(sagaPartitionOwnership.partitionOf(sagaId)), sagaId);
+            }
+        }
+    }
+
+    public long count(SagaStatus status) {
+        Long size = redisTemplate.opsForZSet().zCard(statusKey(status));
+        return size != null ? size : 0;
+    }
+
+    // Entries whose saga hash has expired only ever sit at the old end of each set
+    @Scheduled(fixedDelayString = "${saga.index.trim-interval-ms:600000}")
+    public void trim() {
+        try {
+            long cutoff = System.currentTimeMillis() - RETENTION.toMillis();
+            long removed = 0;
+            for (SagaStatus status : SagaStatus.values()) {
+                removed += removeBefore(statusKey(status), cutoff);
+            }
+            removed += removeBefore(ALL_KEY, cutoff);
+            for (int partition = 0; partition < sagaPartitionOwnership.getPartitionCount(); partition++) {
+                removed += removeBefore(partitionKey(partition), cutoff);
+            }
+            if (removed > 0) {
+                logger.debug("Trimmed {} expired saga index entries", removed);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to trim saga status indexes", e);
+        }
+    }
+
+    private long removeBefore(String key, long cutoff) {
+        Long removed = redisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY, cutoff - 1);
+        return removed != null ? removed : 0;
+    }
+
+    private static long countBefore(ZSetOperations<String, String> zset, String key, long scoreMillis) {
+        Long count = zset.count(key, Double.NEGATIVE_INFINITY, scoreMillis - 1);
+        return count != null ? count : 0;
+    }
+
+    private static String statusKey(SagaStatus status) {
+        return STATUS_KEY_PREFIX + status.name();
+    }
+
+    private static String partitionKey(int partition) {
+        return PARTITION_KEY_PREFIX + partition;
+    }
+
+    public static class Page {
+        private final List<String> sagaIds;
+        private final String nextCursor;
+
+        Page(List<String> sagaIds, String nextCursor) {
+            this.sagaIds = sagaIds;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<String> getSagaIds() {
+            return sagaIds;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    // Opaque to clients: base64 of "<start millis>:<saga id>"
+    private static class Position {
+        private final long score;
+        private final String sagaId;
+
+        Position(long score, String sagaId) {
+            this.score = score;
+            this.sagaId = sagaId;
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((score + ":" + sagaId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Position decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.indexOf(':');
+                return new Position(Long.parseLong(value.substring(0, separator)), value.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid saga cursor: " + cursor, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.telco.userservice.saga.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.telco.userservice.saga.state.SagaState;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redis pub/sub channel per saga ({@code saga:transitions:<sagaId>}) carrying every saved
+ * transition, so a client watching a saga can be served by any instance, not only the one
+ * that owns it. Delivery is fire-and-forget: a watcher that misses a message still gets
+ * the next one, and always starts from a snapshot.
+ */
+@Component
+public class SagaTransitionChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaTransitionChannel.class);
+    private static final String CHANNEL_PREFIX = "saga:transitions:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Executor deliveryExecutor;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final AtomicInteger subscriptions = new AtomicInteger();
+
+    public SagaTransitionChannel(RedisTemplate<String, String> redisTemplate,
+            RedisConnectionFactory redisConnectionFactory,
+            ObjectMapper objectMapper,
+            @Qualifier("virtualThreadExecutor") Executor deliveryExecutor,
+            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.deliveryExecutor = deliveryExecutor;
+
+        // Only subscribes once the first watcher arrives. Messages are handed over on the
+        // subscription thread, in the order they were published, and delivered elsewhere
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(redisConnectionFactory);
+        this.listenerContainer.setTaskExecutor(new SyncTaskExecutor());
+        this.listenerContainer.afterPropertiesSet();
+        this.listenerContainer.start();
+
+        Gauge.builder("saga.transitions.subscriptions", subscriptions, AtomicInteger::get)
+                .description("Saga transition channels this instance is subscribed to")
+                .register(meterRegistry);
+    }
+
+    public void publish(SagaState sagaState, boolean settled) {
+        try {
+            ObjectNode message = objectMapper.createObjectNode();
+            message.put("settled", settled);
+            message.set("saga", objectMapper.valueToTree(sagaState));
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + sagaState.getSagaId(), objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            // Watchers catch up on the next transition
+            logger.warn("Failed to publish transition for saga: {}", sagaState.getSagaId(), e);
+        }
+    }
+
+    /**
+     * Calls {@code listener} with each transition of the saga until the returned
+     * subscription is closed.
+     */
+    public Subscription subscribe(String sagaId, TransitionListener listener) {
+        ChannelTopic topic = new ChannelTopic(CHANNEL_PREFIX + sagaId);
+        MessageListener messageListener = new OrderedDelivery(sagaId, listener);
+        listenerContainer.addMessageListener(messageListener, topic);
+        subscriptions.incrementAndGet();
+
+        AtomicBoolean closed = new AtomicBoolean();
+        return () -> {
+            if (closed.compareAndSet(false, true)) {
+                listenerContainer.removeMessageListener(messageListener, topic);
+                subscriptions.decrementAndGet();
+            }
+        };
+    }
+
+    // Delivers one subscription's messages in order, off the subscription thread
+    private class OrderedDelivery implements MessageListener {
+        private final String sagaId;
+        private final TransitionListener listener;
+        private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        OrderedDelivery(String sagaId, TransitionListener listener) {
+            this.sagaId = sagaId;
+            this.listener = listener;
+        }
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            queue.add(message.getBody());
+            if (draining.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                byte[] body;
+                while ((body = queue.poll()) != null) {
+                    deliver(body);
+                }
+                draining.set(false);
+                // A message added after the last poll but before the flag was cleared
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void deliver(byte[] body) {
+            try {
+                JsonNode transition = objectMapper.readTree(new String(body, StandardCharsets.UTF_8));
+                listener.onTransition(transition.path("saga").toString(), transition.path("settled").asBoolean());
+            } catch (Exception e) {
+                logger.warn("Failed to deliver transition for saga: {}", sagaId, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    public interface TransitionListener {
+        // The saga as JSON, and whether it will not change any more
+        void onTransition(String sagaJson, boolean settled);
+    }
+
+    public interface Subscription {
+        // Safe to call more than once
+        void close();
+    }
+}
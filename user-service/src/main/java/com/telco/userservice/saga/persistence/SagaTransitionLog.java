@@ -0,0 +1,488 @@
+package com.telco.userservice.saga.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.state.SagaState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local log of saga transitions. Every save appends the saga's encoded state
+ * to the current segment; a periodic snapshot rolls the segment, writes the sagas still in
+ * flight and deletes the segments it covers. On startup the latest snapshot is loaded and
+ * only the segments after it are replayed, so recovery is bounded by the snapshot interval.
+ * Records are framed as length, CRC32 and JSON payload, and replay stops at a torn tail.
+ *
+ * <p>Saves only encode and queue their record; a single writer thread does the file I/O, so
+ * saga lanes neither wait on the disk nor contend for it. A record is taken off the queue
+ * only while holding the file lock, which keeps each saga's records in save order even when
+ * a snapshot or shutdown writes out the queue itself. A full queue drops the record.
+ */
+@Component
+public class SagaTransitionLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaTransitionLog.class);
+    private static final Pattern SEGMENT_FILE = Pattern.compile("saga-(\\d{20})\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d{20})\\.snap");
+    private static final int HEADER_BYTES = 8;
+
+    private final ObjectMapper objectMapper;
+    private final SagaStateCodec codec;
+    private final Path logDir;
+    private final long segmentBytes;
+    private final int queueCapacity;
+    private final boolean enabled;
+
+    // Guards the segment and the active map
+    private final ReentrantLock fileLock = new ReentrantLock();
+    // Guards pending only, never held during I/O
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition queued = queueLock.newCondition();
+    private ArrayDeque<PendingRecord> pending = new ArrayDeque<>();
+    private volatile Thread writer;
+
+    // Latest encoded state of every saga still in flight
+    private final Map<String, Map<String, String>> active = new HashMap<>();
+    private FileChannel segment;
+    private long segmentId;
+
+    private final Counter appendedCounter;
+    private final Counter appendFailureCounter;
+    private final Timer snapshotTimer;
+    private final Timer recoveryTimer;
+
+    public SagaTransitionLog(ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${saga.log.dir:/var/lib/telco/saga-log}") String logDir,
+            @Value("${saga.log.segment-bytes:67108864}") long segmentBytes,
+            @Value("${saga.log.queue-capacity:10000}") int queueCapacity,
+            @Value("${saga.log.enabled:true}") boolean enabled) {
+        this.objectMapper = objectMapper;
+        this.codec = new SagaStateCodec(objectMapper);
+        this.logDir = Paths.get(logDir);
+        this.segmentBytes = segmentBytes;
+        this.queueCapacity = queueCapacity;
+        this.enabled = enabled;
+
+        this.appendedCounter = Counter.builder("saga.log.appended.total")
+                .description("Saga transitions appended to the local log")
+                .register(meterRegistry);
+
+        this.appendFailureCounter = Counter.builder("saga.log.append_failures.total")
+                .description("Saga transitions that could not be appended to the local log")
+                .register(meterRegistry);
+
+        this.snapshotTimer = Timer.builder("saga.log.snapshot.duration")
+                .description("Time to snapshot in-flight sagas and prune covered segments")
+                .register(meterRegistry);
+
+        this.recoveryTimer = Timer.builder("saga.log.recovery.duration")
+                .description("Time to load the latest snapshot and replay the log tail on startup")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.log.active", this, SagaTransitionLog::getActiveCount)
+                .description("In-flight sagas tracked by the transition log")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.log.pending", this, SagaTransitionLog::getPendingCount)
+                .description("Saga transitions queued for the log writer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the in-flight sagas from disk and opens a fresh segment for appends. Returns
+     * an empty list, and leaves the log disabled, when the directory cannot be used.
+     */
+    public List<SagaState> recover() {
+        if (!enabled) {
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        fileLock.lock();
+        try {
+            if (segment != null) {
+                return List.of();
+            }
+            Files.createDirectories(logDir);
+            TreeMap<Long, Path> snapshots = listFiles(SNAPSHOT_FILE);
+            TreeMap<Long, Path> segments = listFiles(SEGMENT_FILE);
+
+            long replayFrom = 0;
+            if (!snapshots.isEmpty()) {
+                replayFrom = snapshots.lastKey();
+                readRecords(snapshots.lastEntry().getValue());
+            }
+            for (Map.Entry<Long, Path> entry : segments.tailMap(replayFrom, true).entrySet()) {
+                readRecords(entry.getValue());
+            }
+
+            // Never append after a possibly torn tail, always start a new segment
+            long lastId = Math.max(replayFrom, segments.isEmpty() ? 0 : segments.lastKey());
+            openSegment(lastId + 1);
+
+            List<SagaState> sagas = new ArrayList<>(active.size());
+            for (Map.Entry<String, Map<String, String>> entry : active.entrySet()) {
+                sagas.add(codec.decode(entry.getKey(), entry.getValue()));
+            }
+            writer = Thread.ofPlatform().name("saga-log-writer").daemon().unstarted(this::writeQueued);
+            writer.start();
+            recoveryTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            logger.info("Recovered {} in-flight sagas from the transition log in {} ms", sagas.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return sagas;
+
+        } catch (Exception e) {
+            logger.error("Failed to recover saga transition log from {}, continuing without it", logDir, e);
+            active.clear();
+            closeSegment();
+            return List.of();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    public void append(SagaState sagaState, boolean inFlight) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            Map<String, String> fields = new LinkedHashMap<>();
+            codec.encode(sagaState).forEach((field, value) -> {
+                if (value != null) {
+                    fields.put(field, value);
+                }
+            });
+            PendingRecord record = new PendingRecord(sagaState.getSagaId(), inFlight, fields,
+                    frame(sagaState.getSagaId(), inFlight, fields));
+
+            queueLock.lock();
+            try {
+                if (pending.size() >= queueCapacity) {
+                    throw new IllegalStateException("Log writer queue is full");
+                }
+                pending.add(record);
+                queued.signal();
+            } finally {
+                queueLock.unlock();
+            }
+
+        } catch (Exception e) {
+            appendFailureCounter.increment();
+            logger.error("Failed to append transition for saga {} to the log", sagaState.getSagaId(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${saga.log.snapshot.interval-ms:60000}")
+    public void snapshot() {
+        long start = System.nanoTime();
+        long snapshotId;
+        List<Map.Entry<String, Map<String, String>>> sagas;
+        try {
+            fileLock.lock();
+            try {
+                if (segment == null) {
+                    return;
+                }
+                // Everything before the new segment is covered by this snapshot
+                writePending();
+                rollSegment();
+                snapshotId = segmentId;
+                sagas = new ArrayList<>(active.entrySet());
+            } finally {
+                fileLock.unlock();
+            }
+
+            Path snapshot = logDir.resolve(String.format("snapshot-%020d.snap", snapshotId));
+            Path tempSnapshot = logDir.resolve(snapshot.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tempSnapshot, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, Map<String, String>> saga : sagas) {
+                    ByteBuffer record = frame(saga.getKey(), true, saga.getValue());
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(tempSnapshot, snapshot, StandardCopyOption.ATOMIC_MOVE);
+
+            for (Map.Entry<Long, Path> entry : listFiles(SEGMENT_FILE).headMap(snapshotId).entrySet()) {
+                Files.deleteIfExists(entry.getValue());
+            }
+            for (Map.Entry<Long, Path> entry : listFiles(SNAPSHOT_FILE).headMap(snapshotId).entrySet()) {
+                Files.deleteIfExists(entry.getValue());
+            }
+            snapshotTimer.record(Duration.ofNanos(System.nanoTime() - start));
+            logger.debug("Snapshotted {} in-flight sagas at segment {}", sagas.size(), snapshotId);
+
+        } catch (Exception e) {
+            logger.error("Failed to snapshot saga transition log", e);
+        }
+    }
+
+    /**
+     * Stops tracking the in-flight sagas whose id matches, such as those of partitions that
+     * moved to another instance, so the next snapshot leaves them out.
+     */
+    public void forget(Predicate<String> sagaIds) {
+        fileLock.lock();
+        try {
+            if (segment == null) {
+                return;
+            }
+            // A queued transition would otherwise put the saga back
+            writePending();
+            active.keySet().removeIf(sagaIds);
+        } catch (IOException e) {
+            logger.error("Failed to write saga transitions to log segment {}", segmentId, e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread stopping = writer;
+        writer = null;
+        if (stopping != null) {
+            // Signalled rather than interrupted, which would close the channel mid-write
+            queueLock.lock();
+            try {
+                queued.signal();
+            } finally {
+                queueLock.unlock();
+            }
+            try {
+                stopping.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        fileLock.lock();
+        try {
+            if (segment != null) {
+                writePending();
+            }
+            closeSegment();
+        } catch (IOException e) {
+            logger.error("Failed to write queued saga transitions on shutdown", e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        fileLock.lock();
+        try {
+            return active.size();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    public int getPendingCount() {
+        queueLock.lock();
+        try {
+            return pending.size();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void writeQueued() {
+        while (writer == Thread.currentThread()) {
+            queueLock.lock();
+            try {
+                while (pending.isEmpty() && writer == Thread.currentThread()) {
+                    queued.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                queueLock.unlock();
+            }
+
+            fileLock.lock();
+            try {
+                if (segment != null) {
+                    writePending();
+                }
+            } catch (IOException e) {
+                logger.error("Failed to write saga transitions to log segment {}", segmentId, e);
+            } finally {
+                fileLock.unlock();
+            }
+        }
+    }
+
+    // Called holding the file lock
+    private void writePending() throws IOException {
+        ArrayDeque<PendingRecord> records;
+        queueLock.lock();
+        try {
+            records = pending;
+            pending = new ArrayDeque<>();
+        } finally {
+            queueLock.unlock();
+        }
+
+        PendingRecord record;
+        while ((record = records.poll()) != null) {
+            try {
+                while (record.frame.hasRemaining()) {
+                    segment.write(record.frame);
+                }
+            } catch (IOException e) {
+                appendFailureCounter.increment(records.size() + 1);
+                throw e;
+            }
+            apply(record.sagaId, record.inFlight, record.fields);
+            appendedCounter.increment();
+            if (segment.position() >= segmentBytes) {
+                rollSegment();
+            }
+        }
+    }
+
+    private void apply(String sagaId, boolean inFlight, Map<String, String> fields) {
+        if (inFlight) {
+            active.put(sagaId, fields);
+        } else {
+            active.remove(sagaId);
+        }
+    }
+
+    private ByteBuffer frame(String sagaId, boolean inFlight, Map<String, String> fields) throws IOException {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("id", sagaId);
+        entry.put("a", inFlight);
+        entry.put("f", fields);
+        byte[] payload = objectMapper.writeValueAsBytes(entry);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void readRecords(Path file) throws IOException {
+        int records = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+                DataInputStream data = new DataInputStream(in)) {
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = data.readInt();
+                    checksum = data.readInt();
+                    if (length < 0 || length > segmentBytes) {
+                        logger.warn("Corrupt record length in {} after {} records, ignoring the rest", file, records);
+                        return;
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    // Clean end of file, or a record torn by a crash mid-write
+                    return;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("Checksum mismatch in {} after {} records, ignoring the rest", file, records);
+                    return;
+                }
+
+                JsonNode entry = objectMapper.readTree(payload);
+                Map<String, String> fields = new LinkedHashMap<>();
+                entry.get("f").fields().forEachRemaining(field -> fields.put(field.getKey(), field.getValue().asText()));
+                apply(entry.get("id").asText(), entry.get("a").asBoolean(), fields);
+                records++;
+            }
+        }
+    }
+
+    private TreeMap<Long, Path> listFiles(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(logDir)) {
+            for (Path file : stream) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        openSegment(segmentId + 1);
+    }
+
+    private void openSegment(long id) throws IOException {
+        segment = FileChannel.open(logDir.resolve(String.format("saga-%020d.log", id)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentId = id;
+    }
+
+    private record PendingRecord(String sagaId, boolean inFlight, Map<String, String> fields, ByteBuffer frame) {
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close saga log segment {}", segmentId, e);
+        }
+        segment = null;
+    }
+}
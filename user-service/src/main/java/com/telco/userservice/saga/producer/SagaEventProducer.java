@@ -3,6 +3,8 @@ package com.telco.userservice.saga.producer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.telco.userservice.saga.event.SagaEvent;
+import com.telco.userservice.saga.event.SagaEventHeaders;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +18,7 @@ import java.util.concurrent.CompletableFuture;
 public class SagaEventProducer {
 
     private static final Logger logger = LoggerFactory.getLogger(SagaEventProducer.class);
-    private static final String SAGA_TOPIC = "saga-events";
+    public static final String SAGA_TOPIC = "saga-events";
 
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
@@ -24,14 +26,15 @@ public class SagaEventProducer {
     @Autowired
     private ObjectMapper objectMapper;
 
-    public void publishSagaEvent(SagaEvent event) {
+    // Completes once the broker has acknowledged the event; most callers do not wait
+    public CompletableFuture<SendResult<String, String>> publishSagaEvent(SagaEvent event) {
         try {
             String eventJson = objectMapper.writeValueAsString(event);
             String key = event.getSagaId() != null ? event.getSagaId() : event.getEventId();
 
             logger.info("Publishing saga event: {} for saga: {}", event.getEventType(), event.getSagaId());
 
-            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(SAGA_TOPIC, key, eventJson);
+            CompletableFuture<SendResult<String, String>> future = kafkaTemplate.send(toRecord(SAGA_TOPIC, key, eventJson, event));
 
             future.whenComplete((result, ex) -> {
                 if (ex == null) {
@@ -42,10 +45,12 @@ public class SagaEventProducer {
                             event.getEventType(), event.getSagaId(), ex);
                 }
             });
+            return future;
 
         } catch (JsonProcessingException e) {
             logger.error("Failed to serialize saga event: {} for saga: {}",
                     event.getEventType(), event.getSagaId(), e);
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -57,11 +62,16 @@ public class SagaEventProducer {
             logger.info("Publishing saga event: {} to topic: {} for saga: {}",
                     event.getEventType(), topic, event.getSagaId());
 
-            kafkaTemplate.send(topic, key, eventJson);
+            kafkaTemplate.send(toRecord(topic, key, eventJson, event));
 
         } catch (JsonProcessingException e) {
             logger.error("Failed to serialize saga event: {} for saga: {}",
                     event.getEventType(), event.getSagaId(), e);
         }
     }
+
+    // Type and ids also go in headers so consumers can route without decoding the body
+    private static ProducerRecord<String, String> toRecord(String topic, String key, String eventJson, SagaEvent event) {
+        return new ProducerRecord<>(topic, null, key, eventJson, SagaEventHeaders.of(event));
+    }
 }
@@ -0,0 +1,11 @@
+package com.telco.userservice.saga.resilience;
+
+/**
+ * What a saga does with a step whose participant's circuit is open.
+ */
+public enum BreakerOpenAction {
+    // Fail the saga right away and undo the completed steps
+    COMPENSATE,
+    // Keep the saga running and re-dispatch the step once the circuit lets probes through
+    PARK
+}
@@ -0,0 +1,136 @@
+package com.telco.userservice.saga.resilience;
+
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for one saga participant, fed by step outcomes. It opens when the
+ * failure rate over the last {@code windowSize} outcomes crosses the threshold, rejects
+ * steps while open, then lets a few probe steps through half-open and closes once they
+ * all succeed. Step outcomes arrive asynchronously as events, so every method is
+ * synchronized rather than tied to a calling thread.
+ */
+public class ParticipantCircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationMillis;
+    private final int probes;
+    private final LongSupplier clock;
+    private final BiConsumer<State, State> onTransition;
+
+    // Ring of the latest outcomes, true for a failure
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long stateSince;
+    private int probesIssued;
+    private int probesSucceeded;
+
+    public ParticipantCircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold,
+            long openDurationMillis, int probes, LongSupplier clock, BiConsumer<State, State> onTransition) {
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.probes = probes;
+        this.clock = clock;
+        this.onTransition = onTransition;
+    }
+
+    /**
+     * Returns whether a step may be sent to the participant now. While half-open only
+     * {@code probes} steps are let through until their outcomes arrive.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = clock.getAsLong();
+        if (state == State.OPEN) {
+            if (now - stateSince < openDurationMillis) {
+                return false;
+            }
+            transition(State.HALF_OPEN, now);
+        }
+        if (state == State.HALF_OPEN) {
+            // Probes whose outcome never arrived are written off after another open interval
+            if (probesIssued >= probes && now - stateSince >= openDurationMillis) {
+                probesIssued = probesSucceeded;
+                stateSince = now;
+            }
+            if (probesIssued >= probes) {
+                return false;
+            }
+            probesIssued++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probesSucceeded >= probes) {
+                transition(State.CLOSED, clock.getAsLong());
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN, clock.getAsLong());
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                transition(State.OPEN, clock.getAsLong());
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Time until an open breaker lets probes through, zero when it is not open. */
+    public synchronized long remainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, openDurationMillis - (clock.getAsLong() - stateSince));
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transition(State to, long now) {
+        State from = state;
+        state = to;
+        stateSince = now;
+        probesIssued = 0;
+        probesSucceeded = 0;
+        if (to == State.CLOSED) {
+            // Start from a clean window, the failures that opened the breaker are stale
+            next = 0;
+            recorded = 0;
+            failures = 0;
+        }
+        onTransition.accept(from, to);
+    }
+}
@@ -0,0 +1,94 @@
+package com.telco.userservice.saga.resilience;
+
+import com.telco.userservice.saga.resilience.ParticipantCircuitBreaker.State;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link ParticipantCircuitBreaker} per saga participant, keyed by the step's service
+ * name, so an outage of one downstream service fails its steps fast without touching
+ * sagas waiting on the others.
+ */
+@Component
+public class SagaCircuitBreakers {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaCircuitBreakers.class);
+
+    private final Map<String, ParticipantCircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationMillis;
+    private final int halfOpenProbes;
+
+    public SagaCircuitBreakers(MeterRegistry meterRegistry,
+            @Value("${saga.breaker.window-size:20}") int windowSize,
+            @Value("${saga.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${saga.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${saga.breaker.open-duration-ms:30000}") long openDurationMillis,
+            @Value("${saga.breaker.half-open-probes:3}") int halfOpenProbes) {
+        this.meterRegistry = meterRegistry;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    public boolean tryAcquire(String serviceName) {
+        if (breaker(serviceName).tryAcquire()) {
+            return true;
+        }
+        meterRegistry.counter("saga.breaker.rejected.total", "service", serviceName).increment();
+        return false;
+    }
+
+    public void onSuccess(String serviceName) {
+        breaker(serviceName).onSuccess();
+    }
+
+    public void onFailure(String serviceName) {
+        breaker(serviceName).onFailure();
+    }
+
+    public boolean isOpen(String serviceName) {
+        return breaker(serviceName).getState() == State.OPEN;
+    }
+
+    public long remainingOpenMillis(String serviceName) {
+        return breaker(serviceName).remainingOpenMillis();
+    }
+
+    private ParticipantCircuitBreaker breaker(String serviceName) {
+        return breakers.computeIfAbsent(serviceName, this::createBreaker);
+    }
+
+    private ParticipantCircuitBreaker createBreaker(String serviceName) {
+        ParticipantCircuitBreaker breaker = new ParticipantCircuitBreaker(windowSize, minimumCalls,
+                failureRateThreshold, openDurationMillis, halfOpenProbes, System::currentTimeMillis,
+                (from, to) -> {
+                    logger.warn("Circuit for saga participant {} moved from {} to {}", serviceName, from, to);
+                    Counter.builder("saga.breaker.transitions.total")
+                            .tag("service", serviceName)
+                            .tag("state", to.name())
+                            .register(meterRegistry)
+                            .increment();
+                });
+
+        // 0 closed, 1 half-open, 2 open
+        Gauge.builder("saga.breaker.state", breaker, b -> b.getState().ordinal())
+                .description("Circuit state of a saga participant")
+                .tag("service", serviceName)
+                .register(meterRegistry);
+        return breaker;
+    }
+}
@@ -0,0 +1,61 @@
+package com.telco.userservice.saga.resilience;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Global retry budget: retries may add at most {@code ratio} of the first attempts on
+ * top, plus a small per-second floor so a quiet service can still retry. Every first
+ * attempt deposits a fraction of a retry into a token bucket and every retry withdraws a
+ * whole one, so when a participant fails broadly retries stop instead of multiplying load.
+ */
+@Component
+public class SagaRetryBudget {
+
+    // Bucket4j counts whole tokens, one retry is this many so the ratio can be fractional
+    private static final long TOKENS_PER_RETRY = 100;
+
+    private final Bucket bucket;
+    private final long depositPerAttempt;
+    private final Counter rejectedCounter;
+
+    public SagaRetryBudget(MeterRegistry meterRegistry,
+            @Value("${saga.retry.budget.ratio:0.2}") double ratio,
+            @Value("${saga.retry.budget.min-per-second:1}") long minPerSecond,
+            @Value("${saga.retry.budget.max-burst:100}") long maxBurst) {
+        this.depositPerAttempt = Math.round(ratio * TOKENS_PER_RETRY);
+
+        Bandwidth limit = Bandwidth.classic(maxBurst * TOKENS_PER_RETRY,
+                Refill.greedy(minPerSecond * TOKENS_PER_RETRY, Duration.ofSeconds(1)))
+                .withInitialTokens(minPerSecond * TOKENS_PER_RETRY);
+        this.bucket = Bucket4j.builder()
+                .addLimit(limit)
+                .build();
+
+        this.rejectedCounter = Counter.builder("saga.retry.budget.rejected.total")
+                .description("Saga step retries refused because the retry budget was spent")
+                .register(meterRegistry);
+    }
+
+    public void onFirstAttempt() {
+        if (depositPerAttempt > 0) {
+            bucket.addTokens(depositPerAttempt);
+        }
+    }
+
+    public boolean tryAcquireRetry() {
+        if (bucket.tryConsume(TOKENS_PER_RETRY)) {
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+}
@@ -1,159 +1,225 @@
 package com.telco.userservice.saga.retry;
 
+import com.telco.userservice.saga.compensation.CompensationPriority;
+import com.telco.userservice.saga.compensation.SagaCompensationDispatcher;
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
 import com.telco.userservice.saga.event.SagaCompensationEvent;
-import com.telco.userservice.saga.event.SagaEvent;
-import com.telco.userservice.saga.persistence.SagaStateRepository;
-import com.telco.userservice.saga.producer.SagaEventProducer;
+import com.telco.userservice.saga.orchestrator.SagaLaneExecutor;
+import com.telco.userservice.saga.orchestrator.SagaOrchestrator;
+import com.telco.userservice.saga.persistence.SagaStateStore;
+import com.telco.userservice.saga.resilience.SagaRetryBudget;
+import com.telco.userservice.saga.retry.SagaRetryQueue.RetryEntry;
 import com.telco.userservice.saga.state.SagaState;
 import com.telco.userservice.saga.state.SagaStep;
 import com.telco.userservice.saga.state.SagaStepStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries failed saga steps through the durable {@link SagaRetryQueue} instead of
+ * in-memory timers or blocking backoff, so pending retries survive restarts and no thread
+ * waits out a delay. Each attempt is delayed by full-jitter exponential backoff and due
+ * retries are claimed in batches by whichever replica polls first. A replica that claims a
+ * retry for a saga it does not own hands it back rather than change a saga whose owner
+ * holds it in memory.
+ */
 @Component
 public class SagaRetryManager {
 
     private static final Logger logger = LoggerFactory.getLogger(SagaRetryManager.class);
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
-
-    @Autowired
-    private SagaStateRepository sagaStateRepository;
-
-    @Autowired
-    private SagaEventProducer sagaEventProducer;
-
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
-
-    @Retryable(value = {
-            Exception.class }, maxAttempts = MAX_RETRY_ATTEMPTS, backoff = @Backoff(delay = 5000, multiplier = 2))
-    public CompletableFuture<Void> retrySagaStep(String sagaId, String stepName, Runnable stepAction) {
-        logger.info("Retrying saga step: {} for saga: {}", stepName, sagaId);
-
-        try {
-            stepAction.run();
-            markStepCompleted(sagaId, stepName);
-            return CompletableFuture.completedFuture(null);
-
-        } catch (Exception e) {
-            logger.warn("Saga step failed, will retry: {} for saga: {} - {}", stepName, sagaId, e.getMessage());
-            throw e;
-        }
+    // Created by the caller that starts the saga, there is nothing to re-dispatch
+    private static final Set<String> NON_RETRYABLE_STEPS = Set.of("CREATE_USER");
+
+    private final SagaStateStore sagaStateStore;
+    private final SagaCompensationDispatcher sagaCompensationDispatcher;
+    private final SagaLaneExecutor sagaLaneExecutor;
+    private final SagaOrchestrator sagaOrchestrator;
+    private final SagaRetryQueue sagaRetryQueue;
+    private final SagaRetryBudget sagaRetryBudget;
+    private final SagaPartitionOwnership sagaPartitionOwnership;
+    private final int maxRetryAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final int batchSize;
+    private final Duration lease;
+    private final Duration pollInterval;
+
+    private final Counter scheduledCounter;
+    private final Counter dispatchedCounter;
+    private final Counter exhaustedCounter;
+
+    public SagaRetryManager(SagaStateStore sagaStateStore,
+            SagaCompensationDispatcher sagaCompensationDispatcher,
+            SagaLaneExecutor sagaLaneExecutor,
+            // Lazy, the orchestrator itself schedules retries through this manager
+            @Lazy SagaOrchestrator sagaOrchestrator,
+            SagaRetryQueue sagaRetryQueue,
+            SagaRetryBudget sagaRetryBudget,
+            SagaPartitionOwnership sagaPartitionOwnership,
+            MeterRegistry meterRegistry,
+            @Value("${saga.max.retry.attempts:3}") int maxRetryAttempts,
+            @Value("${saga.retry.delay.seconds:5}") long baseDelaySeconds,
+            @Value("${saga.retry.max-delay.seconds:300}") long maxDelaySeconds,
+            @Value("${saga.retry.batch-size:100}") int batchSize,
+            @Value("${saga.retry.lease.seconds:30}") long leaseSeconds,
+            @Value("${saga.retry.poll-interval-ms:1000}") long pollIntervalMs) {
+        this.sagaStateStore = sagaStateStore;
+        this.sagaCompensationDispatcher = sagaCompensationDispatcher;
+        this.sagaLaneExecutor = sagaLaneExecutor;
+        this.sagaOrchestrator = sagaOrchestrator;
+        this.sagaRetryQueue = sagaRetryQueue;
+        this.sagaRetryBudget = sagaRetryBudget;
+        this.sagaPartitionOwnership = sagaPartitionOwnership;
+        this.maxRetryAttempts = maxRetryAttempts;
+        this.baseDelay = Duration.ofSeconds(baseDelaySeconds);
+        this.maxDelay = Duration.ofSeconds(maxDelaySeconds);
+        this.batchSize = batchSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.pollInterval = Duration.ofMillis(pollIntervalMs);
+
+        this.scheduledCounter = Counter.builder("saga.retry.scheduled.total")
+                .description("Saga step retries written to the delayed-retry queue")
+                .register(meterRegistry);
+
+        this.dispatchedCounter = Counter.builder("saga.retry.dispatched.total")
+                .description("Saga step retries claimed and re-dispatched")
+                .register(meterRegistry);
+
+        this.exhaustedCounter = Counter.builder("saga.retry.exhausted.total")
+                .description("Saga steps that failed for good after their last retry")
+                .register(meterRegistry);
     }
 
-    @Recover
-    public CompletableFuture<Void> recoverSagaStep(Exception ex, String sagaId, String stepName, Runnable stepAction) {
-        logger.error("Saga step failed after all retries: {} for saga: {} - {}", stepName, sagaId, ex.getMessage());
-
-        // Mark step as failed
-        markStepFailed(sagaId, stepName, ex.getMessage());
-
-        // Trigger compensation
-        triggerCompensation(sagaId, "Step failed after retries: " + ex.getMessage());
-
-        return CompletableFuture.completedFuture(null);
-    }
-
-    public void scheduleRetry(String sagaId, String stepName, Runnable stepAction, int attemptNumber) {
-        if (attemptNumber >= MAX_RETRY_ATTEMPTS) {
+    public void scheduleRetry(String sagaId, String stepName, int attemptNumber) {
+        if (attemptNumber >= maxRetryAttempts) {
             logger.error("Max retry attempts reached for saga step: {} for saga: {}", stepName, sagaId);
+            exhaustedCounter.increment();
             markStepFailed(sagaId, stepName, "Max retry attempts reached");
             triggerCompensation(sagaId, "Max retry attempts reached");
             return;
         }
 
-        // Calculate delay with exponential backoff
-        long delay = RETRY_DELAY.toMillis() * (long) Math.pow(2, attemptNumber);
+        long delay = backoffMillis(attemptNumber);
+        sagaRetryQueue.schedule(new RetryEntry(sagaId, stepName, attemptNumber + 1),
+                System.currentTimeMillis() + delay);
+        scheduledCounter.increment();
 
-        logger.info("Scheduling retry {} for saga step: {} for saga: {} in {}ms",
+        logger.info("Scheduled retry {} for saga step: {} for saga: {} in {}ms",
                 attemptNumber + 1, stepName, sagaId, delay);
+    }
 
-        scheduler.schedule(() -> {
-            try {
-                stepAction.run();
-                markStepCompleted(sagaId, stepName);
-            } catch (Exception e) {
-                scheduleRetry(sagaId, stepName, stepAction, attemptNumber + 1);
-            }
-        }, delay, java.util.concurrent.TimeUnit.MILLISECONDS);
+    /**
+     * Re-dispatches a step after {@code delayMillis} without using up a retry attempt, for
+     * steps held back while their participant's circuit is open.
+     */
+    public void park(String sagaId, String stepName, int attempt, long delayMillis) {
+        sagaRetryQueue.schedule(RetryEntry.parked(sagaId, stepName, attempt), System.currentTimeMillis() + delayMillis);
+        logger.info("Parked saga step: {} for saga: {} for {}ms", stepName, sagaId, delayMillis);
     }
 
-    public boolean shouldRetry(String sagaId, String stepName) {
-        SagaState sagaState = sagaStateRepository.getSagaState(sagaId).orElse(null);
-        if (sagaState == null) {
-            return false;
+    // Full jitter: uniform in [0, min(max, base * 2^attempt)] spreads retries of a burst of failures
+    long backoffMillis(int attemptNumber) {
+        long ceiling = baseDelay.toMillis() << Math.min(attemptNumber, 30);
+        if (ceiling <= 0 || ceiling > maxDelay.toMillis()) {
+            ceiling = maxDelay.toMillis();
         }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
 
-        SagaStep step = sagaState.getSteps().stream()
-                .filter(s -> s.getStepName().equals(stepName))
-                .findFirst()
-                .orElse(null);
-
-        if (step == null) {
-            return false;
+    @Scheduled(fixedDelayString = "${saga.retry.poll-interval-ms:1000}")
+    public void dispatchDueRetries() {
+        try {
+            List<RetryEntry> due;
+            int handedBack;
+            do {
+                long now = System.currentTimeMillis();
+                due = sagaRetryQueue.claimDue(now, batchSize, lease.toMillis());
+                handedBack = 0;
+                for (RetryEntry entry : due) {
+                    if (sagaPartitionOwnership.owns(entry.getSagaId())) {
+                        dispatch(entry);
+                    } else {
+                        // Due again after this poll, so the owner can claim it on its next one
+                        sagaRetryQueue.schedule(entry, now + pollInterval.toMillis());
+                        handedBack++;
+                    }
+                }
+            } while (due.size() == batchSize && handedBack < due.size());
+        } catch (Exception e) {
+            logger.error("Failed to dispatch due saga retries", e);
         }
+    }
 
-        // Check if step has failed and can be retried
-        return step.getStatus() == SagaStepStatus.FAILED &&
-                getRetryCount(step) < MAX_RETRY_ATTEMPTS;
+    private void dispatch(RetryEntry entry) {
+        sagaOrchestrator.retryStep(entry.getSagaId(), entry.getStepName(), entry.getAttempt())
+                .whenComplete((dispatched, ex) -> {
+                    if (ex != null) {
+                        // Left leased, it becomes due again when the lease expires
+                        logger.warn("Failed to retry step {} of saga {}, will retry after lease",
+                                entry.getStepName(), entry.getSagaId(), ex);
+                        return;
+                    }
+                    sagaRetryQueue.complete(entry);
+                    if (Boolean.TRUE.equals(dispatched)) {
+                        dispatchedCounter.increment();
+                    } else {
+                        logger.debug("Dropped retry of step {} for saga {}, nothing left to retry",
+                                entry.getStepName(), entry.getSagaId());
+                    }
+                });
     }
 
-    private int getRetryCount(SagaStep step) {
-        // In a real implementation, you would store retry count in the step
-        // For now, we'll use a simple approach based on timestamps
-        if (step.getEndTime() == null) {
-            return 0;
-        }
+    public boolean shouldRetry(String sagaId, String stepName) {
+        return sagaLaneExecutor.submit(sagaId, () -> isRetryable(sagaId, stepName)).join();
+    }
 
-        Duration timeSinceFailure = Duration.between(step.getEndTime(), LocalDateTime.now());
-        return (int) (timeSinceFailure.toMinutes() / RETRY_DELAY.toMinutes());
+    private boolean isRetryable(String sagaId, String stepName) {
+        if (NON_RETRYABLE_STEPS.contains(stepName)) {
+            return false;
+        }
+        SagaStep step = findStep(sagaId, stepName);
+        return step != null && step.getStatus() == SagaStepStatus.FAILED && step.getRetryCount() < maxRetryAttempts;
     }
 
-    private void markStepCompleted(String sagaId, String stepName) {
-        SagaState sagaState = sagaStateRepository.getSagaState(sagaId).orElse(null);
-        if (sagaState != null) {
-            sagaState.getSteps().stream()
-                    .filter(step -> step.getStepName().equals(stepName))
-                    .findFirst()
-                    .ifPresent(step -> {
-                        step.setStatus(SagaStepStatus.COMPLETED);
-                        step.setEndTime(LocalDateTime.now());
-                    });
-            sagaStateRepository.saveSagaState(sagaState);
+    private SagaStep findStep(String sagaId, String stepName) {
+        SagaState sagaState = sagaStateStore.get(sagaId);
+        if (sagaState == null) {
+            return null;
         }
+        return sagaState.getSteps().stream()
+                .filter(s -> s.getStepName().equals(stepName))
+                .findFirst()
+                .orElse(null);
     }
 
+    // Single-field updates in Redis, applied on the saga's lane like every other mutation
     private void markStepFailed(String sagaId, String stepName, String errorMessage) {
-        SagaState sagaState = sagaStateRepository.getSagaState(sagaId).orElse(null);
-        if (sagaState != null) {
-            sagaState.getSteps().stream()
-                    .filter(step -> step.getStepName().equals(stepName))
-                    .findFirst()
-                    .ifPresent(step -> {
-                        step.setStatus(SagaStepStatus.FAILED);
-                        step.setErrorMessage(errorMessage);
-                        step.setEndTime(LocalDateTime.now());
-                    });
-            sagaState.setCompensationRequired(true);
-            sagaStateRepository.saveSagaState(sagaState);
-        }
+        sagaLaneExecutor.execute(sagaId, () -> {
+            if (!sagaStateStore.updateStep(sagaId, stepName, SagaStepStatus.FAILED, errorMessage)) {
+                logger.debug("Step {} of saga {} was not marked failed, already final or saga missing",
+                        stepName, sagaId);
+            }
+        });
     }
 
     private void triggerCompensation(String sagaId, String reason) {
-        SagaState sagaState = sagaStateRepository.getSagaState(sagaId).orElse(null);
+        sagaLaneExecutor.execute(sagaId, () -> publishCompensation(sagaId, reason));
+    }
+
+    private void publishCompensation(String sagaId, String reason) {
+        SagaState sagaState = sagaStateStore.get(sagaId);
         if (sagaState != null) {
             SagaCompensationEvent compensationEvent = new SagaCompensationEvent(
                     sagaId,
@@ -167,7 +233,7 @@ public class SagaRetryManager {
                         }
                     });
 
-            sagaEventProducer.publishSagaEvent(compensationEvent);
+            sagaCompensationDispatcher.dispatch(compensationEvent, CompensationPriority.NORMAL);
         }
     }
 
@@ -175,13 +241,12 @@ public class SagaRetryManager {
         logger.warn("Handling retryable failure for saga step: {} for saga: {} - {}",
                 stepName, sagaId, exception.getMessage());
 
-        if (shouldRetry(sagaId, stepName)) {
-            scheduleRetry(sagaId, stepName, () -> {
-                // This would be the actual step action
-                throw new RuntimeException("Retry action not implemented");
-            }, 0);
+        markStepFailed(sagaId, stepName, exception.getMessage());
+        if (shouldRetry(sagaId, stepName) && sagaRetryBudget.tryAcquireRetry()) {
+            SagaStep step = sagaLaneExecutor.submit(sagaId, () -> findStep(sagaId, stepName)).join();
+            scheduleRetry(sagaId, stepName, step != null ? step.getRetryCount() : 0);
         } else {
-            markStepFailed(sagaId, stepName, exception.getMessage());
+            exhaustedCounter.increment();
             triggerCompensation(sagaId, "Step failed and retries exhausted");
         }
     }
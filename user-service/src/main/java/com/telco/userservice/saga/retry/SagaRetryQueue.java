@@ -0,0 +1,120 @@
+package com.telco.userservice.saga.retry;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Durable delayed-retry queue: a Redis sorted set of pending step retries scored by due
+ * time. Due entries are claimed in batches by pushing their score out by a lease, so any
+ * replica can claim them without double dispatch, and an entry whose claimant dies
+ * becomes due again once the lease runs out.
+ *
+ * <p>A parked step keeps its attempt number, so each park gets its own member: re-parking
+ * a step from the very retry that claimed it must not be undone when that claim completes.
+ */
+@Repository
+public class SagaRetryQueue {
+
+    private static final String RETRY_KEY = "saga:retries";
+    private static final String SEPARATOR = "|";
+    private static final String PARK_PREFIX = "park-";
+
+    // ARGV: now, batch size, lease expiry
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n" +
+            "for _, member in ipairs(due) do redis.call('ZADD', KEYS[1], 'XX', ARGV[3], member) end\n" +
+            "return due", List.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public SagaRetryQueue(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void schedule(RetryEntry entry, long dueAtMillis) {
+        redisTemplate.opsForZSet().add(RETRY_KEY, entry.toMember(), dueAtMillis);
+    }
+
+    public List<RetryEntry> claimDue(long nowMillis, int limit, long leaseMillis) {
+        List<?> members = redisTemplate.execute(CLAIM_SCRIPT, List.of(RETRY_KEY),
+                String.valueOf(nowMillis), String.valueOf(limit), String.valueOf(nowMillis + leaseMillis));
+        List<RetryEntry> entries = new ArrayList<>();
+        if (members != null) {
+            for (Object member : members) {
+                entries.add(RetryEntry.fromMember(member.toString()));
+            }
+        }
+        return entries;
+    }
+
+    public void complete(RetryEntry entry) {
+        redisTemplate.opsForZSet().remove(RETRY_KEY, entry.toMember());
+    }
+
+    public long size() {
+        Long size = redisTemplate.opsForZSet().zCard(RETRY_KEY);
+        return size != null ? size : 0;
+    }
+
+    public static class RetryEntry {
+        private final String sagaId;
+        private final String stepName;
+        private final int attempt;
+        // Set only for parked steps
+        private final String parkId;
+
+        public RetryEntry(String sagaId, String stepName, int attempt) {
+            this(sagaId, stepName, attempt, null);
+        }
+
+        private RetryEntry(String sagaId, String stepName, int attempt, String parkId) {
+            this.sagaId = sagaId;
+            this.stepName = stepName;
+            this.attempt = attempt;
+            this.parkId = parkId;
+        }
+
+        public static RetryEntry parked(String sagaId, String stepName, int attempt) {
+            return new RetryEntry(sagaId, stepName, attempt,
+                    PARK_PREFIX + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        }
+
+        String toMember() {
+            String member = sagaId + SEPARATOR + stepName + SEPARATOR + attempt;
+            return parkId != null ? member + SEPARATOR + parkId : member;
+        }
+
+        static RetryEntry fromMember(String member) {
+            String parkId = null;
+            int end = member.length();
+            int lastSeparator = member.lastIndexOf(SEPARATOR);
+            if (member.startsWith(PARK_PREFIX, lastSeparator + 1)) {
+                parkId = member.substring(lastSeparator + 1);
+                end = lastSeparator;
+            }
+            int attemptSeparator = member.lastIndexOf(SEPARATOR, end - 1);
+            int stepSeparator = member.lastIndexOf(SEPARATOR, attemptSeparator - 1);
+            return new RetryEntry(member.substring(0, stepSeparator),
+                    member.substring(stepSeparator + 1, attemptSeparator),
+                    Integer.parseInt(member.substring(attemptSeparator + 1, end)), parkId);
+        }
+
+        public String getSagaId() {
+            return sagaId;
+        }
+
+        public String getStepName() {
+            return stepName;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.telco.userservice.saga.state;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class SagaState {
+    // Applied event ids kept with the saga; a saga sees a handful of events in its lifetime
+    private static final int MAX_APPLIED_EVENT_IDS = 16;
+
     private String sagaId;
     private String correlationId;
     private SagaStatus status;
@@ -14,9 +19,11 @@ public class SagaState {
     private String currentStep;
     private String failureReason;
     private boolean compensationRequired;
+    private List<String> appliedEventIds;
 
     public SagaState() {
         this.steps = new ArrayList<>();
+        this.appliedEventIds = new ArrayList<>();
         this.status = SagaStatus.PENDING;
         this.startTime = LocalDateTime.now();
         this.compensationRequired = false;
@@ -28,6 +35,45 @@ public class SagaState {
         this.correlationId = correlationId;
     }
 
+    // Deep copy for readers outside the saga's lane
+    public SagaState copy() {
+        SagaState copy = new SagaState(sagaId, correlationId);
+        copy.status = status;
+        copy.startTime = startTime;
+        copy.endTime = endTime;
+        copy.currentStep = currentStep;
+        copy.failureReason = failureReason;
+        copy.compensationRequired = compensationRequired;
+        for (SagaStep step : steps) {
+            copy.steps.add(step.copy());
+        }
+        copy.appliedEventIds.addAll(appliedEventIds);
+        return copy;
+    }
+
+    /**
+     * Remembers that an event was applied, so a redelivery that reaches an instance without
+     * it in its dedup window is still recognised once the saga is loaded.
+     */
+    public void recordAppliedEvent(String eventId) {
+        if (eventId == null || appliedEventIds.contains(eventId)) {
+            return;
+        }
+        appliedEventIds.add(eventId);
+        if (appliedEventIds.size() > MAX_APPLIED_EVENT_IDS) {
+            appliedEventIds.remove(0);
+        }
+    }
+
+    public boolean hasApplied(String eventId) {
+        return eventId != null && appliedEventIds.contains(eventId);
+    }
+
+    @JsonIgnore
+    public List<String> getAppliedEventIds() {
+        return appliedEventIds;
+    }
+
     public void addStep(SagaStep step) {
         this.steps.add(step);
         this.currentStep = step.getStepName();
@@ -40,6 +86,13 @@ public class SagaState {
                 .ifPresent(step -> step.setStatus(SagaStepStatus.COMPLETED));
     }
 
+    public void markStepCompensated(String stepName) {
+        steps.stream()
+                .filter(step -> step.getStepName().equals(stepName))
+                .findFirst()
+                .ifPresent(step -> step.setStatus(SagaStepStatus.COMPENSATED));
+    }
+
     public void markStepFailed(String stepName, String errorMessage) {
         steps.stream()
                 .filter(step -> step.getStepName().equals(stepName))
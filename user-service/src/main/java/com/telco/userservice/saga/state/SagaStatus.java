@@ -6,5 +6,9 @@ public enum SagaStatus {
     COMPLETED, // All steps completed successfully
     FAILED, // One or more steps failed
     COMPENSATED, // Saga was compensated due to failure
-    TIMEOUT // Saga timed out
+    TIMEOUT; // Saga timed out
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == COMPENSATED;
+    }
 }
@@ -11,6 +11,7 @@ public class SagaStep {
     private String errorMessage;
     private String compensationAction;
     private Object stepData;
+    private int retryCount;
 
     public SagaStep() {
         this.status = SagaStepStatus.PENDING;
@@ -28,6 +29,17 @@ public class SagaStep {
         this.compensationAction = compensationAction;
     }
 
+    public SagaStep copy() {
+        SagaStep copy = new SagaStep(stepName, serviceName, compensationAction);
+        copy.status = status;
+        copy.startTime = startTime;
+        copy.endTime = endTime;
+        copy.errorMessage = errorMessage;
+        copy.stepData = stepData;
+        copy.retryCount = retryCount;
+        return copy;
+    }
+
     // Getters and Setters
     public String getStepName() {
         return stepName;
@@ -92,4 +104,12 @@ public class SagaStep {
     public void setStepData(Object stepData) {
         this.stepData = stepData;
     }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(int retryCount) {
+        this.retryCount = retryCount;
+    }
 }
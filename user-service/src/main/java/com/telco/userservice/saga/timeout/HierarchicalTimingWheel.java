@@ -0,0 +1,288 @@
+package com.telco.userservice.saga.timeout;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel modelled on Kafka's purgatory timer. Scheduling and
+ * cancelling are O(1); a single reaper thread only wakes up when a non-empty bucket
+ * expires, and timers beyond the range of a wheel cascade down from coarser overflow
+ * wheels as the clock advances. Expired tasks run on the supplied executor.
+ */
+public class HierarchicalTimingWheel implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+    private static final long REAPER_POLL_MS = 200;
+
+    private final DelayQueue<TimerBucket> delayQueue = new DelayQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Adds share the read lock, advancing the clock takes the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Executor taskExecutor;
+    private final Wheel wheel;
+    private final Thread reaper;
+    private volatile boolean running = true;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, Executor taskExecutor, String threadName) {
+        this.taskExecutor = taskExecutor;
+        this.wheel = new Wheel(tickMs, wheelSize, System.currentTimeMillis(), pending, delayQueue);
+        this.reaper = new Thread(this::runReaper, threadName);
+        this.reaper.setDaemon(true);
+        this.reaper.start();
+    }
+
+    public TimerHandle schedule(long deadlineMillis, Runnable task) {
+        TimerEntry entry = new TimerEntry(deadlineMillis, task);
+        lock.readLock().lock();
+        try {
+            addOrRun(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return entry;
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        reaper.interrupt();
+    }
+
+    private void addOrRun(TimerEntry entry) {
+        if (!wheel.add(entry) && !entry.isCancelled()) {
+            taskExecutor.execute(entry.task);
+        }
+    }
+
+    private void runReaper() {
+        while (running) {
+            try {
+                advance(REAPER_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Timing wheel reaper failed to advance", e);
+            }
+        }
+    }
+
+    boolean advance(long timeoutMs) throws InterruptedException {
+        TimerBucket bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                wheel.advanceClock(bucket.getExpiration());
+                bucket.flush(this::addOrRun);
+                bucket = delayQueue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    public interface TimerHandle {
+        void cancel();
+
+        boolean isCancelled();
+
+        long getDeadline();
+    }
+
+    private static final class Wheel {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final TimerBucket[] buckets;
+        private final AtomicInteger pending;
+        private final DelayQueue<TimerBucket> delayQueue;
+        private long currentTime;
+        private volatile Wheel overflowWheel;
+
+        Wheel(long tickMs, int wheelSize, long startMs, AtomicInteger pending, DelayQueue<TimerBucket> delayQueue) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.pending = pending;
+            this.delayQueue = delayQueue;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new TimerBucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new TimerBucket(pending);
+            }
+        }
+
+        // Returns false when the entry is cancelled or already due
+        boolean add(TimerEntry entry) {
+            long expiration = entry.deadline;
+            if (entry.isCancelled() || expiration < currentTime + tickMs) {
+                return false;
+            }
+            if (expiration < currentTime + interval) {
+                long virtualId = expiration / tickMs;
+                TimerBucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                // Only re-queue a bucket when it starts a new round
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            }
+            return overflow().add(entry);
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                Wheel overflow = overflowWheel;
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Wheel overflow() {
+            if (overflowWheel == null) {
+                synchronized (this) {
+                    if (overflowWheel == null) {
+                        overflowWheel = new Wheel(interval, wheelSize, currentTime, pending, delayQueue);
+                    }
+                }
+            }
+            return overflowWheel;
+        }
+    }
+
+    private static final class TimerBucket implements Delayed {
+        private final AtomicLong expiration = new AtomicLong(-1);
+        private final TimerEntry root = new TimerEntry(-1, null);
+        private final AtomicInteger pending;
+
+        TimerBucket(AtomicInteger pending) {
+            this.pending = pending;
+            root.next = root;
+            root.prev = root;
+        }
+
+        boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        void add(TimerEntry entry) {
+            boolean added = false;
+            while (!added) {
+                // Detach from any bucket it is being moved out of first
+                entry.remove();
+                synchronized (this) {
+                    synchronized (entry) {
+                        if (entry.bucket == null) {
+                            TimerEntry tail = root.prev;
+                            entry.next = root;
+                            entry.prev = tail;
+                            entry.bucket = this;
+                            tail.next = entry;
+                            root.prev = entry;
+                            pending.incrementAndGet();
+                            added = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized void remove(TimerEntry entry) {
+            synchronized (entry) {
+                if (entry.bucket == this) {
+                    entry.next.prev = entry.prev;
+                    entry.prev.next = entry.next;
+                    entry.next = null;
+                    entry.prev = null;
+                    entry.bucket = null;
+                    pending.decrementAndGet();
+                }
+            }
+        }
+
+        synchronized void flush(Consumer<TimerEntry> consumer) {
+            TimerEntry head = root.next;
+            while (head != root) {
+                remove(head);
+                consumer.accept(head);
+                head = root.next;
+            }
+            expiration.set(-1);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            long delayMs = Math.max(getExpiration() - System.currentTimeMillis(), 0);
+            return unit.convert(delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((TimerBucket) other).getExpiration());
+        }
+    }
+
+    private static final class TimerEntry implements TimerHandle {
+        private final long deadline;
+        private final Runnable task;
+        private volatile TimerBucket bucket;
+        private volatile boolean cancelled;
+        private TimerEntry prev;
+        private TimerEntry next;
+
+        TimerEntry(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public long getDeadline() {
+            return deadline;
+        }
+
+        // The entry may be moved between buckets concurrently, so retry until detached
+        void remove() {
+            TimerBucket current = bucket;
+            while (current != null) {
+                current.remove(this);
+                current = bucket;
+            }
+        }
+    }
+}
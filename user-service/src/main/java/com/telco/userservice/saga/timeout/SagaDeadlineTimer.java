@@ -0,0 +1,110 @@
+package com.telco.userservice.saga.timeout;
+
+import com.telco.userservice.saga.timeout.HierarchicalTimingWheel.TimerHandle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Holds at most one pending deadline per saga on a hierarchical timing wheel. Each
+ * transition replaces the saga's timer and settled sagas cancel theirs, so timers never
+ * outlive the saga they belong to.
+ */
+@Component
+public class SagaDeadlineTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaDeadlineTimer.class);
+
+    private final HierarchicalTimingWheel timingWheel;
+    private final Map<String, TimerHandle> timers = new ConcurrentHashMap<>();
+    private volatile Consumer<String> expiryHandler = sagaId -> {
+    };
+
+    private final Counter firedCounter;
+
+    public SagaDeadlineTimer(@Qualifier("virtualThreadExecutor") Executor executor,
+            MeterRegistry meterRegistry,
+            @Value("${saga.timeout.wheel.tick-ms:1}") long tickMs,
+            @Value("${saga.timeout.wheel.size:20}") int wheelSize) {
+        this.timingWheel = new HierarchicalTimingWheel(tickMs, wheelSize, executor, "saga-deadline-reaper");
+
+        this.firedCounter = Counter.builder("saga.timeout.timer.fired.total")
+                .description("Saga deadlines fired by the timing wheel")
+                .register(meterRegistry);
+
+        Gauge.builder("saga.timeout.timer.pending", timingWheel, HierarchicalTimingWheel::getPendingCount)
+                .description("Saga deadlines waiting on the timing wheel")
+                .register(meterRegistry);
+    }
+
+    public void setExpiryHandler(Consumer<String> expiryHandler) {
+        this.expiryHandler = expiryHandler;
+    }
+
+    public void schedule(String sagaId, long deadlineMillis) {
+        // Most transitions leave the deadline unchanged, keep the existing timer then
+        TimerHandle current = timers.get(sagaId);
+        if (current != null && !current.isCancelled() && current.getDeadline() == deadlineMillis
+                && deadlineMillis > System.currentTimeMillis()) {
+            return;
+        }
+
+        AtomicReference<TimerHandle> self = new AtomicReference<>();
+        TimerHandle handle = timingWheel.schedule(deadlineMillis, () -> fire(sagaId, self.get()));
+        self.set(handle);
+
+        TimerHandle previous = timers.put(sagaId, handle);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public void cancel(String sagaId) {
+        TimerHandle handle = timers.remove(sagaId);
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    public void cancelIf(Predicate<String> sagaIdFilter) {
+        for (String sagaId : timers.keySet()) {
+            if (sagaIdFilter.test(sagaId)) {
+                cancel(sagaId);
+            }
+        }
+    }
+
+    public int getScheduledCount() {
+        return timers.size();
+    }
+
+    private void fire(String sagaId, TimerHandle handle) {
+        if (handle != null) {
+            timers.remove(sagaId, handle);
+        }
+        firedCounter.increment();
+        try {
+            expiryHandler.accept(sagaId);
+        } catch (Exception e) {
+            logger.error("Deadline handler failed for saga: {}", sagaId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.close();
+    }
+}
@@ -1,102 +1,144 @@
 package com.telco.userservice.saga.timeout;
 
+import com.telco.userservice.saga.compensation.CompensationPriority;
+import com.telco.userservice.saga.compensation.SagaCompensationDispatcher;
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
 import com.telco.userservice.saga.event.SagaCompensationEvent;
-import com.telco.userservice.saga.orchestrator.SagaOrchestrator;
-import com.telco.userservice.saga.persistence.SagaStateRepository;
-import com.telco.userservice.saga.producer.SagaEventProducer;
+import com.telco.userservice.saga.metrics.SagaMetrics;
+import com.telco.userservice.saga.orchestrator.SagaLaneExecutor;
+import com.telco.userservice.saga.persistence.SagaDeadlineIndex;
+import com.telco.userservice.saga.persistence.SagaStateStore;
 import com.telco.userservice.saga.state.SagaState;
 import com.telco.userservice.saga.state.SagaStatus;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 
 @Component
 public class SagaTimeoutManager {
 
     private static final Logger logger = LoggerFactory.getLogger(SagaTimeoutManager.class);
-    private static final Duration SAGA_TIMEOUT = Duration.ofMinutes(10); // 10 minutes timeout
-    private static final Duration STEP_TIMEOUT = Duration.ofMinutes(2); // 2 minutes per step
 
     @Autowired
-    private SagaStateRepository sagaStateRepository;
+    private SagaStateStore sagaStateStore;
 
     @Autowired
-    private SagaEventProducer sagaEventProducer;
+    private SagaDeadlineIndex sagaDeadlineIndex;
 
     @Autowired
-    private SagaOrchestrator sagaOrchestrator;
+    private SagaDeadlineTimer sagaDeadlineTimer;
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    @Autowired
+    private SagaCompensationDispatcher sagaCompensationDispatcher;
 
-    @Scheduled(fixedDelay = 30000) // Check every 30 seconds
-    public void checkSagaTimeouts() {
-        logger.debug("Checking for saga timeouts...");
+    @Autowired
+    private SagaLaneExecutor sagaLaneExecutor;
 
-        // In production, you would query Redis for all active sagas
-        // For now, we'll check in-memory sagas
-        List<String> activeSagaIds = sagaOrchestrator.getActiveSagaIds();
+    @Autowired
+    private SagaMetrics sagaMetrics;
 
-        for (String sagaId : activeSagaIds) {
+    // Only the owner may change a saga, it holds the copy its next event is applied to
+    @Autowired
+    private SagaPartitionOwnership sagaPartitionOwnership;
+
+    @Value("${saga.timeout.scan.batch-size:500}")
+    private int scanBatchSize;
+
+    @PostConstruct
+    public void init() {
+        sagaDeadlineTimer.setExpiryHandler(this::onDeadline);
+    }
+
+    private void onDeadline(String sagaId) {
+        if (sagaPartitionOwnership.owns(sagaId) && sagaDeadlineIndex.claim(sagaId)) {
             checkSagaTimeout(sagaId);
         }
     }
 
-    @Async
+    // Safety net for owned deadlines whose timer was missed; other owners handle the rest
+    @Scheduled(fixedDelayString = "${saga.timeout.scan.interval-ms:30000}")
+    public void checkSagaTimeouts() {
+        logger.debug("Checking for saga timeouts...");
+
+        // Only sagas whose deadline has passed are read from the index
+        long now = System.currentTimeMillis();
+        long skipped = 0;
+        Set<String> expiredSagaIds;
+        do {
+            // Claimed entries leave the index, so only the skipped ones shift the next page
+            expiredSagaIds = sagaDeadlineIndex.findExpired(now, skipped, scanBatchSize);
+            for (String sagaId : expiredSagaIds) {
+                if (!sagaPartitionOwnership.owns(sagaId)) {
+                    skipped++;
+                } else if (sagaDeadlineIndex.claim(sagaId)) {
+                    checkSagaTimeout(sagaId);
+                }
+            }
+        } while (expiredSagaIds.size() == scanBatchSize);
+    }
+
+    // Runs on the saga's lane so it never races the orchestrator for the same saga
     public CompletableFuture<Void> checkSagaTimeout(String sagaId) {
+        return sagaLaneExecutor.execute(sagaId, () -> evaluateTimeout(sagaId));
+    }
+
+    private void evaluateTimeout(String sagaId) {
         try {
-            SagaState sagaState = sagaStateRepository.getSagaState(sagaId).orElse(null);
-            if (sagaState == null) {
-                return CompletableFuture.completedFuture(null);
+            SagaState sagaState = sagaStateStore.get(sagaId);
+            if (sagaState == null || !SagaDeadlineIndex.isRunning(sagaState)) {
+                return;
             }
 
             // Check overall saga timeout
             if (isSagaTimedOut(sagaState)) {
                 handleSagaTimeout(sagaState, "Saga overall timeout exceeded");
-                return CompletableFuture.completedFuture(null);
+                return;
             }
 
             // Check step timeout
             if (isStepTimedOut(sagaState)) {
                 handleStepTimeout(sagaState, "Saga step timeout exceeded");
-                return CompletableFuture.completedFuture(null);
+                return;
             }
 
+            // Deadline moved since it was indexed, put it back with the new score
+            sagaDeadlineIndex.update(sagaState);
+            sagaDeadlineTimer.schedule(sagaId, sagaDeadlineIndex.deadlineOf(sagaState));
+
         } catch (Exception e) {
             logger.error("Error checking timeout for saga: {}", sagaId, e);
         }
-
-        return CompletableFuture.completedFuture(null);
     }
 
     private boolean isSagaTimedOut(SagaState sagaState) {
-        if (sagaState.getStatus() != SagaStatus.IN_PROGRESS) {
+        if (!SagaDeadlineIndex.isRunning(sagaState)) {
             return false;
         }
 
         Duration elapsed = Duration.between(sagaState.getStartTime(), LocalDateTime.now());
-        return elapsed.compareTo(SAGA_TIMEOUT) > 0;
+        return elapsed.compareTo(sagaDeadlineIndex.getSagaTimeout()) >= 0;
     }
 
     private boolean isStepTimedOut(SagaState sagaState) {
-        if (sagaState.getStatus() != SagaStatus.IN_PROGRESS) {
+        if (!SagaDeadlineIndex.isRunning(sagaState)) {
             return false;
         }
 
         // Check if current step has been running too long
         return sagaState.getSteps().stream()
                 .anyMatch(step -> step.getStatus().name().equals("IN_PROGRESS") &&
-                        Duration.between(step.getStartTime(), LocalDateTime.now()).compareTo(STEP_TIMEOUT) > 0);
+                        Duration.between(step.getStartTime(), LocalDateTime.now())
+                                .compareTo(sagaDeadlineIndex.getStepTimeout()) >= 0);
     }
 
     private void handleSagaTimeout(SagaState sagaState, String reason) {
@@ -106,9 +148,10 @@ public class SagaTimeoutManager {
         sagaState.setStatus(SagaStatus.TIMEOUT);
         sagaState.setFailureReason(reason);
         sagaState.setCompensationRequired(true);
+        sagaMetrics.recordSagaTimedOut(sagaState.getSagaId());
 
         // Save updated state
-        sagaStateRepository.saveSagaState(sagaState);
+        sagaStateStore.save(sagaState);
 
         // Trigger compensation
         SagaCompensationEvent compensationEvent = new SagaCompensationEvent(
@@ -123,7 +166,7 @@ public class SagaTimeoutManager {
                     }
                 });
 
-        sagaEventProducer.publishSagaEvent(compensationEvent);
+        sagaCompensationDispatcher.dispatch(compensationEvent, CompensationPriority.LOW);
 
         logger.info("Saga timeout compensation triggered for saga: {}", sagaState.getSagaId());
     }
@@ -136,6 +179,8 @@ public class SagaTimeoutManager {
                 .filter(step -> step.getStatus().name().equals("IN_PROGRESS"))
                 .findFirst()
                 .ifPresent(step -> {
+                    sagaMetrics.recordSagaStepDuration(step.getStepName(), "timed_out",
+                            Duration.between(step.getStartTime(), LocalDateTime.now()));
                     step.setStatus(com.telco.userservice.saga.state.SagaStepStatus.FAILED);
                     step.setErrorMessage(reason);
                 });
@@ -144,9 +189,10 @@ public class SagaTimeoutManager {
         sagaState.setStatus(SagaStatus.FAILED);
         sagaState.setFailureReason(reason);
         sagaState.setCompensationRequired(true);
+        sagaMetrics.recordSagaTimedOut(sagaState.getSagaId());
 
         // Save updated state
-        sagaStateRepository.saveSagaState(sagaState);
+        sagaStateStore.save(sagaState);
 
         // Trigger compensation
         SagaCompensationEvent compensationEvent = new SagaCompensationEvent(
@@ -161,14 +207,18 @@ public class SagaTimeoutManager {
                     }
                 });
 
-        sagaEventProducer.publishSagaEvent(compensationEvent);
+        sagaCompensationDispatcher.dispatch(compensationEvent, CompensationPriority.LOW);
 
         logger.info("Step timeout compensation triggered for saga: {}", sagaState.getSagaId());
     }
 
     public void scheduleSagaTimeout(String sagaId) {
         // Schedule a timeout check for this specific saga
-        scheduler.schedule(() -> checkSagaTimeout(sagaId),
-                SAGA_TIMEOUT.toMillis(), java.util.concurrent.TimeUnit.MILLISECONDS);
+        sagaLaneExecutor.execute(sagaId, () -> {
+            SagaState sagaState = sagaStateStore.get(sagaId);
+            if (sagaState != null && SagaDeadlineIndex.isRunning(sagaState)) {
+                sagaDeadlineTimer.schedule(sagaId, sagaDeadlineIndex.deadlineOf(sagaState));
+            }
+        });
     }
 }
@@ -0,0 +1,171 @@
+package com.telco.userservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.model.User;
+import com.telco.userservice.outbox.OutboxWriter;
+import com.telco.userservice.saga.event.UserCreationFailedEvent;
+import com.telco.userservice.saga.producer.SagaEventProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registrations the saga endpoint has accepted but whose user is not created yet. Each one
+ * is stored before the client gets its 202 and run right away on the saga task executor; a
+ * sweep runs those left behind by a crash or a failed attempt. A request is locked while it
+ * runs and deleted in the transaction that creates the user, so it is applied once. A failed
+ * attempt has already failed the saga through USER_CREATION_FAILED and is deleted too.
+ */
+@Component
+public class UserRegistrationRequests {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserRegistrationRequests.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserService userService;
+    private final OutboxWriter outboxWriter;
+    private final ObjectMapper objectMapper;
+    private final Executor sagaTaskExecutor;
+    private final long retryAfterMs;
+    private final int sweepBatchSize;
+
+    private final Counter acceptedCounter;
+    private final Counter failedCounter;
+    private final Counter sweptCounter;
+
+    public UserRegistrationRequests(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UserService userService,
+            OutboxWriter outboxWriter,
+            ObjectMapper objectMapper,
+            @Qualifier("sagaTaskExecutor") Executor sagaTaskExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${saga.registration.retry-after-ms:30000}") long retryAfterMs,
+            @Value("${saga.registration.sweep-batch-size:100}") int sweepBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userService = userService;
+        this.outboxWriter = outboxWriter;
+        this.objectMapper = objectMapper;
+        this.sagaTaskExecutor = sagaTaskExecutor;
+        this.retryAfterMs = retryAfterMs;
+        this.sweepBatchSize = sweepBatchSize;
+
+        this.acceptedCounter = Counter.builder("saga.registration.accepted.total")
+                .description("User registrations stored before they were acknowledged")
+                .register(meterRegistry);
+
+        this.failedCounter = Counter.builder("saga.registration.failed.total")
+                .description("User registrations whose user creation failed the saga")
+                .register(meterRegistry);
+
+        this.sweptCounter = Counter.builder("saga.registration.swept.total")
+                .description("User registrations picked up again by the sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the registration of the saga's user, then starts creating it. Returns once the
+     * request is durable; the saga reports how creation went.
+     */
+    public void accept(User user, String sagaId) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize user: " + user.getUserId(), e);
+        }
+        jdbcTemplate.update("INSERT INTO user_registration_request (saga_id, payload) VALUES (?, ?)",
+                sagaId, payload);
+        acceptedCounter.increment();
+
+        // When saturated the request thread runs it, which slows intake instead of queueing more
+        sagaTaskExecutor.execute(() -> apply(sagaId));
+    }
+
+    // Requests still here after retry-after were dropped by an earlier attempt or instance
+    @Scheduled(fixedDelayString = "${saga.registration.sweep-interval-ms:10000}")
+    public void sweep() {
+        List<String> sagaIds;
+        try {
+            sagaIds = jdbcTemplate.queryForList(
+                    "SELECT saga_id FROM user_registration_request "
+                            + "WHERE created_at < CURRENT_TIMESTAMP - ? * INTERVAL '1 millisecond' "
+                            + "ORDER BY created_at LIMIT ?",
+                    String.class, retryAfterMs, sweepBatchSize);
+        } catch (Exception e) {
+            logger.error("Failed to read pending user registrations", e);
+            return;
+        }
+
+        for (String sagaId : sagaIds) {
+            logger.info("Resuming user registration for saga: {}", sagaId);
+            sweptCounter.increment();
+            apply(sagaId);
+        }
+    }
+
+    // Returns quietly when another attempt holds the request or it is already gone
+    void apply(String sagaId) {
+        AtomicBoolean attempted = new AtomicBoolean();
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                List<String> payload = jdbcTemplate.queryForList(
+                        "SELECT payload FROM user_registration_request WHERE saga_id = ? FOR UPDATE SKIP LOCKED",
+                        String.class, sagaId);
+                if (payload.isEmpty()) {
+                    return;
+                }
+
+                User user;
+                try {
+                    user = objectMapper.readValue(payload.get(0), User.class);
+                } catch (JsonProcessingException e) {
+                    // Never readable, so fail the saga instead of sweeping it forever
+                    logger.error("Dropping unreadable user registration for saga: {}", sagaId, e);
+                    outboxWriter.append(SagaEventProducer.SAGA_TOPIC, new UserCreationFailedEvent(
+                            sagaId, sagaId, null, "Unreadable registration request", "USER_CREATION_ERROR"));
+                    delete(sagaId);
+                    failedCounter.increment();
+                    return;
+                }
+
+                // Committed together with the user and its USER_CREATED event
+                attempted.set(true);
+                userService.saveWithSaga(user, sagaId);
+                delete(sagaId);
+            });
+        } catch (Exception e) {
+            if (!attempted.get()) {
+                logger.error("Failed to run user registration for saga: {}, leaving it for the sweep", sagaId, e);
+                return;
+            }
+            // saveWithSaga wrote USER_CREATION_FAILED once its transaction rolled back
+            logger.warn("User creation failed for saga: {} - {}", sagaId, e.getMessage());
+            failedCounter.increment();
+            try {
+                delete(sagaId);
+            } catch (Exception deleteFailure) {
+                logger.error("Failed to drop user registration for saga: {}", sagaId, deleteFailure);
+            }
+        }
+    }
+
+    private void delete(String sagaId) {
+        jdbcTemplate.update("DELETE FROM user_registration_request WHERE saga_id = ?", sagaId);
+    }
+}
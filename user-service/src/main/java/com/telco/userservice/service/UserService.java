@@ -1,7 +1,9 @@
 package com.telco.userservice.service;
 
+import com.telco.userservice.audit.UserAuditWriter;
 import com.telco.userservice.mapper.UserMapper;
 import com.telco.userservice.model.User;
+import com.telco.userservice.outbox.OutboxWriter;
 import com.telco.userservice.saga.event.UserCreatedEvent;
 import com.telco.userservice.saga.event.UserCreationFailedEvent;
 import com.telco.userservice.saga.producer.SagaEventProducer;
@@ -25,7 +27,10 @@ public class UserService {
     private UserMapper userMapper;
 
     @Autowired
-    private SagaEventProducer sagaEventProducer;
+    private OutboxWriter outboxWriter;
+
+    @Autowired
+    private UserAuditWriter userAuditWriter;
 
     @NewSpan("find-all-users")
     @Cacheable(value = "users", key = "'all'")
@@ -59,51 +64,62 @@ public class UserService {
         String correlationId = sagaId != null ? sagaId : UUID.randomUUID().toString();
 
         try {
-            if (user.getUserId() == null || user.getUserId().isEmpty()) {
-                throw new IllegalArgumentException("User ID is required");
-            }
-
-            // Check if user already exists
-            if (userMapper.findById(user.getUserId()).isPresent()) {
-                throw new IllegalStateException("User with ID " + user.getUserId() + " already exists");
-            }
-
-            // Check if phone number already exists
-            if (userMapper.findByPhoneNumber(user.getPhoneNumber()).isPresent()) {
-                throw new IllegalStateException("User with phone number " + user.getPhoneNumber() + " already exists");
-            }
+            validateNewUser(user);
 
             int result = userMapper.insert(user);
             if (result == 0) {
                 throw new RuntimeException("Failed to create user");
             }
+            userAuditWriter.recordInsert(user);
 
-            // Publish success event for saga
+            // Committed together with the user; the outbox relay publishes it
             if (sagaId != null) {
                 UserCreatedEvent event = new UserCreatedEvent(sagaId, correlationId, user);
-                sagaEventProducer.publishSagaEvent(event);
+                outboxWriter.append(SagaEventProducer.SAGA_TOPIC, event);
             }
 
             return user;
 
         } catch (Exception e) {
-            // Publish failure event for saga
+            // Written once this transaction has rolled back
             if (sagaId != null) {
                 UserCreationFailedEvent event = new UserCreationFailedEvent(
                         sagaId, correlationId, user.getUserId(), e.getMessage(), "USER_CREATION_ERROR");
-                sagaEventProducer.publishSagaEvent(event);
+                outboxWriter.appendOnRollback(SagaEventProducer.SAGA_TOPIC, event);
             }
             throw e;
         }
     }
 
+    /**
+     * Rejects a user that could not be created, so a caller can answer before starting
+     * any work for it. Creation checks again, another request may have taken the IDs since.
+     */
+    @Transactional(readOnly = true)
+    public void validateNewUser(User user) {
+        if (user.getUserId() == null || user.getUserId().isEmpty()) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+
+        // Check if user already exists
+        if (userMapper.findById(user.getUserId()).isPresent()) {
+            throw new IllegalStateException("User with ID " + user.getUserId() + " already exists");
+        }
+
+        // Check if phone number already exists
+        if (userMapper.findByPhoneNumber(user.getPhoneNumber()).isPresent()) {
+            throw new IllegalStateException("User with phone number " + user.getPhoneNumber() + " already exists");
+        }
+    }
+
     public Optional<User> update(User user) {
         if (user.getUserId() == null || user.getUserId().isEmpty()) {
             throw new IllegalArgumentException("User ID is required");
         }
 
         // Check if user exists
-        if (!userMapper.findById(user.getUserId()).isPresent()) {
+        Optional<User> existingUser = userMapper.findById(user.getUserId());
+        if (!existingUser.isPresent()) {
             return Optional.empty();
         }
 
@@ -111,6 +127,7 @@ public class UserService {
         if (result == 0) {
             throw new RuntimeException("Failed to update user");
         }
+        userAuditWriter.recordUpdate(existingUser.get(), user);
 
         return Optional.of(user);
     }
@@ -132,11 +149,22 @@ public class UserService {
         }
 
         // Return updated user
-        return userMapper.findById(userId);
+        Optional<User> updatedUser = userMapper.findById(userId);
+        updatedUser.ifPresent(user -> userAuditWriter.recordUpdate(existingUser.get(), user));
+        return updatedUser;
     }
 
     public boolean deleteById(String userId) {
-        return userMapper.deleteById(userId) > 0;
+        Optional<User> existingUser = userMapper.findById(userId);
+        if (!existingUser.isPresent()) {
+            return false;
+        }
+
+        boolean deleted = userMapper.deleteById(userId) > 0;
+        if (deleted) {
+            userAuditWriter.recordDelete(existingUser.get());
+        }
+        return deleted;
     }
 
     public long count() {
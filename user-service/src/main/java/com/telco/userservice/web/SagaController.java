@@ -2,12 +2,25 @@ package com.telco.userservice.web;
 
 import com.telco.userservice.model.User;
 import com.telco.userservice.saga.orchestrator.SagaOrchestrator;
+import com.telco.userservice.saga.persistence.SagaPage;
+import com.telco.userservice.saga.persistence.SagaStateStore;
+import com.telco.userservice.saga.persistence.SagaTransitionChannel;
 import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.service.UserRegistrationRequests;
 import com.telco.userservice.service.UserService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -16,40 +29,108 @@ import java.util.UUID;
 @RequestMapping("/api/v1/saga")
 public class SagaController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     private SagaOrchestrator sagaOrchestrator;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SagaTransitionChannel sagaTransitionChannel;
+
+    @Autowired
+    private UserRegistrationRequests userRegistrationRequests;
+
+    @Value("${saga.events.stream-timeout-ms:300000}")
+    private long streamTimeoutMs;
+
+    // Accepted once the saga exists; follow it on the events stream instead of polling status
     @PostMapping("/user-registration")
-    public ResponseEntity<Map<String, String>> startUserRegistrationSaga(@RequestBody User user) {
+    public ResponseEntity<Map<String, String>> startUserRegistrationSaga(@Valid @RequestBody User user) {
+        // A user that could not be created is refused before any saga is started for it
+        try {
+            userService.validateNewUser(user);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Failed to start user registration saga");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+
         String correlationId = UUID.randomUUID().toString();
         String sagaId = sagaOrchestrator.startUserRegistrationSaga(correlationId);
 
-        // Start the first step (user creation) with saga context
-        try {
-            userService.saveWithSaga(user, sagaId);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new HashMap<String, String>() {
-                {
-                    put("error", "Failed to start user registration saga");
-                    put("message", e.getMessage());
-                    put("sagaId", sagaId);
-                }
-            });
-        }
+        // Durable before the 202; a later failure fails the saga through USER_CREATION_FAILED
+        userRegistrationRequests.accept(user, sagaId);
+
+        URI statusUri = MvcUriComponentsBuilder.fromMethodName(SagaController.class, "getSagaStatus", sagaId)
+                .build().toUri();
+        URI eventsUri = MvcUriComponentsBuilder.fromMethodName(SagaController.class, "streamSagaEvents", sagaId)
+                .build().toUri();
 
         Map<String, String> response = new HashMap<>();
         response.put("sagaId", sagaId);
         response.put("correlationId", correlationId);
-        response.put("status", "STARTED");
-        response.put("message", "User registration saga started successfully");
+        response.put("status", "ACCEPTED");
+        response.put("message", "User registration saga accepted");
+        response.put("statusUrl", statusUri.toString());
+        response.put("eventsUrl", eventsUri.toString());
+        return ResponseEntity.accepted().location(statusUri).body(response);
+    }
+
+    // Server-sent events: the saga now, then every transition until it settles
+    @GetMapping(value = "/{sagaId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamSagaEvents(@PathVariable("sagaId") String sagaId) {
+        SagaEventStream stream = new SagaEventStream(streamTimeoutMs);
+        // Subscribed before the snapshot is read, so no transition falls in between
+        SagaTransitionChannel.Subscription subscription = sagaTransitionChannel.subscribe(sagaId, stream::onTransition);
+        stream.getEmitter().onCompletion(subscription::close);
+        stream.getEmitter().onError(e -> subscription.close());
+
+        SagaState sagaState;
+        try {
+            sagaState = sagaOrchestrator.getSagaState(sagaId);
+        } catch (RuntimeException e) {
+            subscription.close();
+            throw e;
+        }
+        if (sagaState == null) {
+            subscription.close();
+            return ResponseEntity.notFound().build();
+        }
+
+        stream.start(sagaState, SagaStateStore.isSettled(sagaState));
+        return ResponseEntity.ok(stream.getEmitter());
+    }
+
+    // Pages through the status index oldest first; pass nextCursor back to continue
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> listSagas(
+            @RequestParam(name = "status", required = false) SagaStatus status,
+            @RequestParam(name = "since", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        SagaPage page;
+        try {
+            page = sagaOrchestrator.findSagas(status, since, cursor, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Invalid saga query");
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("sagas", page.getSagas());
+        response.put("nextCursor", page.getNextCursor());
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("/{sagaId}/status")
-    public ResponseEntity<SagaState> getSagaStatus(@PathVariable String sagaId) {
+    public ResponseEntity<SagaState> getSagaStatus(@PathVariable("sagaId") String sagaId) {
         SagaState sagaState = sagaOrchestrator.getSagaState(sagaId);
 
         if (sagaState == null) {
@@ -60,7 +141,7 @@ public class SagaController {
     }
 
     @GetMapping("/{sagaId}/steps")
-    public ResponseEntity<Map<String, Object>> getSagaSteps(@PathVariable String sagaId) {
+    public ResponseEntity<Map<String, Object>> getSagaSteps(@PathVariable("sagaId") String sagaId) {
         SagaState sagaState = sagaOrchestrator.getSagaState(sagaId);
 
         if (sagaState == null) {
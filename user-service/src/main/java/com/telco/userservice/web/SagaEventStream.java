@@ -0,0 +1,87 @@
+package com.telco.userservice.web;
+
+import com.telco.userservice.saga.state.SagaState;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One client's server-sent event stream of a saga: a snapshot first, then each transition
+ * as it is published, closing once the saga has settled. Transitions that arrive before
+ * the snapshot is sent are held back so the client never sees an older state last.
+ */
+class SagaEventStream {
+
+    static final String EVENT_NAME = "saga";
+
+    private final SseEmitter emitter;
+    private final List<String> pending = new ArrayList<>();
+    private boolean pendingSettled;
+    private boolean started;
+    private boolean closed;
+
+    SagaEventStream(long timeoutMillis) {
+        this.emitter = new SseEmitter(timeoutMillis);
+        emitter.onTimeout(emitter::complete);
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    synchronized void start(SagaState snapshot, boolean settled) {
+        send(SseEmitter.event().name(EVENT_NAME).data(snapshot, MediaType.APPLICATION_JSON));
+        if (settled) {
+            close();
+            return;
+        }
+        started = true;
+        for (String sagaJson : pending) {
+            sendJson(sagaJson);
+        }
+        pending.clear();
+        if (pendingSettled) {
+            close();
+        }
+    }
+
+    synchronized void onTransition(String sagaJson, boolean settled) {
+        if (closed) {
+            return;
+        }
+        if (!started) {
+            pending.add(sagaJson);
+            pendingSettled |= settled;
+            return;
+        }
+        sendJson(sagaJson);
+        if (settled) {
+            close();
+        }
+    }
+
+    private void sendJson(String sagaJson) {
+        send(SseEmitter.event().name(EVENT_NAME).data(sagaJson, MediaType.APPLICATION_JSON));
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; completing runs the completion callbacks that unsubscribe
+            closed = true;
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void close() {
+        closed = true;
+        emitter.complete();
+    }
+}
@@ -0,0 +1,9 @@
+-- Flyway Migration: Add event id to the outbox
+-- Version: 10
+-- Description: The relay sets the eventId record header from this column, so consumers
+-- can drop redelivered events without decoding them. Rows queued before this migration
+-- have none and are relayed without the header.
+
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS event_id VARCHAR(100);
+
+COMMENT ON COLUMN outbox.event_id IS 'Id of the event in the payload, relayed as the eventId header';
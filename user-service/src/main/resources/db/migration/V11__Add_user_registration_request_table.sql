@@ -0,0 +1,20 @@
+-- Flyway Migration: Add pending user registrations
+-- Version: 11
+-- Description: The saga endpoint stores each registration here before it answers 202, and
+-- the row is deleted in the transaction that creates the user. A registration accepted just
+-- before a crash or deploy is therefore still here and is picked up by the next sweep.
+
+CREATE TABLE IF NOT EXISTS user_registration_request (
+    saga_id VARCHAR(36) PRIMARY KEY,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_registration_request_created_at ON user_registration_request(created_at);
+
+GRANT SELECT, INSERT, DELETE ON user_registration_request TO telco_service_role;
+GRANT SELECT ON user_registration_request TO telco_readonly_role;
+
+-- Add comments
+COMMENT ON TABLE user_registration_request IS 'Registrations accepted by the saga endpoint whose user is not created yet';
+COMMENT ON COLUMN user_registration_request.payload IS 'Requested user as JSON';
@@ -0,0 +1,8 @@
+-- Flyway Migration: Decouple user audit from users
+-- Version: 5
+-- Description: Audit rows are written asynchronously by the application and must
+-- outlive the user they describe, so the cascading foreign key is dropped
+
+ALTER TABLE user_audit DROP CONSTRAINT IF EXISTS user_audit_user_id_fkey;
+
+COMMENT ON COLUMN user_audit.user_id IS 'User identifier (not enforced, audit rows outlive deleted users)';
@@ -0,0 +1,140 @@
+-- Flyway Migration: Partition user_audit and usage_alerts by month
+-- Version: 6
+-- Description: Convert both tables to monthly range partitions so retention is a
+-- DETACH/DROP PARTITION instead of a DELETE. Future partitions are pre-created by the
+-- application's PartitionManager.
+
+-- Creates the partition of parent_table covering the month of month_start (idempotent)
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent_table TEXT, month_start DATE) RETURNS TEXT AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    to_date DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := parent_table || '_p' || to_char(date_trunc('month', month_start), 'YYYYMM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, parent_table, from_date, to_date);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Creates monthly partitions from the month of first_month up to three months ahead
+CREATE OR REPLACE FUNCTION create_monthly_partitions_through(parent_table TEXT, first_month TIMESTAMP) RETURNS VOID AS $$
+DECLARE
+    m DATE := date_trunc('month', LEAST(COALESCE(first_month, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP))::DATE;
+BEGIN
+    WHILE m <= (date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::DATE LOOP
+        PERFORM create_monthly_partition(parent_table, m);
+        m := (m + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- ---------------------------------------------------------------------------
+-- user_audit
+-- ---------------------------------------------------------------------------
+ALTER TABLE user_audit RENAME TO user_audit_legacy;
+ALTER INDEX user_audit_pkey RENAME TO user_audit_legacy_pkey;
+ALTER INDEX idx_user_audit_user_id RENAME TO idx_user_audit_legacy_user_id;
+ALTER INDEX idx_user_audit_changed_at RENAME TO idx_user_audit_legacy_changed_at;
+ALTER INDEX idx_user_audit_action RENAME TO idx_user_audit_legacy_action;
+ALTER SEQUENCE user_audit_audit_id_seq OWNED BY NONE;
+
+CREATE TABLE user_audit (
+    audit_id BIGINT NOT NULL DEFAULT nextval('user_audit_audit_id_seq'),
+    user_id VARCHAR(50) NOT NULL,
+    action VARCHAR(20) NOT NULL CHECK (action IN ('INSERT', 'UPDATE', 'DELETE')),
+    old_data JSONB,
+    new_data JSONB,
+    changed_by VARCHAR(100) DEFAULT 'system',
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (audit_id, changed_at)
+) PARTITION BY RANGE (changed_at);
+
+SELECT create_monthly_partitions_through('user_audit', (SELECT MIN(changed_at) FROM user_audit_legacy));
+
+INSERT INTO user_audit (audit_id, user_id, action, old_data, new_data, changed_by, changed_at)
+SELECT audit_id, user_id, action, old_data, new_data, changed_by, COALESCE(changed_at, CURRENT_TIMESTAMP)
+FROM user_audit_legacy;
+
+DROP TABLE user_audit_legacy;
+ALTER SEQUENCE user_audit_audit_id_seq OWNED BY user_audit.audit_id;
+
+CREATE INDEX IF NOT EXISTS idx_user_audit_user_id ON user_audit(user_id);
+CREATE INDEX IF NOT EXISTS idx_user_audit_changed_at ON user_audit(changed_at);
+CREATE INDEX IF NOT EXISTS idx_user_audit_action ON user_audit(action);
+
+-- ---------------------------------------------------------------------------
+-- usage_alerts
+-- ---------------------------------------------------------------------------
+ALTER TABLE usage_alerts RENAME TO usage_alerts_legacy;
+ALTER INDEX usage_alerts_pkey RENAME TO usage_alerts_legacy_pkey;
+ALTER INDEX idx_usage_alerts_user_id RENAME TO idx_usage_alerts_legacy_user_id;
+ALTER INDEX idx_usage_alerts_status RENAME TO idx_usage_alerts_legacy_status;
+ALTER INDEX idx_usage_alerts_created_at RENAME TO idx_usage_alerts_legacy_created_at;
+ALTER INDEX idx_usage_alerts_type RENAME TO idx_usage_alerts_legacy_type;
+ALTER SEQUENCE usage_alerts_alert_id_seq OWNED BY NONE;
+
+CREATE TABLE usage_alerts (
+    alert_id BIGINT NOT NULL DEFAULT nextval('usage_alerts_alert_id_seq'),
+    user_id VARCHAR(50) NOT NULL,
+    alert_type VARCHAR(20) NOT NULL CHECK (alert_type IN ('THRESHOLD', 'OVER_LIMIT', 'CRITICAL')),
+    usage_percentage DECIMAL(5,2) NOT NULL,
+    data_used BIGINT NOT NULL,
+    data_limit BIGINT NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    alert_status VARCHAR(20) DEFAULT 'PENDING' CHECK (alert_status IN ('PENDING', 'SENT', 'FAILED', 'CANCELLED')),
+    sent_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (alert_id, created_at),
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+SELECT create_monthly_partitions_through('usage_alerts', (SELECT MIN(created_at) FROM usage_alerts_legacy));
+
+INSERT INTO usage_alerts (alert_id, user_id, alert_type, usage_percentage, data_used, data_limit,
+                          phone_number, alert_status, sent_at, created_at)
+SELECT alert_id, user_id, alert_type, usage_percentage, data_used, data_limit,
+       phone_number, alert_status, sent_at, COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM usage_alerts_legacy;
+
+DROP TABLE usage_alerts_legacy;
+ALTER SEQUENCE usage_alerts_alert_id_seq OWNED BY usage_alerts.alert_id;
+
+CREATE INDEX IF NOT EXISTS idx_usage_alerts_user_id ON usage_alerts(user_id);
+CREATE INDEX IF NOT EXISTS idx_usage_alerts_status ON usage_alerts(alert_status);
+CREATE INDEX IF NOT EXISTS idx_usage_alerts_created_at ON usage_alerts(created_at);
+CREATE INDEX IF NOT EXISTS idx_usage_alerts_type ON usage_alerts(alert_type);
+
+-- ---------------------------------------------------------------------------
+-- Row level security and grants (dropped together with the legacy tables)
+-- ---------------------------------------------------------------------------
+ALTER TABLE user_audit ENABLE ROW LEVEL SECURITY;
+
+CREATE POLICY user_audit_own_data_policy ON user_audit
+    FOR ALL
+    TO PUBLIC
+    USING (user_id = get_current_user_id())
+    WITH CHECK (user_id = get_current_user_id());
+
+ALTER TABLE usage_alerts ENABLE ROW LEVEL SECURITY;
+
+CREATE POLICY usage_alerts_own_data_policy ON usage_alerts
+    FOR ALL
+    TO PUBLIC
+    USING (user_id = get_current_user_id())
+    WITH CHECK (user_id = get_current_user_id());
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON user_audit TO telco_service_role;
+GRANT SELECT, INSERT, UPDATE, DELETE ON usage_alerts TO telco_service_role;
+GRANT SELECT ON user_audit TO telco_readonly_role;
+GRANT SELECT ON usage_alerts TO telco_readonly_role;
+
+-- Add comments
+COMMENT ON FUNCTION create_monthly_partition(TEXT, DATE) IS 'Creates the monthly range partition of a table for the given month';
+COMMENT ON FUNCTION create_monthly_partitions_through(TEXT, TIMESTAMP) IS 'Creates monthly partitions from a start month through three months ahead';
+COMMENT ON TABLE user_audit IS 'Audit trail for user data changes (monthly partitions on changed_at)';
+COMMENT ON COLUMN user_audit.user_id IS 'User identifier (not enforced, audit rows outlive deleted users)';
+COMMENT ON COLUMN user_audit.changed_at IS 'Timestamp of the change (partition key)';
+COMMENT ON TABLE usage_alerts IS 'Usage alerts and notification tracking (monthly partitions on created_at)';
+COMMENT ON COLUMN usage_alerts.alert_status IS 'Current status of the alert';
+COMMENT ON COLUMN usage_alerts.created_at IS 'Timestamp when alert was created (partition key)';
@@ -0,0 +1,30 @@
+-- Flyway Migration: Add billing reset checkpoint table
+-- Version: 7
+-- Description: Tracks progress of the chunked billing-cycle usage reset so an
+-- interrupted run resumes from the last committed user_id instead of restarting
+
+CREATE TABLE IF NOT EXISTS billing_reset_checkpoint (
+    cycle_id VARCHAR(7) PRIMARY KEY,
+    cycle_start TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'IN_PROGRESS' CHECK (status IN ('IN_PROGRESS', 'COMPLETED')),
+    last_user_id VARCHAR(50),
+    chunks_completed INTEGER NOT NULL DEFAULT 0,
+    users_reset BIGINT NOT NULL DEFAULT 0,
+    alerts_cancelled BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_billing_reset_checkpoint_status ON billing_reset_checkpoint(status);
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON billing_reset_checkpoint TO telco_service_role;
+GRANT SELECT ON billing_reset_checkpoint TO telco_readonly_role;
+
+-- Add comments
+COMMENT ON TABLE billing_reset_checkpoint IS 'Progress of the chunked billing-cycle usage reset';
+COMMENT ON COLUMN billing_reset_checkpoint.cycle_id IS 'Billing cycle (YYYY-MM)';
+COMMENT ON COLUMN billing_reset_checkpoint.cycle_start IS 'Start of the billing cycle; alerts raised before it are cancelled';
+COMMENT ON COLUMN billing_reset_checkpoint.last_user_id IS 'Highest user_id of the last committed chunk';
+COMMENT ON COLUMN billing_reset_checkpoint.users_reset IS 'Users whose usage was reset to zero';
+COMMENT ON COLUMN billing_reset_checkpoint.alerts_cancelled IS 'Pending usage alerts cancelled by the reset';
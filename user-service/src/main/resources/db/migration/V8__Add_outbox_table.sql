@@ -0,0 +1,37 @@
+-- Flyway Migration: Add transactional outbox
+-- Version: 8
+-- Description: Events are written to the outbox in the same transaction as the change
+-- that caused them and relayed to Kafka afterwards, so a rollback never emits an event
+-- and the request path never waits on the broker
+
+CREATE TABLE IF NOT EXISTS outbox (
+    id BIGSERIAL PRIMARY KEY,
+    aggregate_id VARCHAR(100) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Wake the relay when a transaction adds events; notifications are only delivered on commit
+CREATE OR REPLACE FUNCTION notify_outbox() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('outbox', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS outbox_notify ON outbox;
+CREATE TRIGGER outbox_notify
+    AFTER INSERT ON outbox
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_outbox();
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON outbox TO telco_service_role;
+GRANT USAGE, SELECT ON SEQUENCE outbox_id_seq TO telco_service_role;
+GRANT SELECT ON outbox TO telco_readonly_role;
+
+-- Add comments
+COMMENT ON TABLE outbox IS 'Events committed with their originating change, waiting to be relayed to Kafka';
+COMMENT ON COLUMN outbox.aggregate_id IS 'Kafka record key; events of one aggregate keep their order';
+COMMENT ON COLUMN outbox.topic IS 'Kafka topic the event is published to';
+COMMENT ON COLUMN outbox.payload IS 'Serialized event JSON';
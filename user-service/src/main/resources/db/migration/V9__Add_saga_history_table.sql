@@ -0,0 +1,28 @@
+-- Flyway Migration: Add saga history archive
+-- Version: 9
+-- Description: Settled sagas are moved out of Redis in batches into this table, which is
+-- partitioned by month of saga start so retention is a DETACH/DROP PARTITION. Future
+-- partitions are pre-created by the application's PartitionManager.
+
+CREATE TABLE IF NOT EXISTS saga_history (
+    saga_id VARCHAR(36) NOT NULL,
+    correlation_id VARCHAR(100),
+    status VARCHAR(20) NOT NULL,
+    started_at TIMESTAMP NOT NULL,
+    ended_at TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    state JSONB NOT NULL,
+    PRIMARY KEY (saga_id, started_at)
+) PARTITION BY RANGE (started_at);
+
+SELECT create_monthly_partitions_through('saga_history', NULL);
+
+CREATE INDEX IF NOT EXISTS idx_saga_history_status_started_at ON saga_history(status, started_at);
+
+GRANT SELECT, INSERT, DELETE ON saga_history TO telco_service_role;
+GRANT SELECT ON saga_history TO telco_readonly_role;
+
+-- Add comments
+COMMENT ON TABLE saga_history IS 'Settled sagas archived from Redis, read when a saga is no longer in Redis';
+COMMENT ON COLUMN saga_history.state IS 'Saga in the flat field encoding used for the Redis hash';
+COMMENT ON COLUMN saga_history.archived_at IS 'When the saga was moved out of Redis';
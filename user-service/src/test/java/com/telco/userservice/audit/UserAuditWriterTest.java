@@ -0,0 +1,91 @@
+package com.telco.userservice.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.mapper.UserAuditMapper;
+import com.telco.userservice.model.User;
+import com.telco.userservice.model.UserAudit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserAuditWriterTest {
+
+    private UserAuditMapper userAuditMapper;
+    private SimpleMeterRegistry meterRegistry;
+    private UserAuditWriter userAuditWriter;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        userAuditMapper = mock(UserAuditMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+        userAuditWriter = new UserAuditWriter(userAuditMapper, new ObjectMapper().findAndRegisterModules(),
+                meterRegistry, 3, 2);
+        testUser = new User("user001", "+1234567890", 5368709120L, 1073741824L);
+    }
+
+    @Test
+    void recordInsert_WhenQueueIsFull_ShouldDropAndCount() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            userAuditWriter.recordInsert(testUser);
+        }
+
+        // Then
+        assertEquals(3, userAuditWriter.getQueueDepth());
+        assertEquals(2.0, meterRegistry.get("user.audit.dropped.total").counter().count());
+    }
+
+    @Test
+    void flush_ShouldDrainQueueWithMultiRowInserts() {
+        // Given
+        userAuditWriter.recordInsert(testUser);
+        userAuditWriter.recordUpdate(testUser, testUser);
+        userAuditWriter.recordDelete(testUser);
+
+        // When
+        userAuditWriter.flush();
+
+        // Then
+        verify(userAuditMapper, times(2)).insertBatch(anyList());
+        assertEquals(0, userAuditWriter.getQueueDepth());
+        assertEquals(3.0, meterRegistry.get("user.audit.written.total").counter().count());
+    }
+
+    @Test
+    void flush_WhenInsertFails_ShouldNotRequeue() {
+        // Given
+        when(userAuditMapper.insertBatch(anyList())).thenThrow(new RuntimeException("db down"));
+        userAuditWriter.recordInsert(testUser);
+
+        // When
+        userAuditWriter.flush();
+
+        // Then
+        assertEquals(0, userAuditWriter.getQueueDepth());
+        assertEquals(1.0, meterRegistry.get("user.audit.dropped.total").counter().count());
+    }
+
+    @Test
+    void recordUpdate_ShouldCaptureOldAndNewData() {
+        // Given
+        User updated = new User("user001", "+1234567890", 5368709120L, 2000000000L);
+
+        // When
+        userAuditWriter.recordUpdate(testUser, updated);
+        userAuditWriter.flush();
+
+        // Then
+        verify(userAuditMapper).insertBatch(argThat((List<UserAudit> records) -> records.size() == 1
+                && "UPDATE".equals(records.get(0).getAction())
+                && records.get(0).getOldData().contains("1073741824")
+                && records.get(0).getNewData().contains("2000000000")));
+    }
+}
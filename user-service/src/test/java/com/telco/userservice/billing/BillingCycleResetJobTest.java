@@ -0,0 +1,146 @@
+package com.telco.userservice.billing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BillingCycleResetJobTest {
+
+    private static final String CYCLE = "2026-10";
+
+    // The users table and the cycle's checkpoint row the mocked JdbcTemplate reads and writes
+    private final TreeMap<String, Long> usage = new TreeMap<>();
+    private final Map<String, Object> checkpoint = new HashMap<>();
+    private final List<String> chunkRanges = new ArrayList<>();
+
+    private Cache usersCache;
+    private BillingCycleResetJob billingCycleResetJob;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class, this::answer);
+        usersCache = mock(Cache.class);
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache("users")).thenReturn(usersCache);
+        billingCycleResetJob = new BillingCycleResetJob(jdbcTemplate, mock(PlatformTransactionManager.class),
+                cacheManager, Runnable::run, new SimpleMeterRegistry(), 2, 1000);
+
+        checkpoint.put("status", "IN_PROGRESS");
+        checkpoint.put("cycle_start", Timestamp.valueOf(LocalDateTime.of(2026, 10, 1, 0, 0)));
+    }
+
+    @Test
+    void runCycle_ShouldResetUsersInChunksOfKeyRanges() {
+        // Given - user003 is already at zero
+        givenUsers("user001", 10, "user002", 20, "user003", 0, "user004", 40, "user005", 50);
+
+        // When
+        billingCycleResetJob.runCycle(CYCLE);
+
+        // Then
+        assertEquals(List.of("(,user002]", "(user002,user004]", "(user004,user005]"), chunkRanges);
+        assertTrue(usage.values().stream().allMatch(value -> value == 0));
+        assertEquals("user005", checkpoint.get("last_user_id"));
+        assertEquals("COMPLETED", checkpoint.get("status"));
+        verify(usersCache, never()).evict("user003");
+        verify(usersCache).evict("user004");
+        assertFalse(billingCycleResetJob.isRunning());
+    }
+
+    @Test
+    void resumeInterruptedCycles_ShouldContinueAfterTheCheckpointedUser() {
+        // Given - an earlier run committed the chunk up to user002, then the instance stopped
+        givenUsers("user001", 10, "user002", 20, "user003", 30, "user004", 40, "user005", 50);
+        checkpoint.put("last_user_id", "user002");
+
+        // When
+        billingCycleResetJob.resumeInterruptedCycles();
+
+        // Then
+        assertEquals(List.of("(user002,user004]", "(user004,user005]"), chunkRanges);
+        assertEquals(10L, usage.get("user001"));
+        assertEquals(20L, usage.get("user002"));
+        assertEquals(0L, usage.get("user003"));
+        assertEquals(0L, usage.get("user005"));
+        assertEquals("COMPLETED", checkpoint.get("status"));
+        verify(usersCache, never()).evict("user001");
+    }
+
+    @Test
+    void runCycle_WhenCycleAlreadyCompleted_ShouldTouchNoUser() {
+        // Given
+        givenUsers("user001", 10);
+        checkpoint.put("status", "COMPLETED");
+
+        // When
+        billingCycleResetJob.runCycle(CYCLE);
+
+        // Then
+        assertTrue(chunkRanges.isEmpty());
+        assertEquals(10L, usage.get("user001"));
+    }
+
+    private void givenUsers(Object... idsAndUsage) {
+        for (int i = 0; i < idsAndUsage.length; i += 2) {
+            usage.put((String) idsAndUsage[i], ((Integer) idsAndUsage[i + 1]).longValue());
+        }
+    }
+
+    // Plays the statements the job issues against the in-memory table and checkpoint
+    private Object answer(InvocationOnMock invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        String sql = args.length > 0 && args[0] instanceof String ? (String) args[0] : "";
+        if (sql.startsWith("SELECT cycle_id FROM billing_reset_checkpoint")) {
+            return "IN_PROGRESS".equals(checkpoint.get("status")) ? List.of(CYCLE) : List.of();
+        }
+        if (sql.startsWith("SELECT status, last_user_id, cycle_start FROM billing_reset_checkpoint")) {
+            assertTrue(sql.endsWith("FOR UPDATE"), "The checkpoint must be locked while its chunk runs");
+            return List.of(new HashMap<>(checkpoint));
+        }
+        if (sql.startsWith("SELECT user_id FROM users")) {
+            int limit = (Integer) args[3];
+            return usage.tailMap((String) args[2], false).keySet().stream().limit(limit).toList();
+        }
+        if (sql.startsWith("UPDATE users")) {
+            String lower = (String) args[2];
+            String upper = (String) args[3];
+            chunkRanges.add("(" + lower + "," + upper + "]");
+            List<String> reset = new ArrayList<>();
+            usage.subMap(lower, false, upper, true).forEach((userId, value) -> {
+                if (value != 0) {
+                    reset.add(userId);
+                }
+            });
+            reset.forEach(userId -> usage.put(userId, 0L));
+            return reset;
+        }
+        if (sql.startsWith("UPDATE usage_alerts")) {
+            return 0;
+        }
+        if (sql.startsWith("UPDATE billing_reset_checkpoint SET last_user_id")) {
+            checkpoint.put("last_user_id", args[1]);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE billing_reset_checkpoint SET status = 'COMPLETED'")) {
+            checkpoint.put("status", "COMPLETED");
+            return 1;
+        }
+        return RETURNS_DEFAULTS.answer(invocation);
+    }
+}
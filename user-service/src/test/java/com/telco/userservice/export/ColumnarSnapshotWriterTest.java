@@ -0,0 +1,74 @@
+package com.telco.userservice.export;
+
+import com.telco.userservice.export.ColumnarSnapshotWriter.Column;
+import com.telco.userservice.export.ColumnarSnapshotWriter.ColumnType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarSnapshotWriterTest {
+
+    private static final List<Column> SCHEMA = List.of(
+            new Column("user_id", ColumnType.STRING),
+            new Column("current_usage", ColumnType.INT64));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeAndRead_ShouldRoundTripAcrossRowGroups() throws Exception {
+        // Given
+        Path file = tempDir.resolve("users.tcol");
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(file, SCHEMA, 2);
+
+        // When
+        writer.writeRow("user001", 10L);
+        writer.writeRow("user002", null);
+        writer.writeRow(null, 30L);
+        writer.close();
+
+        // Then
+        assertEquals(3, writer.getRowCount());
+        assertEquals(2, writer.getRowGroupCount());
+        assertEquals(1, writer.getColumnStats(1).getNullCount());
+        assertEquals(10L, writer.getColumnStats(1).getMin());
+        assertEquals(30L, writer.getColumnStats(1).getMax());
+        assertEquals(64, writer.getSha256().length());
+
+        try (ColumnarSnapshotReader reader = new ColumnarSnapshotReader(file)) {
+            assertEquals(3, reader.getRowCount());
+            assertEquals(2, reader.getSchema().size());
+            assertEquals(Arrays.asList("user001", "user002", null), reader.readColumn("user_id"));
+            assertEquals(Arrays.asList(10L, null, 30L), reader.readColumn("current_usage"));
+        }
+    }
+
+    @Test
+    void writeRow_WithWrongArity_ShouldThrowException() throws Exception {
+        // Given
+        try (ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(tempDir.resolve("bad.tcol"), SCHEMA, 10)) {
+            // When & Then
+            assertThrows(IllegalArgumentException.class, () -> writer.writeRow("user001"));
+        }
+    }
+
+    @Test
+    void close_WithNoRows_ShouldProduceReadableFile() throws Exception {
+        // Given
+        Path file = tempDir.resolve("empty.tcol");
+
+        // When
+        new ColumnarSnapshotWriter(file, SCHEMA, 10).close();
+
+        // Then
+        try (ColumnarSnapshotReader reader = new ColumnarSnapshotReader(file)) {
+            assertEquals(0, reader.getRowCount());
+            assertTrue(reader.readColumn("user_id").isEmpty());
+        }
+    }
+}
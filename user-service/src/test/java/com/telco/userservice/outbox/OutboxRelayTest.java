@@ -0,0 +1,150 @@
+package com.telco.userservice.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxRelay outboxRelay;
+    private final List<String> sent = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        outboxRelay = new OutboxRelay(mock(DataSource.class), jdbcTemplate, kafkaTemplate, new SimpleMeterRegistry(),
+                200, 1000, 1000);
+
+        // The session advisory lock is always granted
+        Connection lockConnection = mock(Connection.class, RETURNS_DEEP_STUBS);
+        Statement statement = mock(Statement.class);
+        ResultSet lockResult = mock(ResultSet.class);
+        when(lockConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getBoolean(1)).thenReturn(true);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(lockConnection));
+    }
+
+    @Test
+    void drain_WhenAnEventFails_ShouldHoldBackTheRestOfItsAggregateOnly() throws Exception {
+        // Given - saga-a's first event fails, saga-b is unaffected
+        givenOutbox(row(1, "saga-a", "a-1"), row(2, "saga-b", "b-1"), row(3, "saga-a", "a-2"),
+                row(4, "saga-b", "b-2"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            sent.add(record.value());
+            return "a-1".equals(record.value())
+                    ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                    : CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+
+        // When
+        outboxRelay.drain();
+
+        // Then
+        assertEquals(List.of("a-1", "b-1", "b-2"), sent);
+        assertEquals(List.of(2L, 4L), deletedIds());
+    }
+
+    @Test
+    void drain_ShouldSendAnAggregatesNextEventOnlyAfterThePreviousWasAcknowledged() throws Exception {
+        // Given
+        givenOutbox(row(1, "saga-a", "a-1"), row(2, "saga-a", "a-2"));
+        CompletableFuture<SendResult<String, String>> firstAck = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            sent.add(record.value());
+            if ("a-1".equals(record.value())) {
+                return firstAck;
+            }
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+
+        // When - the broker acknowledges a-1 a little later
+        List<String> sentBeforeAck = new ArrayList<>();
+        Thread broker = new Thread(() -> {
+            sleepQuietly(100);
+            sentBeforeAck.addAll(sent);
+            firstAck.complete(mock(SendResult.class));
+        });
+        broker.start();
+        outboxRelay.drain();
+        broker.join();
+
+        // Then
+        assertEquals(List.of("a-1"), sentBeforeAck);
+        assertEquals(List.of("a-1", "a-2"), sent);
+        assertEquals(List.of(1L, 2L), deletedIds());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenOutbox(Object[]... rows) throws Exception {
+        when(jdbcTemplate.query(startsWith("SELECT id"), any(RowMapper.class), eq(200))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            List<Object> events = new ArrayList<>();
+            for (int i = 0; i < rows.length; i++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn((Long) rows[i][0]);
+                when(rs.getString("aggregate_id")).thenReturn((String) rows[i][1]);
+                when(rs.getString("topic")).thenReturn("saga-events");
+                when(rs.getString("event_type")).thenReturn("USER_CREATED");
+                when(rs.getString("payload")).thenReturn((String) rows[i][2]);
+                events.add(mapper.mapRow(rs, i));
+            }
+            return events;
+        });
+    }
+
+    private List<Long> deletedIds() throws Exception {
+        ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbcTemplate).update(startsWith("DELETE FROM outbox"), setter.capture());
+        PreparedStatement ps = mock(PreparedStatement.class, RETURNS_DEEP_STUBS);
+        ArgumentCaptor<Object[]> ids = ArgumentCaptor.forClass(Object[].class);
+        setter.getValue().setValues(ps);
+        verify(ps.getConnection()).createArrayOf(eq("bigint"), ids.capture());
+        List<Long> deleted = new ArrayList<>();
+        for (Object id : ids.getValue()) {
+            deleted.add((Long) id);
+        }
+        return deleted;
+    }
+
+    private static Object[] row(long id, String aggregateId, String payload) {
+        return new Object[] { id, aggregateId, payload };
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.telco.userservice.saga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.config.KafkaConfig;
+import com.telco.userservice.config.VirtualThreadConfig;
+import com.telco.userservice.model.User;
+import com.telco.userservice.saga.event.AlertSetupCompletedEvent;
+import com.telco.userservice.saga.event.AlertSetupFailedEvent;
+import com.telco.userservice.saga.event.NotificationFailedEvent;
+import com.telco.userservice.saga.event.NotificationSentEvent;
+import com.telco.userservice.saga.event.UserCreatedEvent;
+import com.telco.userservice.saga.event.UserCreationFailedEvent;
+import com.telco.userservice.saga.persistence.SagaArchiver;
+import com.telco.userservice.saga.persistence.SagaHistoryRepository;
+import com.telco.userservice.saga.persistence.SagaStateStore;
+import com.telco.userservice.saga.producer.SagaEventProducer;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import com.telco.userservice.service.UserRegistrationRequests;
+import com.telco.userservice.service.UserService;
+import com.telco.userservice.web.SagaController;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Load harness for the saga machinery, run on demand with -Dsaga.load.enabled=true. Drives
+ * closed-loop registration flows through the saga controller against an embedded Kafka
+ * broker and Redis, with simulated participants, at increasing concurrency levels and logs
+ * per-step and end-to-end latency percentiles plus the saturation point. Throughput counts
+ * the sagas that finished within each stage's window, not those drained after it.
+ *
+ * Re-dispatched steps publish nothing the simulated participants could answer, so a failed
+ * step fails its saga right away: retries are off and an open circuit compensates.
+ *
+ * Tunables (system properties): saga.load.levels, saga.load.stage-seconds,
+ * saga.load.participant.latency-ms, saga.load.participant.failure-rate,
+ * saga.load.user.latency-ms, saga.load.user.failure-rate, saga.load.saturation-gain.
+ */
+@EnabledIfSystemProperty(named = "saga.load.enabled", matches = "true")
+@SpringBootTest(classes = SagaLoadHarnessTest.LoadTestConfig.class, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "saga.consumer.concurrency=3",
+        "saga.max.retry.attempts=0",
+        "saga.breaker.open-action=COMPENSATE"
+})
+@EmbeddedKafka(partitions = 3, topics = "saga-events")
+class SagaLoadHarnessTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaLoadHarnessTest.class);
+
+    private static final int[] LEVELS = Arrays.stream(System.getProperty("saga.load.levels", "4,8,16,32,64").split(","))
+            .mapToInt(level -> Integer.parseInt(level.trim()))
+            .toArray();
+    private static final long STAGE_SECONDS = Long.getLong("saga.load.stage-seconds", 10);
+    private static final long PARTICIPANT_LATENCY_MS = Long.getLong("saga.load.participant.latency-ms", 20);
+    private static final double PARTICIPANT_FAILURE_RATE =
+            Double.parseDouble(System.getProperty("saga.load.participant.failure-rate", "0.01"));
+    private static final long USER_LATENCY_MS = Long.getLong("saga.load.user.latency-ms", 5);
+    private static final double USER_FAILURE_RATE =
+            Double.parseDouble(System.getProperty("saga.load.user.failure-rate", "0.005"));
+    private static final double SATURATION_GAIN =
+            Double.parseDouble(System.getProperty("saga.load.saturation-gain", "0.05"));
+
+    private static RedisServer redisServer;
+    private static int redisPort;
+    private static Path sagaLogDir;
+
+    // Completion signal and per-step completion times, fed by the spied state store
+    private static final Map<String, CompletableFuture<SagaState>> pending = new ConcurrentHashMap<>();
+    private static final Map<String, Set<String>> completedSteps = new ConcurrentHashMap<>();
+    private static volatile Stage currentStage;
+    // Runs the accepted registrations, as the saga task executor does in the service
+    private static final ExecutorService userCreation = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    private SagaController sagaController;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private UserRegistrationRequests userRegistrationRequests;
+
+    // No database in this slice: sagas stay in Redis and are never archived
+    @MockBean
+    private SagaHistoryRepository sagaHistoryRepository;
+
+    @SpyBean
+    private SagaStateStore sagaStateStore;
+
+    @Autowired
+    private SagaEventProducer sagaEventProducer;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            redisPort = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(redisPort);
+        redisServer.start();
+        sagaLogDir = Files.createTempDirectory("saga-load-log");
+    }
+
+    @AfterAll
+    static void stopRedis() throws Exception {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", () -> "localhost");
+        registry.add("spring.data.redis.port", () -> redisPort);
+        registry.add("saga.log.dir", () -> sagaLogDir.toString());
+    }
+
+    @Test
+    void measureThroughputAndLatency() throws Exception {
+        // Given
+        stubUserCreation();
+        observeSagaTransitions();
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(sagaController).build();
+
+        // When
+        List<Stage> stages = new ArrayList<>();
+        for (int level : LEVELS) {
+            Stage stage = runStage(mockMvc, level);
+            stages.add(stage);
+            report(stage);
+        }
+
+        // Then
+        Stage saturation = findSaturation(stages);
+        logger.info("Saturation point: concurrency {} at {} sagas/s (end-to-end p99 {} ms)", saturation.concurrency,
+                String.format("%.1f", saturation.throughput()), millis(saturation.endToEnd, 0.99));
+        assertTrue(stages.stream().allMatch(stage -> stage.completed.get() > 0),
+                "Every stage should complete at least one saga");
+    }
+
+    private Stage runStage(MockMvc mockMvc, int concurrency) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STAGE_SECONDS);
+        Stage stage = new Stage(concurrency, deadline);
+        currentStage = stage;
+
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    runRegistration(mockMvc, stage);
+                }
+            });
+        }
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(STAGE_SECONDS + 120, TimeUnit.SECONDS), "Stage did not drain");
+        return stage;
+    }
+
+    private void runRegistration(MockMvc mockMvc, Stage stage) {
+        long start = System.nanoTime();
+        String userId = "load-" + UUID.randomUUID();
+        String sagaId = null;
+        User user = new User(userId, "+1" + ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L),
+                5368709120L, 0L);
+        try {
+            MvcResult result = mockMvc.perform(post("/api/v1/saga/user-registration")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(user)))
+                    .andReturn();
+            sagaId = objectMapper.readTree(result.getResponse().getContentAsString()).path("sagaId").asText();
+            if (result.getResponse().getStatus() != 202) {
+                stage.rejected.incrementAndGet();
+                return;
+            }
+
+            SagaState finalState = pending.computeIfAbsent(sagaId, id -> new CompletableFuture<>())
+                    .get(60, TimeUnit.SECONDS);
+            long finished = System.nanoTime();
+            stage.endToEnd.record(finished - start, TimeUnit.NANOSECONDS);
+            if (finished <= stage.deadline) {
+                stage.finishedInWindow.incrementAndGet();
+            }
+            if (finalState.getStatus() == SagaStatus.COMPLETED) {
+                stage.completed.incrementAndGet();
+            } else {
+                stage.failed.incrementAndGet();
+            }
+        } catch (Exception e) {
+            stage.errors.incrementAndGet();
+            logger.debug("Registration flow failed", e);
+        } finally {
+            if (sagaId != null) {
+                pending.remove(sagaId);
+            }
+        }
+    }
+
+    // Stands in for the database step: creates the accepted user after a delay, or fails it
+    private void stubUserCreation() {
+        doAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            String sagaId = invocation.getArgument(1);
+            userCreation.execute(() -> {
+                try {
+                    sleep(jitter(USER_LATENCY_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (ThreadLocalRandom.current().nextDouble() < USER_FAILURE_RATE) {
+                    sagaEventProducer.publishSagaEvent(new UserCreationFailedEvent(sagaId, sagaId,
+                            user.getUserId(), "Simulated user creation failure", "LOAD_TEST"));
+                    return;
+                }
+                sagaEventProducer.publishSagaEvent(new UserCreatedEvent(sagaId, sagaId, user));
+            });
+            return null;
+        }).when(userRegistrationRequests).accept(any(User.class), anyString());
+    }
+
+    private void observeSagaTransitions() {
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            SagaState sagaState = invocation.getArgument(0);
+            recordTransition(sagaState);
+            return null;
+        }).when(sagaStateStore).save(any(SagaState.class));
+    }
+
+    private static void recordTransition(SagaState sagaState) {
+        Stage stage = currentStage;
+        long now = System.currentTimeMillis();
+        Set<String> seen = completedSteps.computeIfAbsent(sagaState.getSagaId(), id -> ConcurrentHashMap.newKeySet());
+        for (SagaStep step : sagaState.getSteps()) {
+            if (step.getStatus() == SagaStepStatus.COMPLETED && seen.add(step.getStepName()) && stage != null) {
+                long startMillis = step.getStartTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                stage.stepTimer(step.getStepName()).record(Math.max(now - startMillis, 0), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        boolean nothingToCompensate = sagaState.getSteps().stream()
+                .noneMatch(step -> step.getStatus() == SagaStepStatus.COMPLETED);
+        boolean finished = sagaState.getStatus() == SagaStatus.COMPLETED
+                || sagaState.getStatus() == SagaStatus.COMPENSATED
+                || (sagaState.getStatus() == SagaStatus.FAILED && nothingToCompensate);
+        if (finished) {
+            completedSteps.remove(sagaState.getSagaId());
+            // The worker may not be waiting yet, it picks up the completed future when it is
+            pending.computeIfAbsent(sagaState.getSagaId(), id -> new CompletableFuture<>()).complete(sagaState.copy());
+        }
+    }
+
+    private Stage findSaturation(List<Stage> stages) {
+        Stage best = stages.get(0);
+        for (int i = 1; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            // Saturated once more concurrency stops buying meaningful throughput
+            if (stage.throughput() < best.throughput() * (1 + SATURATION_GAIN)) {
+                return best;
+            }
+            best = stage;
+        }
+        return best;
+    }
+
+    private void report(Stage stage) {
+        logger.info("Concurrency {}: {} sagas/s, {} completed, {} failed, {} rejected, {} errors",
+                stage.concurrency, String.format("%.1f", stage.throughput()), stage.completed.get(),
+                stage.failed.get(), stage.rejected.get(), stage.errors.get());
+        logger.info("  end-to-end                p50 {} ms, p99 {} ms, p999 {} ms", millis(stage.endToEnd, 0.5),
+                millis(stage.endToEnd, 0.99), millis(stage.endToEnd, 0.999));
+        for (Map.Entry<String, Timer> step : stage.steps.entrySet()) {
+            logger.info("  {} p50 {} ms, p99 {} ms, p999 {} ms", String.format("%-25s", step.getKey()),
+                    millis(step.getValue(), 0.5), millis(step.getValue(), 0.99), millis(step.getValue(), 0.999));
+        }
+    }
+
+    private static String millis(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return String.format("%.2f", value.value(TimeUnit.MILLISECONDS));
+            }
+        }
+        return "n/a";
+    }
+
+    private static long jitter(long meanMillis) {
+        return meanMillis <= 0 ? 0 : (long) (meanMillis * (0.5 + ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static class Stage {
+        private final int concurrency;
+        private final MeterRegistry registry = new SimpleMeterRegistry();
+        private final Timer endToEnd = latencyTimer("saga.load.end_to_end");
+        private final Map<String, Timer> steps = new LinkedHashMap<>();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong finishedInWindow = new AtomicLong();
+        private final long deadline;
+
+        Stage(int concurrency, long deadline) {
+            this.concurrency = concurrency;
+            this.deadline = deadline;
+        }
+
+        synchronized Timer stepTimer(String stepName) {
+            return steps.computeIfAbsent(stepName, name -> latencyTimer("saga.load.step." + name));
+        }
+
+        // Percentiles over the whole stage rather than Micrometer's default two-minute window
+        private Timer latencyTimer(String name) {
+            return Timer.builder(name)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .percentilePrecision(3)
+                    .distributionStatisticExpiry(Duration.ofHours(1))
+                    .distributionStatisticBufferLength(1)
+                    .register(registry);
+        }
+
+        // Sagas still draining after the deadline would otherwise be spread over the window
+        double throughput() {
+            return finishedInWindow.get() / (double) STAGE_SECONDS;
+        }
+    }
+
+    @Configuration
+    @EnableScheduling
+    @ImportAutoConfiguration({ JacksonAutoConfiguration.class, RedisAutoConfiguration.class,
+            KafkaAutoConfiguration.class })
+    @ComponentScan(basePackages = {
+            "com.telco.userservice.saga.compensation",
+            "com.telco.userservice.saga.consumer",
+            "com.telco.userservice.saga.metrics",
+            "com.telco.userservice.saga.orchestrator",
+            "com.telco.userservice.saga.persistence",
+            "com.telco.userservice.saga.producer",
+            "com.telco.userservice.saga.resilience",
+            "com.telco.userservice.saga.retry",
+            "com.telco.userservice.saga.timeout" }, excludeFilters = @ComponentScan.Filter(
+                    type = FilterType.ASSIGNABLE_TYPE, classes = SagaArchiver.class))
+    @Import({ KafkaConfig.class, VirtualThreadConfig.class, SagaController.class })
+    static class LoadTestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        SimulatedParticipants simulatedParticipants(SagaEventProducer sagaEventProducer) {
+            return new SimulatedParticipants(sagaEventProducer);
+        }
+    }
+
+    /**
+     * Alert and notification services: both react to USER_CREATED and answer after a
+     * jittered delay, failing at the configured rate.
+     */
+    static class SimulatedParticipants {
+
+        private final SagaEventProducer sagaEventProducer;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+
+        SimulatedParticipants(SagaEventProducer sagaEventProducer) {
+            this.sagaEventProducer = sagaEventProducer;
+        }
+
+        @KafkaListener(topics = "saga-events", groupId = "saga-load-participants")
+        public void onSagaEvent(String message) throws Exception {
+            JsonNode event = objectMapper.readTree(message);
+            if (!"USER_CREATED".equals(event.path("eventType").asText())) {
+                return;
+            }
+            String sagaId = event.path("sagaId").asText();
+            String userId = event.path("user").path("userId").asText();
+
+            scheduler.schedule(() -> sagaEventProducer.publishSagaEvent(fails()
+                    ? new AlertSetupFailedEvent(sagaId, sagaId, userId, "Simulated alert failure", "LOAD_TEST")
+                    : new AlertSetupCompletedEvent(sagaId, sagaId, userId, "alert-" + sagaId, 80.0, true)),
+                    jitter(PARTICIPANT_LATENCY_MS), TimeUnit.MILLISECONDS);
+
+            scheduler.schedule(() -> sagaEventProducer.publishSagaEvent(fails()
+                    ? new NotificationFailedEvent(sagaId, sagaId, userId, "WELCOME", "Simulated SMS failure",
+                            "LOAD_TEST")
+                    : new NotificationSentEvent(sagaId, sagaId, userId, "sms-" + sagaId, "WELCOME", userId, true)),
+                    jitter(PARTICIPANT_LATENCY_MS), TimeUnit.MILLISECONDS);
+        }
+
+        private boolean fails() {
+            return ThreadLocalRandom.current().nextDouble() < PARTICIPANT_FAILURE_RATE;
+        }
+    }
+}
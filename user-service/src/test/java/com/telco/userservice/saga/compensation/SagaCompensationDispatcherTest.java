@@ -0,0 +1,65 @@
+package com.telco.userservice.saga.compensation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.telco.userservice.saga.compensation.SagaCompensationQueue.Claim;
+import com.telco.userservice.saga.event.SagaCompensationEvent;
+import com.telco.userservice.saga.producer.SagaEventProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SagaCompensationDispatcherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private SagaCompensationQueue sagaCompensationQueue;
+    private SagaEventProducer sagaEventProducer;
+    private SagaCompensationDispatcher dispatcher;
+    private Claim claim;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sagaCompensationQueue = mock(SagaCompensationQueue.class);
+        sagaEventProducer = mock(SagaEventProducer.class);
+        dispatcher = new SagaCompensationDispatcher(sagaCompensationQueue, sagaEventProducer, objectMapper,
+                new SimpleMeterRegistry(), 200, 200, 100, 30, 1000);
+
+        SagaCompensationEvent event = new SagaCompensationEvent("saga-1", "correlation-1", "Step failed",
+                "SETUP_ALERTS", Map.of());
+        claim = new Claim("saga-1|SETUP_ALERTS", objectMapper.writeValueAsString(event));
+        when(sagaCompensationQueue.claim(anyLong(), anyInt(), anyLong())).thenReturn(List.of(claim));
+    }
+
+    @Test
+    void drain_WhenBrokerAcknowledges_ShouldCompleteClaim() {
+        // Given
+        when(sagaEventProducer.publishSagaEvent(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        verify(sagaCompensationQueue).complete(claim);
+    }
+
+    @Test
+    void drain_WhenSendFails_ShouldLeaveClaimLeased() {
+        // Given
+        when(sagaEventProducer.publishSagaEvent(any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("Broker unavailable")));
+
+        // When
+        dispatcher.drain();
+
+        // Then
+        verify(sagaCompensationQueue, never()).complete(any());
+    }
+}
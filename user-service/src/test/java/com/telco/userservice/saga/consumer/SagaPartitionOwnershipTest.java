@@ -0,0 +1,85 @@
+package com.telco.userservice.saga.consumer;
+
+import com.telco.userservice.saga.producer.SagaEventProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.producer.internals.BuiltInPartitioner;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SagaPartitionOwnershipTest {
+
+    private static final int PARTITIONS = 6;
+
+    private final SagaPartitionOwnership ownership = new SagaPartitionOwnership(new SimpleMeterRegistry());
+
+    @Test
+    void partitionOf_ShouldMatchProducerDefaultPartitioner() {
+        for (int i = 0; i < 1000; i++) {
+            String sagaId = UUID.randomUUID().toString();
+            assertEquals(BuiltInPartitioner.partitionForKey(sagaId.getBytes(StandardCharsets.UTF_8), PARTITIONS),
+                    SagaPartitionOwnership.partitionOf(sagaId, PARTITIONS));
+        }
+    }
+
+    @Test
+    void newSagaId_AfterAssignment_ShouldLandInOwnedPartition() {
+        // Given
+        List<Set<Integer>> rebalances = new ArrayList<>();
+        ownership.setRebalanceHandler(rebalances::add);
+        assertTrue(ownership.owns(UUID.randomUUID().toString()));
+
+        // When
+        assign(1, 4);
+
+        // Then
+        assertEquals(List.of(Set.of(1, 4)), rebalances);
+        for (int i = 0; i < 100; i++) {
+            String sagaId = ownership.newSagaId();
+            assertTrue(ownership.owns(sagaId));
+            assertTrue(Set.of(1, 4).contains(ownership.partitionOf(sagaId)));
+        }
+    }
+
+    @Test
+    void owns_AfterRevocation_ShouldOnlyCoverRemainingPartitions() {
+        // Given
+        assign(0, 1);
+
+        // When
+        ownership.rebalanceListener().onPartitionsRevokedBeforeCommit(mock(Consumer.class),
+                List.of(new TopicPartition(SagaEventProducer.SAGA_TOPIC, 1)));
+
+        // Then
+        for (int i = 0; i < 100; i++) {
+            String sagaId = UUID.randomUUID().toString();
+            assertEquals(ownership.partitionOf(sagaId) == 0, ownership.owns(sagaId));
+        }
+    }
+
+    private void assign(int... partitions) {
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        List<PartitionInfo> partitionInfos = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            partitionInfos.add(new PartitionInfo(SagaEventProducer.SAGA_TOPIC, partition, null, null, null));
+        }
+        when(consumer.partitionsFor(SagaEventProducer.SAGA_TOPIC)).thenReturn(partitionInfos);
+
+        List<TopicPartition> assigned = new ArrayList<>();
+        for (int partition : partitions) {
+            assigned.add(new TopicPartition(SagaEventProducer.SAGA_TOPIC, partition));
+        }
+        ownership.rebalanceListener().onPartitionsAssigned(consumer, assigned);
+    }
+}
@@ -0,0 +1,74 @@
+package com.telco.userservice.saga.definition;
+
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStep;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SagaDefinitionTest {
+
+    private final SagaDefinition definition = SagaDefinition.builder("user-registration")
+            .step("CREATE_USER", "user-service", "DELETE_USER")
+            .step("SETUP_ALERTS", "alert-trigger-service", "DISABLE_ALERTS", "CREATE_USER")
+            .step("SEND_WELCOME_NOTIFICATION", "notification-service", "SEND_FAILURE_NOTIFICATION", "CREATE_USER")
+            .build();
+
+    @Test
+    void readySteps_WhenRootCompletes_ShouldReleaseIndependentBranchesTogether() {
+        // Given
+        SagaState sagaState = definition.newSagaState("saga-1", "correlation-1");
+        assertEquals(List.of("CREATE_USER"), names(definition.readySteps(sagaState)));
+
+        // When
+        sagaState.markStepCompleted("CREATE_USER");
+
+        // Then
+        assertEquals(List.of("SETUP_ALERTS", "SEND_WELCOME_NOTIFICATION"), names(definition.readySteps(sagaState)));
+    }
+
+    @Test
+    void isComplete_ShouldWaitForEveryBranch() {
+        // Given
+        SagaState sagaState = definition.newSagaState("saga-1", "correlation-1");
+        sagaState.markStepCompleted("CREATE_USER");
+        sagaState.markStepCompleted("SEND_WELCOME_NOTIFICATION");
+
+        // When / Then
+        assertFalse(definition.isComplete(sagaState));
+        sagaState.markStepCompleted("SETUP_ALERTS");
+        assertTrue(definition.isComplete(sagaState));
+        assertEquals(List.of("SEND_WELCOME_NOTIFICATION", "SETUP_ALERTS", "CREATE_USER"),
+                names(definition.compensationOrder(sagaState)));
+    }
+
+    @Test
+    void compensationOrder_ShouldSkipStepsAlreadyCompensated() {
+        // Given
+        SagaState sagaState = definition.newSagaState("saga-1", "correlation-1");
+        sagaState.markStepCompleted("CREATE_USER");
+        sagaState.markStepCompleted("SETUP_ALERTS");
+
+        // When
+        sagaState.markStepCompensated("SETUP_ALERTS");
+
+        // Then
+        assertEquals(List.of("CREATE_USER"), names(definition.compensationOrder(sagaState)));
+    }
+
+    @Test
+    void builder_WhenDependencyIsNotDeclaredBefore_ShouldReject() {
+        // Given
+        SagaDefinition.Builder builder = SagaDefinition.builder("broken");
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.step("SETUP_ALERTS", "alert-trigger-service", "DISABLE_ALERTS", "CREATE_USER"));
+    }
+
+    private List<String> names(List<SagaStep> steps) {
+        return steps.stream().map(SagaStep::getStepName).toList();
+    }
+}
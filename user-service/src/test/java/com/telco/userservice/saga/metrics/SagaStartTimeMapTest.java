@@ -0,0 +1,76 @@
+package com.telco.userservice.saga.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SagaStartTimeMapTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void putAndRemove_ShouldReturnStartTimeOnce() {
+        // Given
+        SagaStartTimeMap map = new SagaStartTimeMap(16, 1000, clock::get);
+        String sagaId = UUID.randomUUID().toString();
+
+        // When
+        map.put(sagaId, 42);
+
+        // Then
+        assertEquals(1, map.size());
+        assertEquals(42, map.remove(sagaId));
+        assertEquals(Long.MIN_VALUE, map.remove(sagaId));
+        assertEquals(0, map.size());
+        assertFalse(map.put("not-a-uuid", 1));
+    }
+
+    @Test
+    void remove_ShouldKeepOtherEntriesReachableAfterDeletions() {
+        // Given
+        SagaStartTimeMap map = new SagaStartTimeMap(1000, 1000, clock::get);
+        List<String> sagaIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String sagaId = UUID.randomUUID().toString();
+            sagaIds.add(sagaId);
+            assertTrue(map.put(sagaId, i));
+        }
+
+        // When
+        for (int i = 0; i < 1000; i += 2) {
+            map.remove(sagaIds.get(i));
+        }
+
+        // Then
+        assertEquals(500, map.size());
+        for (int i = 1; i < 1000; i += 2) {
+            assertEquals(i, map.remove(sagaIds.get(i)));
+        }
+    }
+
+    @Test
+    void put_WhenFull_ShouldEvictExpiredEntriesOrRefuse() {
+        // Given
+        SagaStartTimeMap map = new SagaStartTimeMap(16, 1000, clock::get);
+        while (map.put(UUID.randomUUID().toString(), clock.get())) {
+            assertTrue(map.size() <= 24);
+        }
+        int capacity = map.size();
+
+        // When
+        clock.addAndGet(2000);
+        String sagaId = UUID.randomUUID().toString();
+        boolean added = map.put(sagaId, clock.get());
+
+        // Then
+        assertTrue(capacity >= 16);
+        assertTrue(added);
+        assertEquals(1, map.size());
+        assertEquals(2000, map.remove(sagaId));
+    }
+}
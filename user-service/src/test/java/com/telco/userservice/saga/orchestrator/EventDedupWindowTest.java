@@ -0,0 +1,64 @@
+package com.telco.userservice.saga.orchestrator;
+
+import com.telco.userservice.saga.orchestrator.EventDedupWindow.Match;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventDedupWindowTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final EventDedupWindow window = new EventDedupWindow(2, 4000, 4, 1000, 0.000001, clock::get);
+
+    @Test
+    void lookup_ShouldMatchRecentIdsExactlyAndOlderOnesThroughFilters() {
+        // Given
+        window.add("event-1");
+        window.add("event-2");
+        window.add("event-3");
+
+        // When & Then
+        assertEquals(Match.NONE, window.lookup("event-4"));
+        assertEquals(Match.EXACT, window.lookup("event-3"));
+        // Evicted from the two-entry ring, still remembered by the bucket filter
+        assertEquals(Match.PROBABLE, window.lookup("event-1"));
+    }
+
+    @Test
+    void lookup_AfterWindowPassed_ShouldForgetOldIds() {
+        // Given
+        window.add("event-1");
+        window.add("event-2");
+        window.add("event-3");
+
+        // When
+        clock.addAndGet(4000);
+        window.add("event-4");
+
+        // Then
+        assertEquals(Match.NONE, window.lookup("event-1"));
+        assertEquals(Match.EXACT, window.lookup("event-4"));
+    }
+
+    @Test
+    void lookup_ForUnseenIds_ShouldRarelyReportFalsePositives() {
+        // Given
+        for (int i = 0; i < 1000; i++) {
+            window.add(UUID.randomUUID().toString());
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (window.lookup(UUID.randomUUID().toString()) != Match.NONE) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives <= 2, "false positives: " + falsePositives);
+    }
+}
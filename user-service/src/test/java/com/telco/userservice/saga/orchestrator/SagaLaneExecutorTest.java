@@ -0,0 +1,76 @@
+package com.telco.userservice.saga.orchestrator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SagaLaneExecutorTest {
+
+    private SagaLaneExecutor sagaLaneExecutor;
+
+    @BeforeEach
+    void setUp() {
+        sagaLaneExecutor = new SagaLaneExecutor(new SimpleMeterRegistry(), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sagaLaneExecutor.shutdown();
+    }
+
+    @Test
+    void execute_ShouldApplyTasksOfOneSagaInSubmissionOrder() throws Exception {
+        // Given - a plain list is safe because only the saga's lane touches it
+        List<Integer> applied = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            int value = i;
+            futures.add(sagaLaneExecutor.execute("saga-1", () -> applied.add(value)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(1000, applied.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, applied.get(i));
+        }
+    }
+
+    @Test
+    void submit_FromSameLane_ShouldRunInline() throws Exception {
+        // When
+        String result = sagaLaneExecutor.submit("saga-1",
+                () -> sagaLaneExecutor.submit("saga-1", () -> "nested").join()).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("nested", result);
+    }
+
+    @Test
+    void submit_WhenTaskFails_ShouldCompleteExceptionallyAndKeepLaneAlive() throws Exception {
+        // When
+        CompletableFuture<Object> failed = sagaLaneExecutor.submit("saga-1", () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        // Then
+        assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", sagaLaneExecutor.submit("saga-1", () -> "ok").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void laneOf_ShouldBeStableForSagaId() {
+        assertEquals(sagaLaneExecutor.laneOf("saga-1"), sagaLaneExecutor.laneOf("saga-1"));
+        assertTrue(sagaLaneExecutor.laneOf("saga-1") >= 0 && sagaLaneExecutor.laneOf("saga-1") < 4);
+    }
+}
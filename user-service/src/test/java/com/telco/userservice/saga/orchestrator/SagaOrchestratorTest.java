@@ -0,0 +1,149 @@
+package com.telco.userservice.saga.orchestrator;
+
+import com.telco.userservice.saga.compensation.CompensationPriority;
+import com.telco.userservice.saga.compensation.SagaCompensationDispatcher;
+import com.telco.userservice.saga.event.AlertSetupFailedEvent;
+import com.telco.userservice.saga.event.NotificationSentEvent;
+import com.telco.userservice.saga.event.SagaCompensationEvent;
+import com.telco.userservice.saga.event.SagaEvent;
+import com.telco.userservice.saga.metrics.SagaMetrics;
+import com.telco.userservice.saga.persistence.SagaStateStore;
+import com.telco.userservice.saga.resilience.SagaCircuitBreakers;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SagaOrchestratorTest {
+
+    @Mock
+    private SagaCompensationDispatcher sagaCompensationDispatcher;
+
+    @Mock
+    private SagaStateStore sagaStateStore;
+
+    @Mock
+    private SagaEventDeduplicator sagaEventDeduplicator;
+
+    @Mock
+    private SagaMetrics sagaMetrics;
+
+    @Mock
+    private SagaCircuitBreakers sagaCircuitBreakers;
+
+    @InjectMocks
+    private SagaOrchestrator sagaOrchestrator;
+
+    private SagaLaneExecutor sagaLaneExecutor;
+    private SagaState sagaState;
+
+    @BeforeEach
+    void setUp() {
+        sagaLaneExecutor = new SagaLaneExecutor(new SimpleMeterRegistry(), 2);
+        ReflectionTestUtils.setField(sagaOrchestrator, "sagaLaneExecutor", sagaLaneExecutor);
+        ReflectionTestUtils.setField(sagaOrchestrator, "maxRetryAttempts", 0);
+
+        sagaState = SagaOrchestrator.USER_REGISTRATION.newSagaState("saga-1", "correlation-1");
+        sagaState.setStatus(SagaStatus.IN_PROGRESS);
+        sagaState.markStepCompleted("CREATE_USER");
+        when(sagaStateStore.get("saga-1")).thenReturn(sagaState);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sagaLaneExecutor.shutdown();
+    }
+
+    @Test
+    void handleSagaEvent_WhenStepFails_ShouldCompensateEveryCompletedStepMostDependentFirst() throws Exception {
+        // Given
+        sagaState.markStepCompleted("SEND_WELCOME_NOTIFICATION");
+        stepInProgress("SETUP_ALERTS");
+
+        // When
+        apply(new AlertSetupFailedEvent("saga-1", "correlation-1", "user001", "boom", "ALERT_ERROR"));
+        SagaCompensationEvent first = lastCompensation(1);
+        apply(first);
+
+        // Then - CREATE_USER only follows once the notification's compensation came back
+        assertEquals(SagaStatus.FAILED, sagaState.getStatus());
+        assertEquals(SagaStepStatus.COMPENSATED, stepStatus("SEND_WELCOME_NOTIFICATION"));
+        assertEquals(SagaStepStatus.COMPLETED, stepStatus("CREATE_USER"));
+        SagaCompensationEvent second = lastCompensation(2);
+        assertEquals(List.of("SEND_WELCOME_NOTIFICATION", "CREATE_USER"),
+                List.of(first.getFailedStep(), second.getFailedStep()));
+
+        // When
+        apply(second);
+
+        // Then
+        assertEquals(SagaStatus.COMPENSATED, sagaState.getStatus());
+        assertEquals(SagaStepStatus.COMPENSATED, stepStatus("CREATE_USER"));
+        verify(sagaCompensationDispatcher, times(2)).dispatch(any(), any());
+        verify(sagaMetrics).recordSagaCompensated("saga-1");
+    }
+
+    @Test
+    void handleSagaEvent_WhenBranchCompletesDuringCompensation_ShouldUndoItOnceThroughTheChain() throws Exception {
+        // Given
+        stepInProgress("SETUP_ALERTS");
+        stepInProgress("SEND_WELCOME_NOTIFICATION");
+        apply(new AlertSetupFailedEvent("saga-1", "correlation-1", "user001", "boom", "ALERT_ERROR"));
+        SagaCompensationEvent first = lastCompensation(1);
+
+        // When - the sibling finishes while CREATE_USER is being undone
+        apply(new NotificationSentEvent("saga-1", "correlation-1", "user001", "n-1", "WELCOME", "+1", true));
+        verify(sagaCompensationDispatcher, times(1)).dispatch(any(), any());
+        apply(first);
+        SagaCompensationEvent second = lastCompensation(2);
+        apply(second);
+
+        // Then
+        assertEquals(List.of("CREATE_USER", "SEND_WELCOME_NOTIFICATION"),
+                List.of(first.getFailedStep(), second.getFailedStep()));
+        assertEquals(SagaStatus.COMPENSATED, sagaState.getStatus());
+        assertEquals(SagaStepStatus.COMPENSATED, stepStatus("SEND_WELCOME_NOTIFICATION"));
+        verify(sagaCompensationDispatcher, times(2)).dispatch(any(), eq(CompensationPriority.NORMAL));
+    }
+
+    private void apply(SagaEvent event) throws Exception {
+        sagaOrchestrator.handleSagaEvent(event).get(5, TimeUnit.SECONDS);
+    }
+
+    private SagaCompensationEvent lastCompensation(int dispatched) {
+        ArgumentCaptor<SagaCompensationEvent> captor = ArgumentCaptor.forClass(SagaCompensationEvent.class);
+        verify(sagaCompensationDispatcher, times(dispatched)).dispatch(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    private void stepInProgress(String stepName) {
+        sagaState.getSteps().stream()
+                .filter(step -> step.getStepName().equals(stepName))
+                .forEach(step -> step.setStatus(SagaStepStatus.IN_PROGRESS));
+    }
+
+    private SagaStepStatus stepStatus(String stepName) {
+        return sagaState.getSteps().stream()
+                .filter(step -> step.getStepName().equals(stepName))
+                .findFirst()
+                .orElseThrow()
+                .getStatus();
+    }
+}
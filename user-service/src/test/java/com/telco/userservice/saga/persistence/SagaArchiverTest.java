@@ -0,0 +1,91 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStep;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SagaArchiverTest {
+
+    private SagaStatusIndex sagaStatusIndex;
+    private SagaStateRepository sagaStateRepository;
+    private SagaHistoryRepository sagaHistoryRepository;
+    private SagaArchiver sagaArchiver;
+
+    @BeforeEach
+    void setUp() {
+        sagaStatusIndex = mock(SagaStatusIndex.class);
+        sagaStateRepository = mock(SagaStateRepository.class);
+        sagaHistoryRepository = mock(SagaHistoryRepository.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+        sagaArchiver = new SagaArchiver(sagaStatusIndex, sagaStateRepository, sagaHistoryRepository, jdbcTemplate,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 15, 500);
+        when(sagaStatusIndex.page(any(), anyLong(), anyLong(), any(), anyInt()))
+                .thenReturn(new SagaStatusIndex.Page(List.of(), null));
+    }
+
+    @Test
+    void archiveSettledSagas_ShouldWaitForMinimumAgeSinceTheSagaEnded() throws Exception {
+        // Given - both started long ago, only one ended long ago
+        SagaState endedLongAgo = completedSaga("saga-1", LocalDateTime.now().minusMinutes(30));
+        SagaState endedJustNow = completedSaga("saga-2", LocalDateTime.now());
+        givenCandidates(endedLongAgo, endedJustNow);
+        when(sagaStateRepository.deleteSagaStatesIfUnchanged(List.of(endedLongAgo))).thenReturn(Set.of("saga-1"));
+        when(sagaStateRepository.existingSagaIds(List.of("saga-2"))).thenReturn(Set.of("saga-2"));
+
+        // When
+        sagaArchiver.archiveSettledSagas();
+
+        // Then
+        verify(sagaHistoryRepository).archive(List.of(endedLongAgo));
+        verify(sagaStatusIndex).remove(List.of("saga-1"));
+    }
+
+    @Test
+    void archiveSettledSagas_WhenSagaChangedAfterItWasRead_ShouldKeepItIndexed() throws Exception {
+        // Given - the saga moved on in Redis between reading and deleting it
+        SagaState sagaState = completedSaga("saga-1", LocalDateTime.now().minusMinutes(30));
+        givenCandidates(sagaState);
+        when(sagaStateRepository.deleteSagaStatesIfUnchanged(List.of(sagaState))).thenReturn(Set.of());
+        when(sagaStateRepository.existingSagaIds(List.of("saga-1"))).thenReturn(Set.of("saga-1"));
+
+        // When
+        sagaArchiver.archiveSettledSagas();
+
+        // Then - left for the next run, which archives its latest state
+        verify(sagaHistoryRepository).archive(List.of(sagaState));
+        verify(sagaStatusIndex).remove(List.of());
+    }
+
+    private void givenCandidates(SagaState... sagaStates) {
+        List<String> sagaIds = Arrays.stream(sagaStates).map(SagaState::getSagaId).toList();
+        when(sagaStatusIndex.page(eq(SagaStatus.COMPLETED), eq(0L), anyLong(), isNull(), eq(500)))
+                .thenReturn(new SagaStatusIndex.Page(sagaIds, null));
+        when(sagaStateRepository.getSagaStates(sagaIds)).thenReturn(List.of(sagaStates));
+    }
+
+    private static SagaState completedSaga(String sagaId, LocalDateTime endTime) {
+        SagaState sagaState = new SagaState(sagaId, "correlation-" + sagaId);
+        sagaState.setStartTime(LocalDateTime.now().minusHours(1));
+        SagaStep step = new SagaStep("CREATE_USER", "user-service", "DELETE_USER");
+        step.setStartTime(sagaState.getStartTime());
+        sagaState.addStep(step);
+        sagaState.markStepCompleted("CREATE_USER");
+        sagaState.setStatus(SagaStatus.COMPLETED);
+        sagaState.setEndTime(endTime);
+        return sagaState;
+    }
+}
@@ -0,0 +1,89 @@
+package com.telco.userservice.saga.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SagaStateCodecTest {
+
+    private final SagaStateCodec codec = new SagaStateCodec(new ObjectMapper());
+
+    @Test
+    void encodeAndDecode_ShouldRoundTripSagaAndSteps() throws Exception {
+        // Given
+        SagaState sagaState = new SagaState("saga-1", "correlation-1");
+        sagaState.addStep(new SagaStep("CREATE_USER", "user-service", "DELETE_USER"));
+        sagaState.addStep(new SagaStep("SETUP_ALERTS", "alert-trigger-service", "DISABLE_ALERTS"));
+        sagaState.markStepCompleted("CREATE_USER");
+        sagaState.markStepFailed("SETUP_ALERTS", "Alert service unavailable");
+        sagaState.getSteps().get(0).setStepData(Map.of("userId", "user001"));
+        sagaState.getSteps().get(1).setRetryCount(2);
+
+        // When
+        Map<String, String> fields = codec.encode(sagaState);
+        Map<String, String> stored = new HashMap<>();
+        fields.forEach((field, value) -> {
+            if (value != null) {
+                stored.put(field, value);
+            }
+        });
+        SagaState decoded = codec.decode("saga-1", stored);
+
+        // Then
+        assertEquals("COMPLETED", fields.get("s.CREATE_USER.st"));
+        assertFalse(stored.containsKey("t1"));
+        assertEquals("correlation-1", decoded.getCorrelationId());
+        assertEquals(SagaStatus.FAILED, decoded.getStatus());
+        assertTrue(decoded.isCompensationRequired());
+        assertEquals("Alert service unavailable", decoded.getFailureReason());
+        assertEquals("SETUP_ALERTS", decoded.getCurrentStep());
+        assertEquals(2, decoded.getSteps().size());
+        assertEquals(SagaStepStatus.COMPLETED, decoded.getSteps().get(0).getStatus());
+        assertEquals("DELETE_USER", decoded.getSteps().get(0).getCompensationAction());
+        assertEquals(Map.of("userId", "user001"), decoded.getSteps().get(0).getStepData());
+        assertEquals(SagaStepStatus.FAILED, decoded.getSteps().get(1).getStatus());
+        assertFalse(stored.containsKey("s.CREATE_USER.n"));
+        assertEquals(0, decoded.getSteps().get(0).getRetryCount());
+        assertEquals(2, decoded.getSteps().get(1).getRetryCount());
+        assertNull(decoded.getEndTime());
+    }
+
+    @Test
+    void encodeAndDecode_ShouldKeepAppliedEventIds() throws Exception {
+        // Given
+        SagaState sagaState = new SagaState("saga-1", "correlation-1");
+        sagaState.recordAppliedEvent("event-1");
+        sagaState.recordAppliedEvent("event-2");
+
+        // When
+        Map<String, String> stored = new HashMap<>();
+        codec.encode(sagaState).forEach((field, value) -> {
+            if (value != null) {
+                stored.put(field, value);
+            }
+        });
+        SagaState decoded = codec.decode("saga-1", stored);
+
+        // Then
+        assertTrue(decoded.hasApplied("event-1"));
+        assertTrue(decoded.hasApplied("event-2"));
+        assertFalse(decoded.hasApplied("event-3"));
+    }
+
+    @Test
+    void decode_WithoutStatus_ShouldRejectHash() {
+        // Given
+        Map<String, String> fields = Map.of("cid", "correlation-1");
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("saga-1", fields));
+    }
+}
@@ -0,0 +1,221 @@
+package com.telco.userservice.saga.persistence;
+
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
+import com.telco.userservice.saga.orchestrator.SagaLaneExecutor;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import com.telco.userservice.saga.timeout.SagaDeadlineTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SagaStateStoreTest {
+
+    private SagaStateRepository sagaStateRepository;
+    private SagaTransitionLog sagaTransitionLog;
+    private SagaStatusIndex sagaStatusIndex;
+    private SagaDeadlineTimer sagaDeadlineTimer;
+    private SagaHistoryRepository sagaHistoryRepository;
+    private SagaLaneExecutor sagaLaneExecutor;
+    private SagaStateStore sagaStateStore;
+
+    @BeforeEach
+    void setUp() {
+        sagaStateRepository = mock(SagaStateRepository.class);
+        sagaTransitionLog = mock(SagaTransitionLog.class);
+        sagaStatusIndex = mock(SagaStatusIndex.class);
+        sagaDeadlineTimer = mock(SagaDeadlineTimer.class);
+        sagaHistoryRepository = mock(SagaHistoryRepository.class);
+        sagaLaneExecutor = new SagaLaneExecutor(new SimpleMeterRegistry(), 1);
+        sagaStateStore = new SagaStateStore(sagaStateRepository, mock(SagaDeadlineIndex.class),
+                sagaDeadlineTimer, sagaTransitionLog, sagaStatusIndex,
+                sagaHistoryRepository, new SagaPartitionOwnership(new SimpleMeterRegistry()),
+                mock(SagaTransitionChannel.class), sagaLaneExecutor,
+                new SimpleMeterRegistry(), 2, 10);
+    }
+
+    @Test
+    void save_WhenSagaCompletes_ShouldWriteThroughAndEvict() {
+        // Given
+        SagaState sagaState = newSaga("saga-1");
+        sagaStateStore.save(sagaState);
+        assertEquals(1, sagaStateStore.getHotSize());
+
+        // When
+        sagaState.markSagaCompleted();
+        sagaStateStore.save(sagaState);
+
+        // Then
+        verify(sagaStateRepository, times(2)).saveSagaState(sagaState);
+        assertEquals(0, sagaStateStore.getHotSize());
+    }
+
+    @Test
+    void save_WhenWriteThroughFails_ShouldKeepTerminalSagaHot() {
+        // Given
+        SagaState sagaState = newSaga("saga-1");
+        sagaState.markSagaCompleted();
+        doThrow(new RuntimeException("Redis unavailable")).when(sagaStateRepository).saveSagaState(sagaState);
+
+        // When
+        sagaStateStore.save(sagaState);
+
+        // Then
+        assertSame(sagaState, sagaStateStore.get("saga-1"));
+    }
+
+    @Test
+    void updateStep_ShouldStampHotCopyWithTheTimeWrittenToRedis() {
+        // Given
+        SagaState sagaState = newSaga("saga-1");
+        sagaStateStore.save(sagaState);
+        ArgumentCaptor<LocalDateTime> writtenAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        when(sagaStateRepository.updateStepStatus(eq("saga-1"), eq("CREATE_USER"), eq(SagaStepStatus.COMPLETED),
+                isNull(), eq(false), writtenAt.capture())).thenReturn(true);
+
+        // When
+        assertTrue(sagaStateStore.updateStep("saga-1", "CREATE_USER", SagaStepStatus.COMPLETED, null));
+
+        // Then
+        assertEquals(writtenAt.getValue(), sagaState.getSteps().get(0).getEndTime());
+    }
+
+    @Test
+    void recover_ShouldOnlyRewriteSagasRedisLostOnceTheirPartitionIsAssigned() {
+        // Given
+        SagaState stillInRedis = newSaga("saga-1");
+        SagaState archived = newSaga("saga-2");
+        SagaState lostByRedis = newSaga("saga-3");
+        when(sagaTransitionLog.recover()).thenReturn(List.of(stillInRedis, archived, lostByRedis));
+        when(sagaStateRepository.existsSagaState("saga-1")).thenReturn(true);
+        when(sagaHistoryRepository.find(anyString())).thenReturn(Optional.empty());
+        when(sagaHistoryRepository.find("saga-2")).thenReturn(Optional.of(archived));
+        when(sagaStatusIndex.pagePartition(anyInt(), any(), anyInt())).thenReturn(new SagaStatusIndex.Page(List.of(), null));
+        sagaStateStore.recover();
+        verify(sagaStateRepository, never()).saveSagaState(any());
+
+        // When
+        sagaStateStore.rebalance(Set.of(0));
+
+        // Then
+        verify(sagaStateRepository, never()).saveSagaState(stillInRedis);
+        verify(sagaStateRepository, never()).saveSagaState(archived);
+        verify(sagaStateRepository).saveSagaState(lostByRedis);
+    }
+
+    @Test
+    void recover_WhenPartitionIsAssignedElsewhere_ShouldNotRewrite() {
+        // Given
+        when(sagaTransitionLog.recover()).thenReturn(List.of(newSaga("saga-1")));
+        when(sagaStatusIndex.pagePartition(anyInt(), any(), anyInt())).thenReturn(new SagaStatusIndex.Page(List.of(), null));
+        sagaStateStore.recover();
+
+        // When
+        sagaStateStore.rebalance(Set.of(1));
+
+        // Then
+        verify(sagaStateRepository, never()).existsSagaState(anyString());
+        verify(sagaStateRepository, never()).saveSagaState(any());
+    }
+
+    @Test
+    void rebalance_ShouldRestoreFromAssignedPartitionsOnly() {
+        // Given
+        List<String> sagaIds = List.of("saga-1", "saga-2", "saga-3");
+        when(sagaStatusIndex.pagePartition(1, null, 1000)).thenReturn(new SagaStatusIndex.Page(sagaIds, null));
+        when(sagaStateRepository.getSagaStates(sagaIds))
+                .thenReturn(List.of(newSaga("saga-1"), newSaga("saga-2"), newSaga("saga-3")));
+
+        // When
+        sagaStateStore.rebalance(Set.of(1));
+
+        // Then
+        verify(sagaStatusIndex, only()).pagePartition(1, null, 1000);
+        // Every running saga gets its timer, even past the hot set's capacity
+        verify(sagaDeadlineTimer, times(3)).schedule(anyString(), anyLong());
+        assertEquals(2, sagaStateStore.getHotSize());
+    }
+
+    @Test
+    void save_WhenHotSetIsFull_ShouldStayBounded() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            sagaStateStore.save(newSaga("saga-" + i));
+        }
+
+        // Then
+        assertEquals(2, sagaStateStore.getHotSize());
+    }
+
+    @Test
+    void save_WhenWriteThroughFails_ShouldNeverEvictUntilFlushed() {
+        // Given
+        SagaState unpersisted = newSaga("saga-dirty");
+        doThrow(new RuntimeException("Redis unavailable")).doNothing()
+                .when(sagaStateRepository).saveSagaState(unpersisted);
+        sagaStateStore.save(unpersisted);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            sagaStateStore.save(newSaga("saga-" + i));
+        }
+
+        // Then
+        assertSame(unpersisted, sagaStateStore.get("saga-dirty"));
+        assertEquals(1, sagaStateStore.getDirtySize());
+
+        sagaStateStore.flushDirty();
+        sagaLaneExecutor.execute("saga-dirty", () -> {
+        }).join();
+        verify(sagaStateRepository, times(2)).saveSagaState(unpersisted);
+        assertEquals(0, sagaStateStore.getDirtySize());
+    }
+
+    @Test
+    void get_WhenSagaIsCold_ShouldFallBackToRepository() {
+        // Given
+        SagaState persisted = newSaga("saga-1");
+        when(sagaStateRepository.getSagaState("saga-1")).thenReturn(Optional.of(persisted));
+
+        // When
+        SagaState first = sagaStateStore.get("saga-1");
+        SagaState second = sagaStateStore.get("saga-1");
+
+        // Then
+        assertSame(persisted, first);
+        assertSame(first, second);
+        verify(sagaStateRepository, times(1)).getSagaState("saga-1");
+    }
+
+    @Test
+    void get_WhenFailedSagaHasNothingToCompensate_ShouldNotRehydrate() {
+        // Given
+        SagaState persisted = newSaga("saga-1");
+        persisted.markStepFailed("CREATE_USER", "Database connection failed");
+        when(sagaStateRepository.getSagaState("saga-1")).thenReturn(Optional.of(persisted));
+
+        // When
+        SagaState sagaState = sagaStateStore.get("saga-1");
+
+        // Then
+        assertEquals(SagaStepStatus.FAILED, sagaState.getSteps().get(0).getStatus());
+        assertEquals(0, sagaStateStore.getHotSize());
+    }
+
+    private SagaState newSaga(String sagaId) {
+        SagaState sagaState = new SagaState(sagaId, "correlation-" + sagaId);
+        sagaState.addStep(new SagaStep("CREATE_USER", "user-service", "DELETE_USER"));
+        return sagaState;
+    }
+}
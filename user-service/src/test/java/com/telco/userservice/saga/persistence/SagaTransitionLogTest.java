@@ -0,0 +1,114 @@
+package com.telco.userservice.saga.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStep;
+import com.telco.userservice.saga.state.SagaStepStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SagaTransitionLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recover_ShouldLoadSnapshotAndReplayTail() {
+        // Given
+        SagaTransitionLog log = newLog();
+        log.recover();
+        SagaState completed = newSaga("saga-1");
+        SagaState inFlight = newSaga("saga-2");
+        log.append(completed, true);
+        log.append(inFlight, true);
+        log.snapshot();
+
+        completed.markSagaCompleted();
+        log.append(completed, false);
+        inFlight.markStepCompleted("CREATE_USER");
+        log.append(inFlight, true);
+        log.shutdown();
+
+        // When
+        List<SagaState> recovered = newLog().recover();
+
+        // Then
+        assertEquals(1, recovered.size());
+        assertEquals("saga-2", recovered.get(0).getSagaId());
+        assertEquals(SagaStepStatus.COMPLETED, recovered.get(0).getSteps().get(0).getStatus());
+    }
+
+    @Test
+    void forget_ShouldLeaveSagaOutOfTheNextSnapshot() {
+        // Given
+        SagaTransitionLog log = newLog();
+        log.recover();
+        log.append(newSaga("saga-1"), true);
+        log.append(newSaga("saga-2"), true);
+
+        // When
+        log.forget("saga-1"::equals);
+        log.snapshot();
+        log.shutdown();
+
+        // Then
+        List<SagaState> recovered = newLog().recover();
+        assertEquals(List.of("saga-2"), recovered.stream().map(SagaState::getSagaId).toList());
+    }
+
+    @Test
+    void snapshot_ShouldDeleteCoveredSegments() throws Exception {
+        // Given
+        SagaTransitionLog log = newLog();
+        log.recover();
+        log.append(newSaga("saga-1"), true);
+
+        // When
+        log.snapshot();
+        log.shutdown();
+
+        // Then
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of("saga-00000000000000000002.log", "snapshot-00000000000000000002.snap"),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void recover_WhenTailIsTorn_ShouldKeepRecordsBeforeIt() throws Exception {
+        // Given
+        SagaTransitionLog log = newLog();
+        log.recover();
+        log.append(newSaga("saga-1"), true);
+        log.shutdown();
+        Files.write(tempDir.resolve("saga-00000000000000000001.log"), new byte[] { 0, 0, 1, 0, 42 },
+                StandardOpenOption.APPEND);
+
+        // When
+        List<SagaState> recovered = newLog().recover();
+
+        // Then
+        assertEquals(1, recovered.size());
+        assertEquals("saga-1", recovered.get(0).getSagaId());
+    }
+
+    private SagaTransitionLog newLog() {
+        return new SagaTransitionLog(new ObjectMapper(), new SimpleMeterRegistry(), tempDir.toString(), 1 << 20, 1000,
+                true);
+    }
+
+    private SagaState newSaga(String sagaId) {
+        SagaState sagaState = new SagaState(sagaId, "correlation-" + sagaId);
+        sagaState.addStep(new SagaStep("CREATE_USER", "user-service", "DELETE_USER"));
+        return sagaState;
+    }
+}
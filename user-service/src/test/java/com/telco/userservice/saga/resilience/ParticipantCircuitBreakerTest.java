@@ -0,0 +1,73 @@
+package com.telco.userservice.saga.resilience;
+
+import com.telco.userservice.saga.resilience.ParticipantCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticipantCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ParticipantCircuitBreaker breaker =
+            new ParticipantCircuitBreaker(10, 4, 50, 1000, 2, clock::get, (from, to) -> { });
+
+    @Test
+    void onFailure_AboveThreshold_ShouldOpenAndReject() {
+        // Given
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        // When
+        breaker.onFailure();
+
+        // Then
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1000, breaker.remainingOpenMillis());
+    }
+
+    @Test
+    void tryAcquire_AfterOpenDuration_ShouldLetProbesThroughAndCloseOnSuccess() {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        clock.addAndGet(1000);
+
+        // When
+        boolean first = breaker.tryAcquire();
+        boolean second = breaker.tryAcquire();
+        boolean third = breaker.tryAcquire();
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_WhileHalfOpen_ShouldReopen() {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        clock.addAndGet(1000);
+        breaker.tryAcquire();
+
+        // When
+        breaker.onFailure();
+
+        // Then
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+}
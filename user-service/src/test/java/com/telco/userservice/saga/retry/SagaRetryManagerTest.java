@@ -0,0 +1,97 @@
+package com.telco.userservice.saga.retry;
+
+import com.telco.userservice.saga.compensation.SagaCompensationDispatcher;
+import com.telco.userservice.saga.consumer.SagaPartitionOwnership;
+import com.telco.userservice.saga.orchestrator.SagaLaneExecutor;
+import com.telco.userservice.saga.orchestrator.SagaOrchestrator;
+import com.telco.userservice.saga.persistence.SagaStateStore;
+import com.telco.userservice.saga.resilience.SagaRetryBudget;
+import com.telco.userservice.saga.retry.SagaRetryQueue.RetryEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SagaRetryManagerTest {
+
+    private SagaOrchestrator sagaOrchestrator;
+    private SagaRetryQueue sagaRetryQueue;
+    private SagaPartitionOwnership sagaPartitionOwnership;
+    private SagaRetryManager sagaRetryManager;
+
+    @BeforeEach
+    void setUp() {
+        sagaOrchestrator = mock(SagaOrchestrator.class);
+        sagaRetryQueue = mock(SagaRetryQueue.class);
+        sagaPartitionOwnership = mock(SagaPartitionOwnership.class);
+        when(sagaPartitionOwnership.owns(anyString())).thenReturn(true);
+        sagaRetryManager = new SagaRetryManager(mock(SagaStateStore.class), mock(SagaCompensationDispatcher.class),
+                new SagaLaneExecutor(new SimpleMeterRegistry(), 1), sagaOrchestrator, sagaRetryQueue,
+                mock(SagaRetryBudget.class), sagaPartitionOwnership, new SimpleMeterRegistry(), 3, 5, 300, 100, 30, 1000);
+    }
+
+    @Test
+    void park_TwiceInARow_ShouldKeepTheSecondParkQueued() {
+        // Given
+        sagaRetryManager.park("saga-1", "SETUP_ALERTS", 1, 1000);
+        ArgumentCaptor<RetryEntry> parked = ArgumentCaptor.forClass(RetryEntry.class);
+        verify(sagaRetryQueue).schedule(parked.capture(), anyLong());
+        RetryEntry claimed = parked.getValue();
+
+        when(sagaRetryQueue.claimDue(anyLong(), anyInt(), anyLong())).thenReturn(List.of(claimed));
+        // The circuit is still open, so the retry parks the step again
+        when(sagaOrchestrator.retryStep("saga-1", "SETUP_ALERTS", 1)).thenAnswer(invocation -> {
+            sagaRetryManager.park("saga-1", "SETUP_ALERTS", 1, 1000);
+            return CompletableFuture.completedFuture(true);
+        });
+
+        // When
+        sagaRetryManager.dispatchDueRetries();
+
+        // Then
+        verify(sagaRetryQueue, times(2)).schedule(parked.capture(), anyLong());
+        RetryEntry reparked = parked.getAllValues().get(parked.getAllValues().size() - 1);
+        verify(sagaRetryQueue).complete(claimed);
+        assertNotEquals(claimed.toMember(), reparked.toMember());
+    }
+
+    @Test
+    void dispatchDueRetries_WhenSagaIsOwnedElsewhere_ShouldHandRetryBack() {
+        // Given
+        RetryEntry entry = new RetryEntry("saga-1", "SETUP_ALERTS", 2);
+        when(sagaPartitionOwnership.owns("saga-1")).thenReturn(false);
+        when(sagaRetryQueue.claimDue(anyLong(), anyInt(), anyLong())).thenReturn(List.of(entry));
+
+        // When
+        sagaRetryManager.dispatchDueRetries();
+
+        // Then
+        verify(sagaOrchestrator, never()).retryStep(anyString(), anyString(), anyInt());
+        verify(sagaRetryQueue).schedule(eq(entry), anyLong());
+        verify(sagaRetryQueue, never()).complete(any());
+    }
+
+    @Test
+    void fromMember_ShouldReadBackParkedAndRetryEntries() {
+        // Given
+        RetryEntry parked = RetryEntry.parked("saga-1", "SETUP_ALERTS", 2);
+        RetryEntry retry = new RetryEntry("saga-1", "SETUP_ALERTS", 3);
+
+        // When
+        RetryEntry parkedRead = RetryEntry.fromMember(parked.toMember());
+        RetryEntry retryRead = RetryEntry.fromMember(retry.toMember());
+
+        // Then
+        assertEquals(parked.toMember(), parkedRead.toMember());
+        assertEquals(2, parkedRead.getAttempt());
+        assertEquals("SETUP_ALERTS", parkedRead.getStepName());
+        assertEquals("saga-1|SETUP_ALERTS|3", retryRead.toMember());
+    }
+}
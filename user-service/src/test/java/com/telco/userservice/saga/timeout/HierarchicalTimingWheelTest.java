@@ -0,0 +1,100 @@
+package com.telco.userservice.saga.timeout;
+
+import com.telco.userservice.saga.timeout.HierarchicalTimingWheel.TimerHandle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private HierarchicalTimingWheel timingWheel;
+
+    @BeforeEach
+    void setUp() {
+        timingWheel = new HierarchicalTimingWheel(1, 20, Runnable::run, "test-reaper");
+    }
+
+    @AfterEach
+    void tearDown() {
+        timingWheel.close();
+    }
+
+    @Test
+    void schedule_ShouldFireInDeadlineOrderAcrossWheels() throws Exception {
+        // Given
+        long now = System.currentTimeMillis();
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        // When - 15ms fits the first wheel, the others cascade from overflow wheels
+        timingWheel.schedule(now + 450, () -> record(fired, "late", latch));
+        timingWheel.schedule(now + 15, () -> record(fired, "early", latch));
+        timingWheel.schedule(now + 120, () -> record(fired, "middle", latch));
+
+        // Then
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("early", "middle", "late"), fired);
+        assertEquals(0, timingWheel.getPendingCount());
+    }
+
+    @Test
+    void schedule_ShouldNotFireBeforeDeadline() throws Exception {
+        // Given
+        long deadline = System.currentTimeMillis() + 100;
+        CountDownLatch latch = new CountDownLatch(1);
+        long[] firedAt = new long[1];
+
+        // When
+        timingWheel.schedule(deadline, () -> {
+            firedAt[0] = System.currentTimeMillis();
+            latch.countDown();
+        });
+
+        // Then
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAt[0] >= deadline);
+    }
+
+    @Test
+    void cancel_ShouldRemoveTimerBeforeItFires() throws Exception {
+        // Given
+        long now = System.currentTimeMillis();
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        TimerHandle cancelled = timingWheel.schedule(now + 50, () -> fired.add("cancelled"));
+        timingWheel.schedule(now + 100, () -> record(fired, "kept", latch));
+
+        // When
+        cancelled.cancel();
+
+        // Then
+        assertEquals(1, timingWheel.getPendingCount());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    void schedule_WithPastDeadline_ShouldRunImmediately() {
+        // Given
+        List<String> fired = new CopyOnWriteArrayList<>();
+
+        // When
+        timingWheel.schedule(System.currentTimeMillis() - 1000, () -> fired.add("overdue"));
+
+        // Then
+        assertEquals(List.of("overdue"), fired);
+        assertEquals(0, timingWheel.getPendingCount());
+    }
+
+    private void record(List<String> fired, String name, CountDownLatch latch) {
+        fired.add(name);
+        latch.countDown();
+    }
+}
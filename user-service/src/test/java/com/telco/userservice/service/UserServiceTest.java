@@ -1,5 +1,6 @@
 package com.telco.userservice.service;
 
+import com.telco.userservice.audit.UserAuditWriter;
 import com.telco.userservice.mapper.UserMapper;
 import com.telco.userservice.model.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,6 +24,9 @@ class UserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserAuditWriter userAuditWriter;
+
     @InjectMocks
     private UserService userService;
 
@@ -89,6 +93,7 @@ class UserServiceTest {
         // Then
         assertEquals(testUser, result);
         verify(userMapper).insert(testUser);
+        verify(userAuditWriter).recordInsert(testUser);
     }
 
     @Test
@@ -0,0 +1,201 @@
+package com.telco.userservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.telco.userservice.model.User;
+import com.telco.userservice.saga.orchestrator.SagaOrchestrator;
+import com.telco.userservice.saga.persistence.SagaPage;
+import com.telco.userservice.saga.persistence.SagaTransitionChannel;
+import com.telco.userservice.saga.persistence.SagaTransitionChannel.Subscription;
+import com.telco.userservice.saga.persistence.SagaTransitionChannel.TransitionListener;
+import com.telco.userservice.saga.state.SagaState;
+import com.telco.userservice.saga.state.SagaStatus;
+import com.telco.userservice.service.UserRegistrationRequests;
+import com.telco.userservice.service.UserService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class SagaControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserRegistrationRequests userRegistrationRequests;
+
+    @Mock
+    private SagaTransitionChannel sagaTransitionChannel;
+
+    @InjectMocks
+    private SagaController sagaController;
+
+    private MockMvc mockMvc;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sagaController, "streamTimeoutMs", 60_000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(sagaController).build();
+        testUser = new User("user001", "+1234567890", 5368709120L, 0L);
+    }
+
+    @Test
+    void startUserRegistrationSaga_ShouldStoreRequestBeforeAnswering202() throws Exception {
+        // Given
+        when(sagaOrchestrator.startUserRegistrationSaga(anyString())).thenReturn("saga-1");
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/saga/user-registration")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testUser)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", Matchers.endsWith("/api/v1/saga/saga-1/status")))
+                .andExpect(jsonPath("$.sagaId").value("saga-1"))
+                .andExpect(jsonPath("$.status").value("ACCEPTED"))
+                .andExpect(jsonPath("$.statusUrl").value(Matchers.endsWith("/api/v1/saga/saga-1/status")))
+                .andExpect(jsonPath("$.eventsUrl").value(Matchers.endsWith("/api/v1/saga/saga-1/events")));
+
+        InOrder inOrder = inOrder(userService, sagaOrchestrator, userRegistrationRequests);
+        inOrder.verify(userService).validateNewUser(any(User.class));
+        inOrder.verify(sagaOrchestrator).startUserRegistrationSaga(anyString());
+        inOrder.verify(userRegistrationRequests).accept(argThat(user -> "user001".equals(user.getUserId())),
+                eq("saga-1"));
+        verify(userService, never()).saveWithSaga(any(), any());
+    }
+
+    @Test
+    void startUserRegistrationSaga_WhenUserAlreadyExists_ShouldReturn400WithoutStartingSaga() throws Exception {
+        // Given
+        doThrow(new IllegalStateException("User with ID user001 already exists"))
+                .when(userService).validateNewUser(any(User.class));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/saga/user-registration")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testUser)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("User with ID user001 already exists"));
+
+        verifyNoInteractions(sagaOrchestrator, userRegistrationRequests);
+    }
+
+    @Test
+    void startUserRegistrationSaga_WhenInputIsInvalid_ShouldReturn400WithoutStartingSaga() throws Exception {
+        // Given
+        testUser.setPhoneNumber("not-a-number");
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/saga/user-registration")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testUser)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(sagaOrchestrator, userRegistrationRequests);
+    }
+
+    @Test
+    void streamSagaEvents_ShouldSendSnapshotThenTransitionsUntilSettled() throws Exception {
+        // Given
+        Subscription subscription = mock(Subscription.class);
+        ArgumentCaptor<TransitionListener> listener = ArgumentCaptor.forClass(TransitionListener.class);
+        when(sagaTransitionChannel.subscribe(eq("saga-1"), listener.capture())).thenReturn(subscription);
+        // A transition published between subscribing and reading the snapshot
+        when(sagaOrchestrator.getSagaState("saga-1")).thenAnswer(invocation -> {
+            listener.getValue().onTransition("{\"sagaId\":\"saga-1\",\"status\":\"IN_PROGRESS\"}", false);
+            return sagaState(SagaStatus.PENDING);
+        });
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/saga/saga-1/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        listener.getValue().onTransition("{\"sagaId\":\"saga-1\",\"status\":\"COMPLETED\"}", true);
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        int snapshot = body.indexOf("\"status\":\"PENDING\"");
+        int inProgress = body.indexOf("\"status\":\"IN_PROGRESS\"");
+        int completed = body.indexOf("\"status\":\"COMPLETED\"");
+        assertTrue(snapshot >= 0 && snapshot < inProgress && inProgress < completed, body);
+        assertEquals(3, body.split("event:" + SagaEventStream.EVENT_NAME, -1).length - 1);
+    }
+
+    @Test
+    void streamSagaEvents_WhenSagaAlreadySettled_ShouldSendSnapshotAndClose() throws Exception {
+        // Given
+        when(sagaTransitionChannel.subscribe(eq("saga-1"), any())).thenReturn(mock(Subscription.class));
+        when(sagaOrchestrator.getSagaState("saga-1")).thenReturn(sagaState(SagaStatus.COMPLETED));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/saga/saga-1/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(body.contains("\"status\":\"COMPLETED\""), body);
+    }
+
+    @Test
+    void streamSagaEvents_WhenSagaUnknown_ShouldReturn404AndUnsubscribe() throws Exception {
+        // Given
+        Subscription subscription = mock(Subscription.class);
+        when(sagaTransitionChannel.subscribe(eq("missing"), any())).thenReturn(subscription);
+        when(sagaOrchestrator.getSagaState("missing")).thenReturn(null);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/saga/missing/events"))
+                .andExpect(status().isNotFound());
+        verify(subscription).close();
+    }
+
+    @Test
+    void listSagas_ShouldPassQueryParametersThrough() throws Exception {
+        // Given
+        when(sagaOrchestrator.findSagas(any(), any(), any(), anyInt()))
+                .thenReturn(new SagaPage(List.of(), "cursor-2"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/saga")
+                        .param("status", "IN_PROGRESS")
+                        .param("cursor", "cursor-1")
+                        .param("limit", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("cursor-2"));
+        verify(sagaOrchestrator).findSagas(SagaStatus.IN_PROGRESS, null, "cursor-1", 1000);
+    }
+
+    private static SagaState sagaState(SagaStatus status) {
+        SagaState sagaState = new SagaState("saga-1", "correlation-1");
+        sagaState.setStatus(status);
+        return sagaState;
+    }
+}